@@ -0,0 +1,63 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.datavyu.plugins.MediaPlayerData;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Renders the frames of a media player into a JavaFX image view
+ *
+ * <p>The image is backed by a PixelBuffer whose direct buffer the native side converts the frames
+ * into, so a frame reaches the scene graph without any copy in java. The buffer is only written
+ * from the update callback of the PixelBuffer on the JavaFX application thread, which this timer
+ * invokes once per pulse. Pulses without a new frame do not mark the image dirty.
+ *
+ * <p>The player must be created with the image type BufferedImage.TYPE_INT_ARGB_PRE, which matches
+ * the int argb pre pixel format of JavaFX.
+ */
+public class PixelBufferImagePlayer extends AnimationTimer {
+  private final MediaPlayerData mediaPlayerData;
+  private final ByteBuffer buffer;
+  private final PixelBuffer<IntBuffer> pixelBuffer;
+  private final ImageView imageView;
+
+  PixelBufferImagePlayer(MediaPlayerData mediaPlayerData) {
+    if (mediaPlayerData.getImageType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+      throw new IllegalArgumentException("The image type must be TYPE_INT_ARGB_PRE");
+    }
+    this.mediaPlayerData = mediaPlayerData;
+    int width = mediaPlayerData.getImageWidth();
+    int height = mediaPlayerData.getImageHeight();
+    // Allocate the direct buffer in native order so that the ints match the native pixels
+    this.buffer =
+        ByteBuffer.allocateDirect(width * height * Integer.BYTES).order(ByteOrder.nativeOrder());
+    this.pixelBuffer =
+        new PixelBuffer<>(
+            width, height, buffer.asIntBuffer(), PixelFormat.getIntArgbPreInstance());
+    this.imageView = new ImageView(new WritableImage(pixelBuffer));
+    this.imageView.setPreserveRatio(true);
+  }
+
+  /**
+   * Returns the view that displays the frames; resize it through its fit width and height
+   *
+   * @return The image view
+   */
+  ImageView getImageView() {
+    return imageView;
+  }
+
+  @Override
+  public void handle(long now) {
+    // Returning null marks the whole image dirty; the empty region leaves it untouched
+    pixelBuffer.updateBuffer(
+        pb -> mediaPlayerData.updateImageData(buffer) ? null : Rectangle2D.EMPTY);
+  }
+}
@@ -0,0 +1,62 @@
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.datavyu.plugins.MediaPlayerData;
+import org.datavyu.plugins.ffmpeg.FfmpegJavaMediaPlayer;
+
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URI;
+
+/** Plays a media file through the java player and renders its frames in the JavaFX scene graph */
+public class SimpleJavaFXImageMediaPlayer extends Application {
+  private static Logger logger = LogManager.getLogger(SimpleJavaFXImageMediaPlayer.class);
+  private JMediaPlayerControlFrame controller;
+  private MediaPlayerData mediaPlayer;
+  private PixelBufferImagePlayer imagePlayer;
+
+  @Override
+  public void start(Stage primaryStage) {
+    URI mediaPath = new File("counter.mp4").toURI();
+
+    // Create the player without a container; the frames are pulled by the image player below
+    mediaPlayer = new FfmpegJavaMediaPlayer(mediaPath, BufferedImage.TYPE_INT_ARGB_PRE);
+
+    mediaPlayer.addMediaErrorListener(
+        // Handle error thrown by The Media Player
+        (source, errorCode, message) -> logger.error(errorCode + ": " + message));
+
+    mediaPlayer.init();
+
+    imagePlayer = new PixelBufferImagePlayer(mediaPlayer);
+    StackPane root = new StackPane(imagePlayer.getImageView());
+    root.setStyle("-fx-background-color: black");
+    imagePlayer.getImageView().fitWidthProperty().bind(root.widthProperty());
+    imagePlayer.getImageView().fitHeightProperty().bind(root.heightProperty());
+    imagePlayer.start();
+
+    primaryStage.setScene(new Scene(root, 640, 480));
+    primaryStage.setOnCloseRequest(
+        event -> {
+          imagePlayer.stop();
+          mediaPlayer.dispose();
+          Platform.exit();
+          System.exit(0);
+        });
+    primaryStage.show();
+
+    // Open a simple JFrame to control the media player through key commands
+    // Be creative and create your own controller in JavaFX
+    SwingUtilities.invokeLater(
+        () -> controller = new JMediaPlayerControlFrame(mediaPlayer));
+  }
+
+  public static void main(String[] args) {
+    Application.launch(args);
+  }
+}
@@ -6,7 +6,9 @@ Decoder::Decoder(AVCodecContext *avctx, PacketQueue *queue,
       p_is_empty_condition_(empty_queue_cond), serial_(-1), is_finished_(false),
       is_packet_pending_(false), do_reorder_(-1), start_pts_(AV_NOPTS_VALUE),
       start_pts_timebase_(av_make_q(0, 0)), next_pts_(0),
-      next_pts_timebase_(av_make_q(0, 0)), p_decoder_thread_(nullptr) {
+      next_pts_timebase_(av_make_q(0, 0)), p_decoder_thread_(nullptr),
+      p_scheduler_(nullptr), priority_(DecoderScheduler::kHighestPriority),
+      lowres_(avctx->lowres), skip_loop_filter_(avctx->skip_loop_filter) {
   // Note, that pkt will need to be initialized for the case when decode_frame
   // is never run Sidenote: the move ref code will clean this initialization
   av_init_packet(&packet_);
@@ -26,8 +28,11 @@ int Decoder::Decode(AVFrame *frame) {
     AVPacket packet;
 
     if (p_packet_queue_->GetSerial() == serial_) {
+      DecoderScheduler::Slot slot(p_scheduler_, priority_,
+                                  p_codec_context_->thread_count,
+                                  [this] { return IsAbortRequested(); });
       do {
-        if (p_packet_queue_->IsAbortRequested())
+        if (IsAbortRequested())
           return -1;
 
         switch (p_codec_context_->codec_type) {
@@ -82,10 +87,18 @@ int Decoder::Decode(AVFrame *frame) {
 
     if (p_packet_queue_->IsFlushPacket(packet)) {
       avcodec_flush_buffers(p_codec_context_);
+      UpdateQuality();
       is_finished_ = 0;
       next_pts_ = start_pts_;
       next_pts_timebase_ = start_pts_timebase_;
     } else {
+      DecoderScheduler::Slot slot(p_scheduler_, priority_,
+                                  p_codec_context_->thread_count,
+                                  [this] { return IsAbortRequested(); });
+      if (IsAbortRequested()) {
+        av_packet_unref(&packet);
+        return -1;
+      }
       if (p_codec_context_->codec_type != AVMEDIA_TYPE_SUBTITLE &&
           avcodec_send_packet(p_codec_context_, &packet) == AVERROR(EAGAIN)) {
         av_log(p_codec_context_, AV_LOG_ERROR,
@@ -99,6 +112,58 @@ int Decoder::Decode(AVFrame *frame) {
   }
 }
 
+void Decoder::UpdateQuality() {
+  p_codec_context_->skip_loop_filter =
+      static_cast<AVDiscard>(skip_loop_filter_.load());
+  int lowres = lowres_;
+  if (lowres != p_codec_context_->lowres && Reopen(lowres) < 0) {
+    av_log(NULL, AV_LOG_WARNING, "Cannot decode with lowres %d\n", lowres);
+    lowres_ = p_codec_context_->lowres;
+  }
+}
+
+int Decoder::Reopen(int lowres) {
+  AVCodecParameters *p_parameters = avcodec_parameters_alloc();
+  AVCodecContext *p_context = avcodec_alloc_context3(p_codec_context_->codec);
+  AVDictionary *p_dict = nullptr;
+  int ret = AVERROR(ENOMEM);
+
+  if (!p_parameters || !p_context) {
+    goto out;
+  }
+  if ((ret = avcodec_parameters_from_context(p_parameters,
+                                             p_codec_context_)) < 0 ||
+      (ret = avcodec_parameters_to_context(p_context, p_parameters)) < 0) {
+    goto out;
+  }
+  // The size of the bitstream, since the size of the context is scaled down
+  // by the current lowres already
+  p_context->coded_width = p_codec_context_->coded_width;
+  p_context->coded_height = p_codec_context_->coded_height;
+  p_context->pkt_timebase = p_codec_context_->pkt_timebase;
+  p_context->flags2 = p_codec_context_->flags2;
+  p_context->thread_type = p_codec_context_->thread_type;
+  p_context->skip_loop_filter = p_codec_context_->skip_loop_filter;
+  p_context->lowres = lowres;
+  av_dict_set_int(&p_dict, "threads", p_codec_context_->thread_count, 0);
+  av_dict_set(&p_dict, "refcounted_frames", "1", 0);
+  if ((ret = avcodec_open2(p_context, p_codec_context_->codec, &p_dict)) < 0) {
+    goto out;
+  }
+  {
+    std::lock_guard<std::mutex> lock(codec_context_mutex_);
+    avcodec_free_context(&p_codec_context_);
+    p_codec_context_ = p_context;
+  }
+  p_context = nullptr;
+
+out:
+  avcodec_free_context(&p_context);
+  avcodec_parameters_free(&p_parameters);
+  av_dict_free(&p_dict);
+  return ret;
+}
+
 int Decoder::Start(const std::function<void()> &decoding) {
   p_packet_queue_->Start();
   p_decoder_thread_ = new std::thread([decoding] { decoding(); });
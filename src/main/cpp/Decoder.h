@@ -1,6 +1,9 @@
+#include "DecoderScheduler.h"
 #include "FrameQueue.h"
 #include "PacketQueue.h"
+#include <atomic>
 #include <condition_variable>
+#include <mutex>
 #include <thread>
 
 extern "C" {
@@ -27,12 +30,28 @@ public:
 
   inline int GetSerial() const { return serial_; }
   inline int64_t GetNumberOfIncorrectDtsValues() const {
+    std::lock_guard<std::mutex> lock(codec_context_mutex_);
     return p_codec_context_->pts_correction_num_faulty_dts;
   }
   inline int64_t GetNumberOfIncorrectPtsValues() const {
+    std::lock_guard<std::mutex> lock(codec_context_mutex_);
     return p_codec_context_->pts_correction_num_faulty_pts;
   }
 
+  // Decodes only while holding a slot of the scheduler per thread of the
+  // codec; null to decode unscheduled. Call before starting the decoder.
+  inline void SetScheduler(DecoderScheduler *p_scheduler) {
+    p_scheduler_ = p_scheduler;
+  }
+  inline void SetPriority(int priority) { priority_ = priority; }
+
+  // Decodes at 1 / 2^lowres of the image size and skips the loop filter as
+  // given from the next flush on, e.g. after a seek
+  inline void SetQuality(int lowres, AVDiscard skip_loop_filter) {
+    lowres_ = lowres;
+    skip_loop_filter_ = skip_loop_filter;
+  }
+
   inline bool IsFinished() const { return is_finished_; }
   inline void setFinished(bool finished) { is_finished_ = finished; }
 
@@ -40,6 +59,14 @@ public:
   void Stop(FrameQueue *frame_queue);
 
 private:
+  inline bool IsAbortRequested() const {
+    return p_packet_queue_->IsAbortRequested();
+  }
+  // Applies the quality at a flush
+  void UpdateQuality();
+  // Opens the codec again, since the lowres is only taken when opening
+  int Reopen(int lowres);
+
   AVPacket packet_;
   AVCodecContext *p_codec_context_;
   PacketQueue *p_packet_queue_;
@@ -53,6 +80,11 @@ private:
   int64_t next_pts_;
   AVRational next_pts_timebase_;
   std::thread *p_decoder_thread_;
+  DecoderScheduler *p_scheduler_;
+  std::atomic<int> priority_;
+  std::atomic<int> lowres_;
+  std::atomic<int> skip_loop_filter_;
+  mutable std::mutex codec_context_mutex_; // Guards reopening the codec
 };
 
 #endif DECODER_H_
@@ -0,0 +1,33 @@
+#ifndef DECODER_OPTIONS_H_
+#define DECODER_OPTIONS_H_
+
+// Options of the image decoder of a player; the defaults keep the defaults of
+// libavcodec, which decodes with one thread per core
+struct DecoderOptions {
+  // Number of decoding threads; 0 for one thread per core
+  int thread_count = 0;
+  // FF_THREAD_FRAME, FF_THREAD_SLICE, or both; 0 for any the codec supports
+  int thread_type = 0;
+  // Decodes at 1 / 2^lowres of the image size if the codec supports it
+  int lowres = 0;
+  // Skips the loop filter of all frames, which trades quality for speed
+  bool skip_loop_filter = false;
+  // Decodes at a lower resolution, or without the loop filter if the codec
+  // does not support lowres, while the display is at most half the image size
+  bool adaptive_quality = false;
+
+  // Number of times the display halves the frame in both dimensions; 0 if the
+  // quality is not adaptive or the display size is unknown
+  int GetQualityReduction(int frame_width, int frame_height, int display_width,
+                          int display_height) const {
+    int reduction = 0;
+    while (adaptive_quality && display_width > 0 && display_height > 0 &&
+           (frame_width >> (reduction + 1)) >= display_width &&
+           (frame_height >> (reduction + 1)) >= display_height) {
+      reduction++;
+    }
+    return reduction;
+  }
+};
+
+#endif DECODER_OPTIONS_H_
@@ -0,0 +1,88 @@
+#include "DecoderScheduler.h"
+
+#include <algorithm>
+#include <thread>
+
+namespace {
+
+// A waiting decoder gains one priority per interval, so that the decoders of
+// players in the background decode now and then
+const std::chrono::milliseconds kAgingInterval(100);
+
+// Waiting decoders check for aborts and their age in this interval
+const std::chrono::milliseconds kWaitInterval(10);
+
+} // namespace
+
+const int DecoderScheduler::kHighestPriority = 0;
+
+DecoderScheduler *DecoderScheduler::GetInstance() {
+  static DecoderScheduler scheduler(std::thread::hardware_concurrency());
+  return &scheduler;
+}
+
+DecoderScheduler::DecoderScheduler(int num_slots)
+    : num_slots_(num_slots > 0 ? num_slots : 1), num_used_slots_(0),
+      next_ticket_(0) {}
+
+DecoderScheduler::~DecoderScheduler() {}
+
+int DecoderScheduler::Acquire(int priority, int num_threads,
+                              const std::function<bool()> &is_aborted) {
+  std::unique_lock<std::mutex> lock(mutex_);
+  uint64_t ticket = next_ticket_++;
+  waiting_[ticket] = {priority, std::chrono::steady_clock::now()};
+  int num_slots = 0;
+  while (!is_aborted()) {
+    // The number of slots might change while waiting
+    int num_needed_slots = std::min(std::max(num_threads, 1), num_slots_);
+    if (num_used_slots_ + num_needed_slots <= num_slots_ && IsNext(ticket)) {
+      num_slots = num_needed_slots;
+      break;
+    }
+    slot_released_.wait_for(lock, kWaitInterval);
+  }
+  waiting_.erase(ticket);
+  num_used_slots_ += num_slots;
+  // The next waiter might get slots too, or be next after this one aborted
+  slot_released_.notify_all();
+  return num_slots;
+}
+
+void DecoderScheduler::Release(int num_slots) {
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+    num_used_slots_ -= num_slots;
+  }
+  slot_released_.notify_all();
+}
+
+void DecoderScheduler::SetNumSlots(int num_slots) {
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+    num_slots_ = num_slots > 0 ? num_slots : 1;
+  }
+  slot_released_.notify_all();
+}
+
+int DecoderScheduler::GetNumSlots() const {
+  std::lock_guard<std::mutex> lock(mutex_);
+  return num_slots_;
+}
+
+bool DecoderScheduler::IsNext(uint64_t ticket) const {
+  auto now = std::chrono::steady_clock::now();
+  auto aged_priority = [&now](const Waiter &waiter) {
+    return waiter.priority - (int)((now - waiter.since) / kAgingInterval);
+  };
+  int priority = aged_priority(waiting_.at(ticket));
+  // Waiters with the same aged priority take turns in the order they asked
+  for (const auto &waiter : waiting_) {
+    int other_priority = aged_priority(waiter.second);
+    if (other_priority < priority ||
+        (other_priority == priority && waiter.first < ticket)) {
+      return false;
+    }
+  }
+  return true;
+}
@@ -0,0 +1,94 @@
+#include <chrono>
+#include <condition_variable>
+#include <cstdint>
+#include <functional>
+#include <map>
+#include <mutex>
+
+#ifndef DECODER_SCHEDULER_H_
+#define DECODER_SCHEDULER_H_
+
+// Schedules the image decoders of all players in the process
+//
+// A decoder holds one slot per thread of its codec while it decodes, i.e.
+// while it sends a packet to the codec or receives frames from it, and
+// releases the slots while it waits for packets. This way the threads of the
+// codecs that decode at once stay within the number of slots. That only holds
+// for slice threads, which run while the codec is called; frame threads go on
+// decoding after a packet was sent, so codecs with frame threads must not be
+// scheduled. With more
+// decoders than slots the waiting decoder with the highest priority, i.e. the
+// lowest value, gets the next free slots; decoders with the same priority get
+// slots in the order they asked. Waiting decoders gain priority as they age,
+// so that decoders with a low priority are slowed down but never starved.
+// This way the players that are in front get the processor first instead of
+// all players falling behind their clocks once the processor is
+// oversubscribed.
+class DecoderScheduler {
+public:
+  // Priority of the player that has the focus
+  static const int kHighestPriority;
+
+  // Holds the slots for the life time of the object unless the wait for them
+  // was aborted; no-op without scheduler
+  class Slot {
+  public:
+    Slot(DecoderScheduler *p_scheduler, int priority, int num_threads,
+         const std::function<bool()> &is_aborted)
+        : p_scheduler_(p_scheduler), num_slots_(0) {
+      if (p_scheduler_) {
+        num_slots_ = p_scheduler_->Acquire(priority, num_threads, is_aborted);
+      }
+    }
+    ~Slot() {
+      if (num_slots_ > 0) {
+        p_scheduler_->Release(num_slots_);
+      }
+    }
+
+  private:
+    DecoderScheduler *p_scheduler_;
+    int num_slots_;
+    Slot(const Slot &) = delete;
+    Slot &operator=(const Slot &) = delete;
+  };
+
+  // Gets the scheduler of the process, which has one slot per core
+  static DecoderScheduler *GetInstance();
+
+  DecoderScheduler(int num_slots);
+
+  virtual ~DecoderScheduler();
+
+  // Blocks until a slot per thread is free and no decoder with a higher
+  // priority waits, at most for all slots. Returns the number of slots taken,
+  // or 0 if is_aborted returned true while waiting.
+  int Acquire(int priority, int num_threads,
+              const std::function<bool()> &is_aborted);
+
+  void Release(int num_slots);
+
+  // Sets the number of slots; at least one
+  void SetNumSlots(int num_slots);
+
+  int GetNumSlots() const;
+
+private:
+  struct Waiter {
+    int priority;
+    std::chrono::steady_clock::time_point since;
+  };
+
+  mutable std::mutex mutex_;
+  std::condition_variable slot_released_;
+  int num_slots_;
+  int num_used_slots_;
+  // Waiting decoders by the order they asked
+  std::map<uint64_t, Waiter> waiting_;
+  uint64_t next_ticket_;
+
+  // Checks if the waiter with the ticket has the highest priority with its age
+  bool IsNext(uint64_t ticket) const;
+};
+
+#endif DECODER_SCHEDULER_H_
@@ -47,10 +47,9 @@ void FfmpegAvPlayback::TogglePauseAndStopStep(bool mute) {
 
 int FfmpegAvPlayback::SetSpeed(double speed) {
   int err = ERROR_NONE;
-  if (speed < 0) {
-    err = ERROR_FFMPEG_FILTER_NOT_FOUND; // no filter available for backward
-                                         // playback
-  } else if (speed < std::numeric_limits<double>::epsilon()) {
+  if (speed < 0 && !p_video_state_->HasImageStream()) {
+    err = ERROR_FFMPEG_FILTER_NOT_FOUND; // only images are played backward
+  } else if (fabs(speed) < std::numeric_limits<double>::epsilon()) {
     Pause();
   } else {
     err = p_video_state_->SetSpeed(speed);
@@ -17,7 +17,8 @@ public:
   virtual void Stop();
   virtual void Pause();
 
-  inline virtual void Seek(double dSeekTime) {
+  // Returns false if the seek is skipped since the time is displayed already
+  inline virtual bool Seek(double dSeekTime) {
 
     double pos = GetTime();
 
@@ -35,8 +36,8 @@ public:
 
     double incr = dSeekTime - pos;
 
-    p_video_state_->Seek((int64_t)(dSeekTime * AV_TIME_BASE),
-                         (int64_t)(incr * AV_TIME_BASE));
+    return p_video_state_->Seek((int64_t)(dSeekTime * AV_TIME_BASE),
+                                (int64_t)(incr * AV_TIME_BASE));
   }
 
   inline virtual double GetDuration() const {
@@ -63,6 +64,38 @@ public:
 
   inline int64_t GetSeekTime() const { return p_video_state_->GetSeekTime(); }
 
+  inline void SetKeyFrameIndexCacheDirectory(const std::string &cache_dir) {
+    p_video_state_->SetKeyFrameIndexCacheDirectory(cache_dir);
+  }
+
+  inline void SetDecoderOptions(const DecoderOptions &options) {
+    p_video_state_->SetDecoderOptions(options);
+  }
+
+  inline void SetDecoderPriority(int priority) {
+    p_video_state_->SetDecoderPriority(priority);
+  }
+
+  inline int SetQueueOptions(const QueueOptions &options) {
+    return p_video_state_->SetQueueOptions(options);
+  }
+
+  inline void SetMaxPacketBytes(int64_t max_packet_bytes) {
+    p_video_state_->SetMaxPacketBytes(max_packet_bytes);
+  }
+
+  inline void GetKeyFrameTimes(std::vector<double> *p_times) const {
+    p_video_state_->GetKeyFrameTimes(p_times);
+  }
+
+  inline void SetScrubbing(bool is_scrubbing) {
+    p_video_state_->SetScrubbing(is_scrubbing);
+  }
+
+  inline void SetFrameCacheCapacity(int64_t capacity) {
+    p_video_state_->SetFrameCacheCapacity(capacity);
+  }
+
   inline void StepToNextFrame() {
     // if the stream is paused/stopped unpause it, then step
     if (IsPaused() || IsStopped() || IsReady()) {
@@ -74,7 +107,8 @@ public:
     p_video_state_->SetStepping(true);
   }
 
-  inline void StepToPreviousFrame() {
+  // Returns false if no previous frame is displayed
+  inline bool StepToPreviousFrame() {
 
     if (IsPlaying()) {
       SetPaused(true, false);
@@ -89,9 +123,10 @@ public:
       }
 
       double incr = dSeekTime - pos;
-      p_video_state_->Seek((int64_t)(dSeekTime * AV_TIME_BASE),
-                           (int64_t)(incr * AV_TIME_BASE));
+      return p_video_state_->Seek((int64_t)(dSeekTime * AV_TIME_BASE),
+                                  (int64_t)(incr * AV_TIME_BASE));
     }
+    return false;
   }
 
   inline void SetPlayerStateCallbackFunction(
@@ -104,6 +139,11 @@ public:
     set_pending_player_state_callback = func;
   }
 
+  inline void
+  SetPtsCallbackFunction(const std::function<void(double, int)> &func) {
+    p_video_state_->SetPtsCallback(func);
+  }
+
 protected:
   // The video state used for this playback
   VideoState *p_video_state_;
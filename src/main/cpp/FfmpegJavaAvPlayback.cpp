@@ -2,12 +2,19 @@
 #include "FfmpegErrorUtils.h"
 #include "MediaPlayerErrors.h"
 
+#include <limits>
+
+double FfmpegJavaAvPlayback::kRefreshRate = 0.01;
+double FfmpegJavaAvPlayback::kMaxRefreshRate = 0.1;
+
 FfmpegJavaAvPlayback::FfmpegJavaAvPlayback(const AudioFormat *pAudioFormat,
                                            const PixelFormat *pPixelFormat,
                                            const int audioBufferSizeInBy)
     : FfmpegAvPlayback(), kPtrAudioFormat(pAudioFormat),
       kPtrPixelFormat(pPixelFormat), kAudioBufferSizeInBy(audioBufferSizeInBy),
-      p_img_convert_ctx_(nullptr), remaining_time_to_display_(0) {}
+      image_converter_(pPixelFormat->pixel_format_),
+      remaining_time_to_display_(0), image_pts_(NAN), image_output_width_(0),
+      image_output_height_(0) {}
 
 FfmpegJavaAvPlayback::~FfmpegJavaAvPlayback() {}
 
@@ -56,7 +63,7 @@ int FfmpegJavaAvPlayback::AudioOpen(int64_t wanted_channel_layout,
 
 void FfmpegJavaAvPlayback::Destroy() {
 
-  sws_freeContext(p_img_convert_ctx_);
+  image_converter_.Release();
 
   delete p_video_state_;
   avformat_network_deinit();
@@ -84,6 +91,21 @@ int FfmpegJavaAvPlayback::GetImageHeight() const {
   return p_video_state_->GetFrameHeight();
 }
 
+void FfmpegJavaAvPlayback::SetImageOutputSize(int width, int height) {
+  image_output_width_ = width;
+  image_output_height_ = height;
+  // Convert the current frame again at the new size, even while paused
+  force_refresh_ = true;
+}
+
+void FfmpegJavaAvPlayback::SetDisplaySize(int width, int height) {
+  p_video_state_->SetDisplaySize(width, height);
+}
+
+int FfmpegJavaAvPlayback::GetImageQualityReduction() const {
+  return p_video_state_->GetQualityReduction();
+}
+
 bool FfmpegJavaAvPlayback::HasImageData() const {
   return p_video_state_->HasImageStream();
 }
@@ -105,6 +127,7 @@ bool FfmpegJavaAvPlayback::DoDisplay(double *remaining_time) {
   retry:
     if (frame_queue->GetNumToDisplay() == 0) {
       // nothing to do, no picture to display in the queue
+      *remaining_time = FFMIN(kRefreshRate, *remaining_time);
     } else {
       double last_duration, duration, delay;
       Frame *vp = nullptr;
@@ -171,6 +194,7 @@ bool FfmpegJavaAvPlayback::DoDisplay(double *remaining_time) {
 
       frame_queue->Next();
       force_refresh_ = true;
+      *remaining_time = FFMIN(kRefreshRate, *remaining_time);
       if (p_video_state_->IsStepping() && !IsPaused() && !IsStopped()) {
         TogglePauseAndStopStep();
       }
@@ -249,9 +273,11 @@ bool FfmpegJavaAvPlayback::DoDisplay(double *remaining_time) {
   return display;
 }
 
-void FfmpegJavaAvPlayback::UpdateImageBuffer(uint8_t *p_image_data,
-                                             const long len) {
+int FfmpegJavaAvPlayback::UpdateImageBuffer(uint8_t *p_image_data,
+                                            const long len, bool *p_new_image) {
+  remaining_time_to_display_ = kMaxRefreshRate;
   bool doUpdate = DoDisplay(&remaining_time_to_display_);
+  *p_new_image = false;
   FrameQueue *queue = nullptr;
   p_video_state_->GetImageFrameQueue(&queue);
   if (doUpdate) {
@@ -259,27 +285,34 @@ void FfmpegJavaAvPlayback::UpdateImageBuffer(uint8_t *p_image_data,
     queue->PeekLast(&vp);
     av_log(NULL, AV_LOG_DEBUG, "Update Image Buffer - Number %d - PTS %2.7f\n",
            vp->frame_pos_, vp->p_frame_->pts);
-    p_img_convert_ctx_ = sws_getCachedContext(
-        p_img_convert_ctx_, vp->p_frame_->width, vp->p_frame_->height,
-        static_cast<AVPixelFormat>(vp->p_frame_->format), vp->p_frame_->width,
-        vp->p_frame_->height, kPtrPixelFormat->pixel_format_, SWS_BICUBIC, NULL,
-        NULL, NULL);
-    if (p_img_convert_ctx_ != NULL) {
-      // TODO(fraudies): Add switch case statement for the different pixel
-      // formats Left the pixels allocation/free here to support resizing
-      // through sws_scale natively
-      uint8_t *pixels[4];
-      int pitch[4];
-      av_image_alloc(pixels, pitch, vp->width_, vp->height_, AV_PIX_FMT_RGB24,
-                     1);
-      sws_scale(p_img_convert_ctx_, (const uint8_t *const *)vp->p_frame_->data,
-                vp->p_frame_->linesize, 0, vp->p_frame_->height, pixels, pitch);
-      // Maybe check that we have 3 components
-      memcpy(p_image_data, pixels[0],
-             vp->p_frame_->width * vp->p_frame_->height * 3 * sizeof(uint8_t));
-      av_freep(&pixels[0]);
+    int width = image_output_width_;
+    int height = image_output_height_;
+    // The image buffer holds images of the stream size, while frames decoded
+    // with adaptive quality might be smaller
+    if (width <= 0 || height <= 0) {
+      width = GetImageWidth();
+      height = GetImageHeight();
+    }
+    int err = image_converter_.Convert(vp->p_frame_, width, height,
+                                       p_image_data, len);
+    if (err) {
+      return err;
     }
+    image_pts_ = vp->pts_;
+    *p_new_image = true;
+  }
+  return ERROR_NONE;
+}
+
+double FfmpegJavaAvPlayback::GetImagePts() const { return image_pts_; }
+
+double FfmpegJavaAvPlayback::GetRemainingTimeToDisplay() const {
+  // Nothing changes on screen until the player is played, stepped or seeked
+  if (p_video_state_->IsPaused() && !p_video_state_->IsStepping() &&
+      !p_video_state_->IsSeekRequested() && !force_refresh_) {
+    return std::numeric_limits<double>::infinity();
   }
+  return remaining_time_to_display_;
 }
 
 void FfmpegJavaAvPlayback::UpdateAudioBuffer(uint8_t *p_audio_data,
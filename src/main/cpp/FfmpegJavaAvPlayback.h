@@ -2,6 +2,7 @@
 #define FFMPEGJAVAAVPLAYBACK_H_
 
 #include "FfmpegAVPlayback.h"
+#include "ImageConverter.h"
 #include "VideoState.h"
 
 class FfmpegJavaAvPlayback : public FfmpegAvPlayback {
@@ -10,9 +11,22 @@ private:
   const PixelFormat *kPtrPixelFormat;
   const int kAudioBufferSizeInBy;
 
-  struct SwsContext *p_img_convert_ctx_;
+  ImageConverter image_converter_;
   double remaining_time_to_display_;
 
+  // Presentation time of the frame last written into the image buffer
+  double image_pts_;
+
+  // Size of the images handed to java; 0 x 0 for the size of the frames
+  std::atomic<int> image_output_width_;
+  std::atomic<int> image_output_height_;
+
+  // Polling period while frames are pending but not yet decoded or displayed
+  static double kRefreshRate;
+
+  // Upper bound for the time until the next frame is due
+  static double kMaxRefreshRate;
+
 public:
   FfmpegJavaAvPlayback(const AudioFormat *kPtrAudioFormat,
                        const PixelFormat *kPtrPixelFormat,
@@ -39,12 +53,33 @@ public:
   int GetImageWidth() const;
   int GetImageHeight() const;
 
+  // Scale the images natively to width x height before handing them to java;
+  // 0 x 0 restores the size of the frames
+  void SetImageOutputSize(int width, int height);
+
+  // Sets the size the images are displayed at, whether they are scaled
+  // natively or in java; 0 x 0 if unknown
+  void SetDisplaySize(int width, int height);
+
+  // Number of steps the decoding quality is reduced for the display size
+  int GetImageQualityReduction() const;
+
   bool HasImageData() const;
   bool HasAudioData() const;
 
   bool DoDisplay(double *p_remaining_time);
 
-  void UpdateImageBuffer(uint8_t *p_image_data, const long len);
+  // Time in sec until the next frame is due, as computed by the last image
+  // update; infinite if the playback is paused and no frame is pending
+  double GetRemainingTimeToDisplay() const;
+
+  // Presentation time in sec of the frame last written by UpdateImageBuffer;
+  // NAN until the first frame is written
+  double GetImagePts() const;
+
+  // Sets p_new_image to true if a new frame was written into p_image_data
+  int UpdateImageBuffer(uint8_t *p_image_data, const long len,
+                        bool *p_new_image);
   void UpdateAudioBuffer(uint8_t *p_audio_data, const long len);
 
   void GetAudioFormat(AudioFormat *p_audio_format);
@@ -21,6 +21,16 @@ uint32_t FfmpegJavaAvPlaybackPipline::Init(const char *input_file) {
   int err = p_java_playback_->Init(input_file, file_iformat);
   if (err) {
     delete p_java_playback_;
+    p_java_playback_ = nullptr;
+    return err;
+  }
+  p_java_playback_->SetKeyFrameIndexCacheDirectory(
+      p_options_->GetKeyFrameIndexCacheDirectory());
+  p_java_playback_->SetDecoderOptions(p_options_->GetDecoderOptions());
+  err = p_java_playback_->SetQueueOptions(p_options_->GetQueueOptions());
+  if (err) {
+    delete p_java_playback_;
+    p_java_playback_ = nullptr;
     return err;
   }
 
@@ -46,6 +56,8 @@ uint32_t FfmpegJavaAvPlaybackPipline::Init(const char *input_file) {
   p_java_playback_->SetUpdatePlayerStateCallbackFunction(
       PlayerState::Finished,
       [this] { this->UpdatePlayerState(PlayerState::Finished); });
+  p_java_playback_->SetPtsCallbackFunction(
+      [this](double pts, int serial) { this->UpdateTime(pts, serial); });
 
   return p_java_playback_->StartStream();
 }
@@ -110,7 +122,9 @@ uint32_t FfmpegJavaAvPlaybackPipline::StepBackward() {
     return ERROR_PLAYBACK_NULL;
   }
 
-  p_java_playback_->StepToPreviousFrame();
+  if (!p_java_playback_->StepToPreviousFrame()) {
+    SendFrameEventForDisplayedFrame();
+  }
 
   return ERROR_NONE;
 }
@@ -124,7 +138,50 @@ uint32_t FfmpegJavaAvPlaybackPipline::Seek(double time) {
   if (p_java_playback_ == nullptr) {
     return ERROR_PLAYBACK_NULL;
   }
-  p_java_playback_->Seek(time);
+  if (!p_java_playback_->Seek(time)) {
+    SendFrameEventForDisplayedFrame();
+  }
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::SetScrubbing(bool is_scrubbing) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetScrubbing(is_scrubbing);
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::SetFrameCacheCapacity(int64_t capacity) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetFrameCacheCapacity(capacity);
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::SetDecoderPriority(int priority) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetDecoderPriority(priority);
+
+  return ERROR_NONE;
+}
+
+uint32_t
+FfmpegJavaAvPlaybackPipline::SetMaxPacketBytes(int64_t max_packet_bytes) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetMaxPacketBytes(max_packet_bytes);
 
   return ERROR_NONE;
 }
@@ -149,6 +206,17 @@ uint32_t FfmpegJavaAvPlaybackPipline::GetStreamTime(double *p_stream_time) {
   return ERROR_NONE;
 }
 
+uint32_t
+FfmpegJavaAvPlaybackPipline::GetKeyFrameTimes(std::vector<double> *p_times) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->GetKeyFrameTimes(p_times);
+
+  return ERROR_NONE;
+}
+
 uint32_t FfmpegJavaAvPlaybackPipline::GetFps(double *p_fps) {
   if (p_java_playback_ == nullptr) {
     return ERROR_PLAYBACK_NULL;
@@ -308,12 +376,64 @@ FfmpegJavaAvPlaybackPipline::GetPixelFormat(PixelFormat *p_pixel_format) const {
 }
 
 uint32_t FfmpegJavaAvPlaybackPipline::UpdateImageBuffer(uint8_t *p_image_data,
-                                                        const long len) {
+                                                        const long len,
+                                                        bool *p_new_image) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  return p_java_playback_->UpdateImageBuffer(p_image_data, len, p_new_image);
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::GetRemainingTimeToDisplay(
+    double *p_remaining_time) const {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  *p_remaining_time = p_java_playback_->GetRemainingTimeToDisplay();
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::SetImageOutputSize(int width,
+                                                         int height) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetImageOutputSize(width, height);
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::SetDisplaySize(int width, int height) {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_java_playback_->SetDisplaySize(width, height);
+
+  return ERROR_NONE;
+}
+
+uint32_t
+FfmpegJavaAvPlaybackPipline::GetImageQualityReduction(int *p_reduction) const {
+  if (p_java_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  *p_reduction = p_java_playback_->GetImageQualityReduction();
+
+  return ERROR_NONE;
+}
+
+uint32_t FfmpegJavaAvPlaybackPipline::GetImagePts(double *p_pts) const {
   if (p_java_playback_ == nullptr) {
     return ERROR_PLAYBACK_NULL;
   }
 
-  p_java_playback_->UpdateImageBuffer(p_image_data, len);
+  *p_pts = p_java_playback_->GetImagePts();
 
   return ERROR_NONE;
 }
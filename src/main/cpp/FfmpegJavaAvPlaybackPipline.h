@@ -21,10 +21,15 @@ private:
   virtual uint32_t Finish();
 
   virtual uint32_t Seek(double seek_time);
+  virtual uint32_t SetScrubbing(bool is_scrubbing);
+  virtual uint32_t SetFrameCacheCapacity(int64_t capacity);
+  virtual uint32_t SetDecoderPriority(int priority);
+  virtual uint32_t SetMaxPacketBytes(int64_t max_packet_bytes);
 
   virtual uint32_t GetDuration(double *p_duration);
   virtual uint32_t GetStreamTime(double *p_stream_time);
   virtual uint32_t GetFps(double *p_fps);
+  virtual uint32_t GetKeyFrameTimes(std::vector<double> *p_times);
 
   virtual uint32_t SetRate(float rate);
   virtual uint32_t GetRate(float *p_rate);
@@ -45,7 +50,13 @@ private:
   virtual uint32_t GetImageHeight(int *p_height) const;
   virtual uint32_t GetAudioFormat(AudioFormat *p_audio_params) const;
   virtual uint32_t GetPixelFormat(PixelFormat *p_pixel_format) const;
-  virtual uint32_t UpdateImageBuffer(uint8_t *p_image_data, const long len);
+  virtual uint32_t UpdateImageBuffer(uint8_t *p_image_data, const long len,
+                                     bool *p_new_image);
+  virtual uint32_t GetRemainingTimeToDisplay(double *p_remaining_time) const;
+  virtual uint32_t SetImageOutputSize(int width, int height);
+  virtual uint32_t SetDisplaySize(int width, int height);
+  virtual uint32_t GetImageQualityReduction(int *p_reduction) const;
+  virtual uint32_t GetImagePts(double *p_pts) const;
   virtual uint32_t UpdateAudioBuffer(uint8_t *p_audio_data, const long len);
 
   FfmpegJavaAvPlayback *p_java_playback_;
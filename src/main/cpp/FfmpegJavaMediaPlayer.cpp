@@ -1,6 +1,7 @@
 #include "org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer.h"
 
 #include "FfmpegJavaAvPlaybackPipline.h"
+#include "DecoderScheduler.h"
 #include "FfmpegJniUtils.h"
 #include "JavaPlayerEventDispatcher.h"
 #include "JniUtils.h"
@@ -18,12 +19,17 @@ extern "C" {
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegInitPlayer
  * Signature:
- * ([JLjava/lang/String;Ljavax/sound/sampled/AudioFormat;Ljava/awt/color/ColorSpace;I)I
+ * ([JLjava/lang/String;Ljavax/sound/sampled/AudioFormat;Ljava/awt/color/ColorSpace;IILjava/lang/String;IIIZZJIIID)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegInitPlayer(
     JNIEnv *env, jobject obj, jlongArray jlMediaHandle, jstring sourcePath,
-    jobject jAudioFormat, jobject jColorSpace, jint jAudioBufferSizeInBy) {
+    jobject jAudioFormat, jobject jColorSpace, jint jImageType,
+    jint jAudioBufferSizeInBy, jstring jKeyFrameIndexCacheDir,
+    jint jDecoderThreadCount, jint jDecoderThreadType, jint jDecoderLowres,
+    jboolean jSkipLoopFilter, jboolean jAdaptiveQuality, jlong jMaxPacketBytes,
+    jint jImageFrameQueueSize, jint jAudioFrameQueueSize, jint jMinPackets,
+    jdouble jMinPacketsDuration) {
   uint32_t uRetCode;
   AudioFormat audioFormat;
   uRetCode = GetAudioFormat(env, jAudioFormat, &audioFormat);
@@ -37,11 +43,43 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegInitPlayer(
     return uRetCode;
   }
 
+  // Images of type int rgb hold one pixel per int in native byte order
+  if (TYPE_INT_RGB == jImageType &&
+      AV_PIX_FMT_RGB24 == pixelFormat.pixel_format_) {
+    pixelFormat.pixel_format_ = AV_PIX_FMT_0RGB32;
+  }
+
+  // Images of type int argb pre hold one opaque pixel per int in native byte
+  // order; the alpha is set to opaque when converting frames without alpha
+  if (TYPE_INT_ARGB_PRE == jImageType &&
+      AV_PIX_FMT_RGB24 == pixelFormat.pixel_format_) {
+    pixelFormat.pixel_format_ = AV_PIX_FMT_RGB32;
+  }
+
   CPipelineOptions *pOptions = new (nothrow)
       CPipelineOptions(audioFormat, pixelFormat, jAudioBufferSizeInBy);
   if (NULL == pOptions) {
     return ERROR_SYSTEM_ENOMEM;
   }
+  if (NULL != jKeyFrameIndexCacheDir) {
+    const char *cacheDir = env->GetStringUTFChars(jKeyFrameIndexCacheDir, 0);
+    pOptions->SetKeyFrameIndexCacheDirectory(cacheDir);
+    env->ReleaseStringUTFChars(jKeyFrameIndexCacheDir, cacheDir);
+  }
+  DecoderOptions decoderOptions;
+  decoderOptions.thread_count = jDecoderThreadCount;
+  decoderOptions.thread_type = jDecoderThreadType;
+  decoderOptions.lowres = jDecoderLowres;
+  decoderOptions.skip_loop_filter = JNI_TRUE == jSkipLoopFilter;
+  decoderOptions.adaptive_quality = JNI_TRUE == jAdaptiveQuality;
+  pOptions->SetDecoderOptions(decoderOptions);
+  QueueOptions queueOptions;
+  queueOptions.max_packet_bytes = jMaxPacketBytes;
+  queueOptions.image_frame_queue_size = jImageFrameQueueSize;
+  queueOptions.audio_frame_queue_size = jAudioFrameQueueSize;
+  queueOptions.min_packets = jMinPackets;
+  queueOptions.min_packets_duration = jMinPacketsDuration;
+  pOptions->SetQueueOptions(queueOptions);
 
   CPipelineData *pPipelineData =
       new (nothrow) FfmpegJavaAvPlaybackPipline(pOptions);
@@ -382,6 +420,108 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetFps(
   return ERROR_NONE;
 }
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetKeyFrameTimes
+ * Signature: (J[[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetKeyFrameTimes(
+    JNIEnv *env, jobject obj, jlong ref_media, jobjectArray jTimes) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  std::vector<double> times;
+  uint32_t uRetCode = pPipeline->GetKeyFrameTimes(&times);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  jdoubleArray jdTimes = env->NewDoubleArray((jsize)times.size());
+  if (NULL == jdTimes)
+    return ERROR_SYSTEM_ENOMEM;
+  env->SetDoubleArrayRegion(jdTimes, 0, (jsize)times.size(), times.data());
+  env->SetObjectArrayElement(jTimes, 0, jdTimes);
+  env->DeleteLocalRef(jdTimes);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetStatus
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetStatus(
+    JNIEnv *env, jobject obj, jlong ref_media, jdoubleArray jdStatus) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  PlayerStatus status;
+  uint32_t uRetCode = pPipeline->GetStatus(&status);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  double dStatus[PlayerStatus::kNumFields];
+  status.CopyTo(dStatus);
+  env->SetDoubleArrayRegion(jdStatus, 0, PlayerStatus::kNumFields, dStatus);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetTimeUpdateInterval
+ * Signature: (JD)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetTimeUpdateInterval(
+    JNIEnv *env, jobject obj, jlong ref_media, jdouble interval) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  pPipeline->SetTimeUpdateInterval(interval);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegRequestFrameEvent
+ * Signature: (JIZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegRequestFrameEvent(
+    JNIEnv *env, jobject obj, jlong ref_media, jint request_id,
+    jboolean after_seek) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  pPipeline->RequestFrameEvent(request_id, JNI_TRUE == after_seek);
+
+  return ERROR_NONE;
+}
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegGetDuration
@@ -430,6 +570,92 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSeek(
   return iRet;
 }
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetScrubbing
+ * Signature: (JZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetScrubbing(
+    JNIEnv *env, jobject obj, jlong ref_media, jboolean scrubbing) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetScrubbing(JNI_TRUE == scrubbing);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetFrameCacheCapacity
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetFrameCacheCapacity(
+    JNIEnv *env, jobject obj, jlong ref_media, jlong capacity) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetFrameCacheCapacity((int64_t)capacity);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetDecoderPriority
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetDecoderPriority(
+    JNIEnv *env, jobject obj, jlong ref_media, jint priority, jint num_slots) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  // The slots are shared by the players of the process
+  DecoderScheduler::GetInstance()->SetNumSlots(num_slots);
+  jint iRet = (jint)pPipeline->SetDecoderPriority(priority);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetMaxPacketBytes
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetMaxPacketBytes(
+    JNIEnv *env, jobject obj, jlong ref_media, jlong max_packet_bytes) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetMaxPacketBytes((int64_t)max_packet_bytes);
+
+  return iRet;
+}
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegHasAudioData
@@ -603,11 +829,12 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetColorSpace(
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegUpdateImageData
- * Signature: (J[B)I
+ * Signature: (J[B[Z)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegUpdateImageData(
-    JNIEnv *env, jobject obj, jlong ref_media, jbyteArray data) {
+    JNIEnv *env, jobject obj, jlong ref_media, jbyteArray data,
+    jbooleanArray jrbNewImage) {
   CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
   if (NULL == pMedia) {
     return ERROR_MEDIA_NULL;
@@ -617,11 +844,170 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegUpdateImageData(
     return ERROR_PIPELINE_NULL;
   }
 
+  bool bNewImage = false;
   jbyte *pData = env->GetByteArrayElements(data, 0);
   jlong len = env->GetArrayLength(data);
-  uint32_t uErrCode = pPipeline->UpdateImageBuffer((uint8_t *)pData, len);
-  env->ReleaseByteArrayElements(data, pData, 0);
-  return uErrCode;
+  uint32_t uErrCode =
+      pPipeline->UpdateImageBuffer((uint8_t *)pData, len, &bNewImage);
+  // Only copy back into the java array when the frame changed
+  env->ReleaseByteArrayElements(data, pData, bNewImage ? 0 : JNI_ABORT);
+  if (ERROR_NONE != uErrCode) {
+    return uErrCode;
+  }
+  jboolean jbNewImage = (jboolean)bNewImage;
+  env->SetBooleanArrayRegion(jrbNewImage, 0, 1, &jbNewImage);
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegUpdateImageBuffer
+ * Signature: (JLjava/nio/ByteBuffer;[Z)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegUpdateImageBuffer(
+    JNIEnv *env, jobject obj, jlong ref_media, jobject buffer,
+    jbooleanArray jrbNewImage) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia) {
+    return ERROR_MEDIA_NULL;
+  }
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline) {
+    return ERROR_PIPELINE_NULL;
+  }
+
+  // The direct buffer's memory is used as is; nothing is copied back and forth
+  void *pData = env->GetDirectBufferAddress(buffer);
+  if (NULL == pData) {
+    return ERROR_FUNCTION_PARAM_NULL;
+  }
+  jlong len = env->GetDirectBufferCapacity(buffer);
+  bool bNewImage = false;
+  uint32_t uErrCode =
+      pPipeline->UpdateImageBuffer((uint8_t *)pData, len, &bNewImage);
+  if (ERROR_NONE != uErrCode) {
+    return uErrCode;
+  }
+  jboolean jbNewImage = (jboolean)bNewImage;
+  env->SetBooleanArrayRegion(jrbNewImage, 0, 1, &jbNewImage);
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetRemainingTimeToDisplay
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetRemainingTimeToDisplay(
+    JNIEnv *env, jobject obj, jlong ref_media, jdoubleArray jdRemainingTime) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  double dRemainingTime;
+  uint32_t uRetCode = pPipeline->GetRemainingTimeToDisplay(&dRemainingTime);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  env->SetDoubleArrayRegion(jdRemainingTime, 0, 1, &dRemainingTime);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetImagePresentationTime
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetImagePresentationTime(
+    JNIEnv *env, jobject obj, jlong ref_media, jdoubleArray jdPts) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  double dPts;
+  uint32_t uRetCode = pPipeline->GetImagePts(&dPts);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  env->SetDoubleArrayRegion(jdPts, 0, 1, &dPts);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetImageOutputSize
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetImageOutputSize(
+    JNIEnv *env, jobject obj, jlong ref_media, jint width, jint height) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  return pPipeline->SetImageOutputSize(width, height);
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetDisplaySize
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetDisplaySize(
+    JNIEnv *env, jobject obj, jlong ref_media, jint width, jint height) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  return pPipeline->SetDisplaySize(width, height);
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetImageQualityReduction
+ * Signature: (J[I)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetImageQualityReduction(
+    JNIEnv *env, jobject obj, jlong ref_media, jintArray jriReduction) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipelineData *pPipeline = (CPipelineData *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  int iReduction;
+  uint32_t uErrCode = pPipeline->GetImageQualityReduction(&iReduction);
+  if (ERROR_NONE != uErrCode)
+    return uErrCode;
+  jint jiReduction = (jint)iReduction;
+  env->SetIntArrayRegion(jriReduction, 0, 1, &jiReduction);
+
+  return ERROR_NONE;
 }
 
 /*
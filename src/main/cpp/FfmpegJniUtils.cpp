@@ -104,6 +104,8 @@ uint32_t SetJPixelFormat(JNIEnv *env, jobject j_color_space,
   // TODO(fraudies): Add support for more pixel formats
   switch (pixelFormat.pixel_format_) {
   case AV_PIX_FMT_RGB24:
+  case AV_PIX_FMT_0RGB32:
+  case AV_PIX_FMT_RGB32:
     type = TYPE_RGB;
     break;
   }
@@ -7,6 +7,11 @@
 // This mapping is taken from java.awt.color.ColorSpace.java
 #define TYPE_RGB 5
 
+// This mapping is taken from java.awt.image.BufferedImage.java
+#define TYPE_CUSTOM 0
+#define TYPE_INT_RGB 1
+#define TYPE_INT_ARGB_PRE 3
+
 uint32_t SetJAudioFormat(JNIEnv *env, jobject j_audio_format,
                          const AudioFormat &audio_format);
 
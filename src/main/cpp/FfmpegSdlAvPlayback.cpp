@@ -49,6 +49,9 @@ const FfmpegSdlAvPlayback::TextureFormatEntry
 void FfmpegSdlAvPlayback::SetSize(int width, int height) {
   screen_width_ = frame_width_ = width;
   screen_height_ = frame_height_ = height;
+  if (p_video_state_) {
+    p_video_state_->SetDisplaySize(width, height);
+  }
   if (p_vis_texture_) {
     SDL_DestroyTexture(p_vis_texture_);
     p_vis_texture_ = NULL;
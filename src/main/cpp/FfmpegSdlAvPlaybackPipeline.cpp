@@ -25,6 +25,16 @@ uint32_t FfmpegSdlAvPlaybackPipeline::Init(const char *input_file) {
   int err = p_sdl_playback_->OpenVideo(input_file, file_iformat);
   if (err) {
     delete p_sdl_playback_;
+    p_sdl_playback_ = nullptr;
+    return err;
+  }
+  p_sdl_playback_->SetKeyFrameIndexCacheDirectory(
+      p_options_->GetKeyFrameIndexCacheDirectory());
+  p_sdl_playback_->SetDecoderOptions(p_options_->GetDecoderOptions());
+  err = p_sdl_playback_->SetQueueOptions(p_options_->GetQueueOptions());
+  if (err) {
+    delete p_sdl_playback_;
+    p_sdl_playback_ = nullptr;
     return err;
   }
 
@@ -50,6 +60,8 @@ uint32_t FfmpegSdlAvPlaybackPipeline::Init(const char *input_file) {
   p_sdl_playback_->SetUpdatePlayerStateCallbackFunction(
       PlayerState::State::Finished,
       [this] { this->UpdatePlayerState(PlayerState::State::Finished); });
+  p_sdl_playback_->SetPtsCallbackFunction(
+      [this](double pts, int serial) { this->UpdateTime(pts, serial); });
   p_sdl_playback_->SetKeyEventKeyDispatcherCallback(
       [this](int sdlkeyCode) { this->MapSdlToJavaKey(sdlkeyCode); });
   p_sdl_playback_->SetPendingPlayerStateCallbackFunction(
@@ -115,7 +127,9 @@ uint32_t FfmpegSdlAvPlaybackPipeline::StepBackward() {
     return ERROR_PLAYBACK_NULL;
   }
 
-  p_sdl_playback_->StepToPreviousFrame();
+  if (!p_sdl_playback_->StepToPreviousFrame()) {
+    SendFrameEventForDisplayedFrame();
+  }
 
   return ERROR_NONE;
 }
@@ -130,7 +144,50 @@ uint32_t FfmpegSdlAvPlaybackPipeline::Seek(double dSeekTime) {
     return ERROR_PLAYBACK_NULL;
   }
 
-  p_sdl_playback_->Seek(dSeekTime);
+  if (!p_sdl_playback_->Seek(dSeekTime)) {
+    SendFrameEventForDisplayedFrame();
+  }
+
+  return ERROR_NONE; // no error
+}
+
+uint32_t FfmpegSdlAvPlaybackPipeline::SetScrubbing(bool is_scrubbing) {
+  if (p_sdl_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_sdl_playback_->SetScrubbing(is_scrubbing);
+
+  return ERROR_NONE; // no error
+}
+
+uint32_t FfmpegSdlAvPlaybackPipeline::SetFrameCacheCapacity(int64_t capacity) {
+  if (p_sdl_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_sdl_playback_->SetFrameCacheCapacity(capacity);
+
+  return ERROR_NONE; // no error
+}
+
+uint32_t FfmpegSdlAvPlaybackPipeline::SetDecoderPriority(int priority) {
+  if (p_sdl_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_sdl_playback_->SetDecoderPriority(priority);
+
+  return ERROR_NONE; // no error
+}
+
+uint32_t
+FfmpegSdlAvPlaybackPipeline::SetMaxPacketBytes(int64_t max_packet_bytes) {
+  if (p_sdl_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_sdl_playback_->SetMaxPacketBytes(max_packet_bytes);
 
   return ERROR_NONE; // no error
 }
@@ -155,6 +212,17 @@ uint32_t FfmpegSdlAvPlaybackPipeline::GetStreamTime(double *pdStreamTime) {
   return ERROR_NONE; // no error
 }
 
+uint32_t
+FfmpegSdlAvPlaybackPipeline::GetKeyFrameTimes(std::vector<double> *p_times) {
+  if (p_sdl_playback_ == nullptr) {
+    return ERROR_PLAYBACK_NULL;
+  }
+
+  p_sdl_playback_->GetKeyFrameTimes(p_times);
+
+  return ERROR_NONE; // no error
+}
+
 uint32_t FfmpegSdlAvPlaybackPipeline::GetFps(double *pdFps) {
   if (p_sdl_playback_ == nullptr) {
     return ERROR_PLAYBACK_NULL;
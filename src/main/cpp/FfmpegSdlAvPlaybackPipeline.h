@@ -28,10 +28,15 @@ private:
   virtual uint32_t Finish();
 
   virtual uint32_t Seek(double seek_time);
+  virtual uint32_t SetScrubbing(bool is_scrubbing);
+  virtual uint32_t SetFrameCacheCapacity(int64_t capacity);
+  virtual uint32_t SetDecoderPriority(int priority);
+  virtual uint32_t SetMaxPacketBytes(int64_t max_packet_bytes);
 
   virtual uint32_t GetDuration(double *p_duration);
   virtual uint32_t GetStreamTime(double *p_stream_time);
   virtual uint32_t GetFps(double *p_fps);
+  virtual uint32_t GetKeyFrameTimes(std::vector<double> *p_times);
 
   virtual uint32_t SetRate(float rate);
   virtual uint32_t GetRate(float *p_rate);
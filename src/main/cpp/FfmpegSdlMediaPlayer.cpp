@@ -1,3 +1,4 @@
+#include "DecoderScheduler.h"
 #include "FfmpegJniUtils.h"
 #include "FfmpegSdlAvPlaybackPipeline.h"
 #include "JavaPlayerEventDispatcher.h"
@@ -15,16 +16,39 @@ extern "C" {
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegInitPlayer
- * Signature: ([JLjava/lang/String;)I
+ * Signature: ([JLjava/lang/String;Ljava/lang/String;IIIZZJIIID)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegInitPlayer(
-    JNIEnv *env, jobject obj, jlongArray jlMediaHandle, jstring sourcePath) {
+    JNIEnv *env, jobject obj, jlongArray jlMediaHandle, jstring sourcePath,
+    jstring jKeyFrameIndexCacheDir, jint jDecoderThreadCount,
+    jint jDecoderThreadType, jint jDecoderLowres, jboolean jSkipLoopFilter,
+    jboolean jAdaptiveQuality, jlong jMaxPacketBytes, jint jImageFrameQueueSize,
+    jint jAudioFrameQueueSize, jint jMinPackets, jdouble jMinPacketsDuration) {
 
   CPipelineOptions *pOptions = new (nothrow) CPipelineOptions();
   if (NULL == pOptions) {
     return ERROR_SYSTEM_ENOMEM;
   }
+  if (NULL != jKeyFrameIndexCacheDir) {
+    const char *cacheDir = env->GetStringUTFChars(jKeyFrameIndexCacheDir, 0);
+    pOptions->SetKeyFrameIndexCacheDirectory(cacheDir);
+    env->ReleaseStringUTFChars(jKeyFrameIndexCacheDir, cacheDir);
+  }
+  DecoderOptions decoderOptions;
+  decoderOptions.thread_count = jDecoderThreadCount;
+  decoderOptions.thread_type = jDecoderThreadType;
+  decoderOptions.lowres = jDecoderLowres;
+  decoderOptions.skip_loop_filter = JNI_TRUE == jSkipLoopFilter;
+  decoderOptions.adaptive_quality = JNI_TRUE == jAdaptiveQuality;
+  pOptions->SetDecoderOptions(decoderOptions);
+  QueueOptions queueOptions;
+  queueOptions.max_packet_bytes = jMaxPacketBytes;
+  queueOptions.image_frame_queue_size = jImageFrameQueueSize;
+  queueOptions.audio_frame_queue_size = jAudioFrameQueueSize;
+  queueOptions.min_packets = jMinPackets;
+  queueOptions.min_packets_duration = jMinPacketsDuration;
+  pOptions->SetQueueOptions(queueOptions);
 
   CPipeline *pPipeline =
       new (std::nothrow) FfmpegSdlAvPlaybackPipeline(pOptions);
@@ -376,6 +400,108 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetFps(
   return ERROR_NONE;
 }
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegGetKeyFrameTimes
+ * Signature: (J[[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetKeyFrameTimes(
+    JNIEnv *env, jobject obj, jlong ref_media, jobjectArray jTimes) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  std::vector<double> times;
+  uint32_t uRetCode = pPipeline->GetKeyFrameTimes(&times);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  jdoubleArray jdTimes = env->NewDoubleArray((jsize)times.size());
+  if (NULL == jdTimes)
+    return ERROR_SYSTEM_ENOMEM;
+  env->SetDoubleArrayRegion(jdTimes, 0, (jsize)times.size(), times.data());
+  env->SetObjectArrayElement(jTimes, 0, jdTimes);
+  env->DeleteLocalRef(jdTimes);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegGetStatus
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetStatus(
+    JNIEnv *env, jobject obj, jlong ref_media, jdoubleArray jdStatus) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  PlayerStatus status;
+  uint32_t uRetCode = pPipeline->GetStatus(&status);
+  if (ERROR_NONE != uRetCode)
+    return uRetCode;
+
+  double dStatus[PlayerStatus::kNumFields];
+  status.CopyTo(dStatus);
+  env->SetDoubleArrayRegion(jdStatus, 0, PlayerStatus::kNumFields, dStatus);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetTimeUpdateInterval
+ * Signature: (JD)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetTimeUpdateInterval(
+    JNIEnv *env, jobject obj, jlong ref_media, jdouble interval) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  pPipeline->SetTimeUpdateInterval(interval);
+
+  return ERROR_NONE;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegRequestFrameEvent
+ * Signature: (JIZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegRequestFrameEvent(
+    JNIEnv *env, jobject obj, jlong ref_media, jint request_id,
+    jboolean after_seek) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  pPipeline->RequestFrameEvent(request_id, JNI_TRUE == after_seek);
+
+  return ERROR_NONE;
+}
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegGetBalance
@@ -474,6 +600,92 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSeek(
   return iRet;
 }
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetScrubbing
+ * Signature: (JZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetScrubbing(
+    JNIEnv *env, jobject obj, jlong ref_media, jboolean scrubbing) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetScrubbing(JNI_TRUE == scrubbing);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetFrameCacheCapacity
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetFrameCacheCapacity(
+    JNIEnv *env, jobject obj, jlong ref_media, jlong capacity) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetFrameCacheCapacity((int64_t)capacity);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetDecoderPriority
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetDecoderPriority(
+    JNIEnv *env, jobject obj, jlong ref_media, jint priority, jint num_slots) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  // The slots are shared by the players of the process
+  DecoderScheduler::GetInstance()->SetNumSlots(num_slots);
+  jint iRet = (jint)pPipeline->SetDecoderPriority(priority);
+
+  return iRet;
+}
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetMaxPacketBytes
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetMaxPacketBytes(
+    JNIEnv *env, jobject obj, jlong ref_media, jlong max_packet_bytes) {
+  CMedia *pMedia = (CMedia *)jlong_to_ptr(ref_media);
+  if (NULL == pMedia)
+    return ERROR_MEDIA_NULL;
+
+  CPipeline *pPipeline = (CPipeline *)pMedia->GetPipeline();
+  if (NULL == pPipeline)
+    return ERROR_PIPELINE_NULL;
+
+  jint iRet = (jint)pPipeline->SetMaxPacketBytes((int64_t)max_packet_bytes);
+
+  return iRet;
+}
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegGetImageWidth
@@ -0,0 +1,114 @@
+#include "FrameCache.h"
+
+FrameCache::FrameCache(int64_t capacity)
+    : capacity_(capacity), size_(0), last_pts_(AV_NOPTS_VALUE),
+      last_serial_(-1) {}
+
+FrameCache::~FrameCache() { Clear(); }
+
+void FrameCache::Add(const AVFrame *p_frame, int serial) {
+  std::lock_guard<std::mutex> lock(mutex_);
+  int64_t previous_pts = serial == last_serial_ ? last_pts_ : AV_NOPTS_VALUE;
+  last_serial_ = serial;
+  last_pts_ = p_frame->pts;
+
+  if (p_frame->pts == AV_NOPTS_VALUE) {
+    return;
+  }
+  // The frame before is unknown if the presentation times are out of order
+  if (previous_pts != AV_NOPTS_VALUE && previous_pts >= p_frame->pts) {
+    previous_pts = AV_NOPTS_VALUE;
+  }
+
+  auto it = entries_.find(p_frame->pts);
+  if (it != entries_.end()) {
+    // Decoded before; keep the frame and mark it as used
+    if (it->second.previous_pts == AV_NOPTS_VALUE) {
+      it->second.previous_pts = previous_pts;
+    }
+    lru_.splice(lru_.begin(), lru_, it->second.lru_position);
+    return;
+  }
+
+  int64_t size = GetFrameSize(p_frame);
+  if (size > capacity_) {
+    return;
+  }
+  EvictToFit(capacity_ - size);
+
+  AVFrame *p_cached_frame = av_frame_alloc();
+  if (!p_cached_frame) {
+    return;
+  }
+  if (av_frame_ref(p_cached_frame, p_frame) < 0) {
+    av_frame_free(&p_cached_frame);
+    return;
+  }
+  lru_.push_front(p_frame->pts);
+  Entry entry = {p_cached_frame, previous_pts, size, lru_.begin()};
+  entries_[p_frame->pts] = entry;
+  size_ += size;
+}
+
+bool FrameCache::Get(int64_t pts, AVFrame *p_frame) {
+  std::lock_guard<std::mutex> lock(mutex_);
+  auto it = entries_.lower_bound(pts);
+  if (it == entries_.end()) {
+    return false;
+  }
+  // Unless the frame is presented at pts, the frame before must be presented
+  // before pts; otherwise an uncached frame might be presented in between
+  if (it->first != pts && (it->second.previous_pts == AV_NOPTS_VALUE ||
+                           it->second.previous_pts >= pts)) {
+    return false;
+  }
+  if (av_frame_ref(p_frame, it->second.p_frame) < 0) {
+    return false;
+  }
+  lru_.splice(lru_.begin(), lru_, it->second.lru_position);
+  return true;
+}
+
+void FrameCache::SetCapacity(int64_t capacity) {
+  std::lock_guard<std::mutex> lock(mutex_);
+  capacity_ = capacity > 0 ? capacity : 0;
+  EvictToFit(capacity_);
+}
+
+int64_t FrameCache::GetCapacity() const {
+  std::lock_guard<std::mutex> lock(mutex_);
+  return capacity_;
+}
+
+int64_t FrameCache::GetSize() const {
+  std::lock_guard<std::mutex> lock(mutex_);
+  return size_;
+}
+
+void FrameCache::Clear() {
+  std::lock_guard<std::mutex> lock(mutex_);
+  EvictToFit(0);
+  last_pts_ = AV_NOPTS_VALUE;
+  last_serial_ = -1;
+}
+
+void FrameCache::EvictToFit(int64_t capacity) {
+  while (size_ > capacity && !lru_.empty()) {
+    auto it = entries_.find(lru_.back());
+    size_ -= it->second.size;
+    av_frame_free(&it->second.p_frame);
+    entries_.erase(it);
+    lru_.pop_back();
+  }
+}
+
+int64_t FrameCache::GetFrameSize(const AVFrame *p_frame) {
+  int64_t size = 0;
+  for (int i = 0; i < AV_NUM_DATA_POINTERS && p_frame->buf[i]; ++i) {
+    size += p_frame->buf[i]->size;
+  }
+  for (int i = 0; i < p_frame->nb_extended_buf; ++i) {
+    size += p_frame->extended_buf[i]->size;
+  }
+  return size;
+}
@@ -0,0 +1,74 @@
+#include <list>
+#include <map>
+#include <mutex>
+
+extern "C" {
+#include <libavutil/frame.h> // frames and their reference counted buffers
+}
+
+#ifndef FRAME_CACHE_H_
+#define FRAME_CACHE_H_
+
+// Cache of decoded frames of an image stream with a byte budget
+//
+// The cache holds references to the frames that the decoder outputs, including
+// the frames that are decoded but not displayed to land on a seek time. A seek
+// to a cached frame displays it without waiting for the decoder to decode the
+// group of pictures up to it, e.g. when stepping backward frame by frame. The
+// cache is looked up once the decoder outputs the first frame after the seek,
+// so it saves the wait for the display only: the decoder still decodes the
+// group of pictures to go on from the seek time.
+//
+// Frames are added in the order the decoder outputs them. Each frame remembers
+// the presentation time of the frame decoded before it with the same serial;
+// this way the cache knows that no other frame is presented between the two,
+// even if the frame before was evicted. The least recently used frames are
+// evicted once the frames exceed the byte budget.
+class FrameCache {
+public:
+  FrameCache(int64_t capacity);
+
+  virtual ~FrameCache();
+
+  // Adds a reference to the decoded frame; frames with a different serial
+  // than the frame added before start a new sequence of frames
+  void Add(const AVFrame *p_frame, int serial);
+
+  // Gets a reference to the first frame presented at or after pts, in the time
+  // base of the stream. Returns false unless the frame is cached and so is the
+  // fact that no frame is presented between pts and the frame.
+  bool Get(int64_t pts, AVFrame *p_frame);
+
+  // Sets the byte budget and evicts frames to fit it; 0 disables the cache
+  void SetCapacity(int64_t capacity);
+
+  int64_t GetCapacity() const;
+
+  // Gets the number of bytes referenced by the cached frames
+  int64_t GetSize() const;
+
+  void Clear();
+
+  // Gets the number of bytes referenced by the frame
+  static int64_t GetFrameSize(const AVFrame *p_frame);
+
+private:
+  struct Entry {
+    AVFrame *p_frame;
+    int64_t previous_pts; // Pts of the frame decoded before or AV_NOPTS_VALUE
+    int64_t size;
+    std::list<int64_t>::iterator lru_position;
+  };
+
+  std::map<int64_t, Entry> entries_; // Keyed by pts
+  std::list<int64_t> lru_;           // Pts of the most recently used first
+  int64_t capacity_;
+  int64_t size_;
+  int64_t last_pts_; // Pts of the frame added last
+  int last_serial_;  // Serial of the frame added last
+  mutable std::mutex mutex_;
+
+  void EvictToFit(int64_t capacity);
+};
+
+#endif FRAME_CACHE_H_
@@ -90,6 +90,9 @@ public:
   // return the number of undisplayed frames in the queue
   inline int GetNumToDisplay() const { return size_ - read_index_shown_; }
 
+  // True if PeekWritable returns without waiting for the reader
+  inline bool IsWritable() const { return size_ < max_size_; }
+
   // return the byte position of the frame last shown
   int64_t GetBytePosOfLastFrame();
 
@@ -0,0 +1,142 @@
+#ifndef IMAGECONVERTER_H_
+#define IMAGECONVERTER_H_
+
+#include <stdint.h>
+
+#include "MediaPlayerErrors.h"
+
+extern "C" {
+#include "libavutil/frame.h"
+#include "libavutil/imgutils.h"
+#include "libavutil/mem.h"
+#include "libavutil/pixdesc.h"
+#include "libswscale/swscale.h"
+}
+
+// Converts decoded frames into tightly packed images of one pixel format,
+// optionally scaling them to a requested size
+//
+// Both packed byte formats (e.g. RGB24) and padded formats that java reads as
+// one int per pixel (e.g. 0RGB32) are supported.
+//
+// The conversion goes straight into the caller's buffer whenever that buffer
+// satisfies the alignment that swscale needs for its SIMD paths. Otherwise the
+// frame is converted into a persistent staging buffer and its rows are copied
+// out. The staging buffer is only re-allocated when the image size changes,
+// so steady playback performs no allocations per frame.
+class ImageConverter {
+private:
+  const AVPixelFormat kPixelFormat;
+  const int kBytesPerPixel;
+
+  struct SwsContext *p_sws_ctx_;
+
+  // Staging buffer for destinations that are not aligned
+  uint8_t *p_pixels_[4];
+  int pitches_[4];
+  int width_;
+  int height_;
+
+  // Number of staging buffer allocations, for diagnostics and benchmarks
+  int num_allocations_;
+
+  int AllocStagingBuffer(int width, int height) {
+    if (width_ == width && height_ == height) {
+      return ERROR_NONE;
+    }
+    av_freep(&p_pixels_[0]);
+    if (av_image_alloc(p_pixels_, pitches_, width, height, kPixelFormat,
+                       kAlignment) < 0) {
+      width_ = height_ = 0;
+      return ERROR_SYSTEM_ENOMEM;
+    }
+    width_ = width;
+    height_ = height;
+    num_allocations_++;
+    return ERROR_NONE;
+  }
+
+public:
+  // Alignment in bytes that swscale expects for its destination rows
+  static const int kAlignment = 16;
+
+  // Scaler used when the image size differs from the frame size; the bilinear
+  // scaler is much faster than bicubic and good enough for display
+  static const int kScaleFlags = SWS_FAST_BILINEAR;
+
+  // Scaler used when converting the pixel format at the frame size
+  static const int kConvertFlags = SWS_BICUBIC;
+
+  ImageConverter(AVPixelFormat pixel_format)
+      : kPixelFormat(pixel_format),
+        kBytesPerPixel(
+            av_get_padded_bits_per_pixel(av_pix_fmt_desc_get(pixel_format)) /
+            8),
+        p_sws_ctx_(nullptr), p_pixels_{nullptr, nullptr, nullptr, nullptr},
+        pitches_{0, 0, 0, 0}, width_(0), height_(0), num_allocations_(0) {}
+
+  ~ImageConverter() { Release(); }
+
+  ImageConverter(const ImageConverter &) = delete;
+  ImageConverter &operator=(const ImageConverter &) = delete;
+
+  // Frees the scaler context and the staging buffer
+  void Release() {
+    sws_freeContext(p_sws_ctx_);
+    p_sws_ctx_ = nullptr;
+    av_freep(&p_pixels_[0]);
+    width_ = height_ = 0;
+  }
+
+  // Returns the number of bytes for one packed image of the given size
+  long GetImageSize(int width, int height) const {
+    return (long)width * height * kBytesPerPixel;
+  }
+
+  int GetBytesPerPixel() const { return kBytesPerPixel; }
+
+  int GetNumAllocations() const { return num_allocations_; }
+
+  // Converts the frame into the packed image p_dst that holds len bytes
+  int Convert(const AVFrame *p_frame, uint8_t *p_dst, const long len) {
+    return Convert(p_frame, p_frame->width, p_frame->height, p_dst, len);
+  }
+
+  // Converts and scales the frame into the packed image p_dst of width x
+  // height that holds len bytes
+  int Convert(const AVFrame *p_frame, int width, int height, uint8_t *p_dst,
+              const long len) {
+    int pitch = width * kBytesPerPixel;
+    if (len < GetImageSize(width, height)) {
+      return ERROR_FFMPEG_BUFFER_TOO_SMALL;
+    }
+    int flags = width == p_frame->width && height == p_frame->height
+                    ? kConvertFlags
+                    : kScaleFlags;
+    p_sws_ctx_ = sws_getCachedContext(
+        p_sws_ctx_, p_frame->width, p_frame->height,
+        static_cast<AVPixelFormat>(p_frame->format), width, height,
+        kPixelFormat, flags, NULL, NULL, NULL);
+    if (p_sws_ctx_ == nullptr) {
+      return ERROR_FFMPEG_UNKNOWN;
+    }
+    if (((uintptr_t)p_dst % kAlignment) == 0 && (pitch % kAlignment) == 0) {
+      uint8_t *pixels[4] = {p_dst, nullptr, nullptr, nullptr};
+      int pitches[4] = {pitch, 0, 0, 0};
+      sws_scale(p_sws_ctx_, (const uint8_t *const *)p_frame->data,
+                p_frame->linesize, 0, p_frame->height, pixels, pitches);
+      return ERROR_NONE;
+    }
+    int err = AllocStagingBuffer(width, height);
+    if (err) {
+      return err;
+    }
+    sws_scale(p_sws_ctx_, (const uint8_t *const *)p_frame->data,
+              p_frame->linesize, 0, p_frame->height, p_pixels_, pitches_);
+    av_image_copy_plane(p_dst, pitch, p_pixels_[0], pitches_[0], pitch,
+                        height);
+    return ERROR_NONE;
+  }
+};
+
+#endif // IMAGECONVERTER_H_
@@ -31,6 +31,8 @@ static bool areJMethodIDsInitialized = false;
 
 jmethodID CJavaPlayerEventDispatcher::send_player_media_error_event_method_ = 0;
 jmethodID CJavaPlayerEventDispatcher::send_player_state_event_method_ = 0;
+jmethodID CJavaPlayerEventDispatcher::send_player_time_event_method_ = 0;
+jmethodID CJavaPlayerEventDispatcher::send_player_frame_event_method_ = 0;
 #ifdef SDL_ENABLED
 jmethodID CJavaPlayerEventDispatcher::send_sdl_player_key_event_method_ = 0;
 #endif // SDL_ENABLED
@@ -67,6 +69,10 @@ void CJavaPlayerEventDispatcher::Init(JNIEnv *env, jobject PlayerInstance,
     if (!hasException) {
       send_player_state_event_method_ =
           env->GetMethodID(klass, "sendPlayerStateEvent", "(ID)V");
+      send_player_time_event_method_ =
+          env->GetMethodID(klass, "sendPlayerTimeEvent", "(D)V");
+      send_player_frame_event_method_ =
+          env->GetMethodID(klass, "sendPlayerFrameEvent", "(ID)V");
 #ifdef SDL_ENABLED
       send_sdl_player_key_event_method_ =
           env->GetMethodID(klass, "sendSdlPlayerKeyEvent", "(I)V");
@@ -165,6 +171,43 @@ bool CJavaPlayerEventDispatcher::SendPlayerStateEvent(int newState,
   return bSucceeded;
 }
 
+bool CJavaPlayerEventDispatcher::SendPlayerTimeEvent(double presentTime) {
+  bool bSucceeded = false;
+  CJavaEnvironment jenv(p_player_vm_);
+  JNIEnv *pEnv = jenv.GetEnvironment();
+  if (pEnv) {
+    jobject localPlayer = pEnv->NewLocalRef(player_instance_);
+    if (localPlayer) {
+      pEnv->CallVoidMethod(localPlayer, send_player_time_event_method_,
+                           presentTime);
+      pEnv->DeleteLocalRef(localPlayer);
+
+      bSucceeded = !jenv.ReportException();
+    }
+  }
+
+  return bSucceeded;
+}
+
+bool CJavaPlayerEventDispatcher::SendPlayerFrameEvent(int requestId,
+                                                      double presentTime) {
+  bool bSucceeded = false;
+  CJavaEnvironment jenv(p_player_vm_);
+  JNIEnv *pEnv = jenv.GetEnvironment();
+  if (pEnv) {
+    jobject localPlayer = pEnv->NewLocalRef(player_instance_);
+    if (localPlayer) {
+      pEnv->CallVoidMethod(localPlayer, send_player_frame_event_method_,
+                           requestId, presentTime);
+      pEnv->DeleteLocalRef(localPlayer);
+
+      bSucceeded = !jenv.ReportException();
+    }
+  }
+
+  return bSucceeded;
+}
+
 #ifdef SDL_ENABLED
 bool CJavaPlayerEventDispatcher::SendSdlPlayerKeyEvent(int keyId) {
   bool bSucceeded = false;
@@ -43,6 +43,8 @@ public:
 
   virtual bool SendPlayerMediaErrorEvent(int errorCode);
   virtual bool SendPlayerStateEvent(int newState, double presentTime);
+  virtual bool SendPlayerTimeEvent(double presentTime);
+  virtual bool SendPlayerFrameEvent(int requestId, double presentTime);
 #ifdef SDL_ENABLED
   virtual bool SendSdlPlayerKeyEvent(int keyId);
 #endif // SDL_ENABLED
@@ -56,6 +58,8 @@ private:
 
   static jmethodID send_player_media_error_event_method_;
   static jmethodID send_player_state_event_method_;
+  static jmethodID send_player_time_event_method_;
+  static jmethodID send_player_frame_event_method_;
 #ifdef SDL_ENABLED
   static jmethodID send_sdl_player_key_event_method_;
 #endif // SDL_ENABLED
@@ -0,0 +1,449 @@
+#include "KeyFrameIndex.h"
+
+#include <algorithm>
+#include <cstring>
+#include <inttypes.h>
+#include <sstream>
+
+#ifdef _WIN32
+#include <windows.h>
+#else
+#include <fcntl.h>
+#include <sys/mman.h>
+#include <unistd.h>
+#endif
+#include <sys/stat.h>
+
+namespace {
+
+// Layout of a cached index: the header, the path of the media file, and the
+// key frames as pairs of int64 pts and seek time stamp; all in native byte
+// order, which the magic number checks
+const char kCacheMagic[4] = {'D', 'V', 'K', 'I'};
+const uint32_t kCacheVersion = 1;
+
+struct CacheHeader {
+  char magic[4];
+  uint32_t version;
+  int64_t file_size;  // Of the media file
+  int64_t file_mtime; // Of the media file
+  int32_t stream_index;
+  int32_t time_base_num;
+  int32_t time_base_den;
+  uint32_t path_length;
+  uint64_t num_key_frames;
+};
+
+// Identifies the version of a media file that an index was built from
+bool GetFileKey(const std::string &path, int64_t *p_size, int64_t *p_mtime) {
+#ifdef _WIN32
+  wchar_t wpath[MAX_PATH];
+  if (!MultiByteToWideChar(CP_UTF8, 0, path.c_str(), -1, wpath, MAX_PATH)) {
+    return false;
+  }
+  struct _stat64 st;
+  if (_wstat64(wpath, &st) != 0) {
+    return false;
+  }
+#else
+  struct stat st;
+  if (stat(path.c_str(), &st) != 0) {
+    return false;
+  }
+#endif
+  *p_size = (int64_t)st.st_size;
+  *p_mtime = (int64_t)st.st_mtime;
+  return true;
+}
+
+FILE *OpenFile(const std::string &path, const char *mode) {
+#ifdef _WIN32
+  wchar_t wpath[MAX_PATH];
+  wchar_t wmode[8];
+  if (!MultiByteToWideChar(CP_UTF8, 0, path.c_str(), -1, wpath, MAX_PATH) ||
+      !MultiByteToWideChar(CP_UTF8, 0, mode, -1, wmode, 8)) {
+    return nullptr;
+  }
+  return _wfopen(wpath, wmode);
+#else
+  return fopen(path.c_str(), mode);
+#endif
+}
+
+bool ReplaceFile(const std::string &from, const std::string &to) {
+#ifdef _WIN32
+  wchar_t wfrom[MAX_PATH];
+  wchar_t wto[MAX_PATH];
+  if (!MultiByteToWideChar(CP_UTF8, 0, from.c_str(), -1, wfrom, MAX_PATH) ||
+      !MultiByteToWideChar(CP_UTF8, 0, to.c_str(), -1, wto, MAX_PATH)) {
+    return false;
+  }
+  return MoveFileExW(wfrom, wto, MOVEFILE_REPLACE_EXISTING) != 0;
+#else
+  return rename(from.c_str(), to.c_str()) == 0;
+#endif
+}
+
+// Maps a whole file read-only into memory
+class MappedFile {
+public:
+  MappedFile(const std::string &path) : p_data_(nullptr), size_(0) {
+#ifdef _WIN32
+    wchar_t wpath[MAX_PATH];
+    h_file_ = INVALID_HANDLE_VALUE;
+    h_mapping_ = NULL;
+    if (!MultiByteToWideChar(CP_UTF8, 0, path.c_str(), -1, wpath, MAX_PATH)) {
+      return;
+    }
+    h_file_ = CreateFileW(wpath, GENERIC_READ, FILE_SHARE_READ, NULL,
+                          OPEN_EXISTING, FILE_ATTRIBUTE_NORMAL, NULL);
+    LARGE_INTEGER size;
+    if (h_file_ == INVALID_HANDLE_VALUE || !GetFileSizeEx(h_file_, &size) ||
+        size.QuadPart == 0) {
+      return;
+    }
+    h_mapping_ = CreateFileMappingW(h_file_, NULL, PAGE_READONLY, 0, 0, NULL);
+    if (h_mapping_ == NULL) {
+      return;
+    }
+    p_data_ =
+        (const uint8_t *)MapViewOfFile(h_mapping_, FILE_MAP_READ, 0, 0, 0);
+    size_ = p_data_ ? (size_t)size.QuadPart : 0;
+#else
+    int fd = open(path.c_str(), O_RDONLY);
+    if (fd < 0) {
+      return;
+    }
+    struct stat st;
+    if (fstat(fd, &st) == 0 && st.st_size > 0) {
+      void *p_data = mmap(nullptr, st.st_size, PROT_READ, MAP_PRIVATE, fd, 0);
+      if (p_data != MAP_FAILED) {
+        p_data_ = (const uint8_t *)p_data;
+        size_ = (size_t)st.st_size;
+      }
+    }
+    close(fd); // The mapping stays valid
+#endif
+  }
+
+  ~MappedFile() {
+#ifdef _WIN32
+    if (p_data_) {
+      UnmapViewOfFile(p_data_);
+    }
+    if (h_mapping_ != NULL) {
+      CloseHandle(h_mapping_);
+    }
+    if (h_file_ != INVALID_HANDLE_VALUE) {
+      CloseHandle(h_file_);
+    }
+#else
+    if (p_data_) {
+      munmap((void *)p_data_, size_);
+    }
+#endif
+  }
+
+  inline const uint8_t *GetData() const { return p_data_; }
+  inline size_t GetSize() const { return size_; }
+
+private:
+  const uint8_t *p_data_;
+  size_t size_;
+#ifdef _WIN32
+  HANDLE h_file_;
+  HANDLE h_mapping_;
+#endif
+};
+
+} // namespace
+
+KeyFrameIndex::KeyFrameIndex(AVRational time_base)
+    : time_base_(time_base), is_complete_(false), abort_request_(false),
+      p_build_thread_(nullptr) {}
+
+KeyFrameIndex::~KeyFrameIndex() {
+  abort_request_ = true;
+  if (p_build_thread_) {
+    p_build_thread_->join();
+    delete p_build_thread_;
+    p_build_thread_ = nullptr;
+  }
+}
+
+void KeyFrameIndex::Build(const char *filename, AVInputFormat *p_input_format,
+                          int stream_index, const std::string &cache_dir) {
+  std::string file(filename);
+  p_build_thread_ = new (std::nothrow) std::thread(
+      [this, file, p_input_format, stream_index, cache_dir] {
+        BuildFromFile(file, p_input_format, stream_index, cache_dir);
+      });
+  if (!p_build_thread_) {
+    av_log(NULL, AV_LOG_ERROR, "Unable to create key frame index thread\n");
+    Complete();
+  }
+}
+
+void KeyFrameIndex::Add(int64_t pts, int64_t seek_ts) {
+  std::lock_guard<std::mutex> lock(mutex_);
+  if (!is_complete_) {
+    key_frames_.push_back({pts, seek_ts});
+  }
+}
+
+void KeyFrameIndex::Complete() {
+  std::lock_guard<std::mutex> lock(mutex_);
+  // Packets arrive in decoding order; key frames are presented in that order
+  // too, but sort to be robust against streams that do not comply
+  std::stable_sort(key_frames_.begin(), key_frames_.end(),
+                   [](const KeyFrame &a, const KeyFrame &b) {
+                     return a.pts < b.pts;
+                   });
+  is_complete_ = true;
+}
+
+bool KeyFrameIndex::GetSeekTimeStamp(int64_t time, int64_t *p_seek_ts) const {
+  if (!is_complete_) {
+    return false;
+  }
+  int64_t pts = av_rescale_q(time, av_make_q(1, AV_TIME_BASE), time_base_);
+  // The index does not change once complete; no need to lock
+  auto it = std::upper_bound(
+      key_frames_.begin(), key_frames_.end(), pts,
+      [](int64_t pts, const KeyFrame &key_frame) {
+        return pts < key_frame.pts;
+      });
+  if (it == key_frames_.begin()) {
+    return false;
+  }
+  *p_seek_ts = (it - 1)->seek_ts;
+  return true;
+}
+
+void KeyFrameIndex::GetKeyFrameTimes(std::vector<double> *p_times) const {
+  p_times->clear();
+  if (!is_complete_) {
+    return;
+  }
+  double time_base = av_q2d(time_base_);
+  p_times->reserve(key_frames_.size());
+  for (const KeyFrame &key_frame : key_frames_) {
+    p_times->push_back(key_frame.pts * time_base);
+  }
+}
+
+void KeyFrameIndex::BuildFromFile(const std::string &filename,
+                                  AVInputFormat *p_input_format,
+                                  int stream_index,
+                                  const std::string &cache_dir) {
+  const char *protocol = avio_find_protocol_name(filename.c_str());
+  bool is_local = protocol && !strcmp(protocol, "file");
+  std::string cache_path = is_local && !cache_dir.empty()
+                               ? GetCachePath(filename, stream_index, cache_dir)
+                               : "";
+  if (!cache_path.empty() && Load(cache_path, filename, stream_index)) {
+    av_log(NULL, AV_LOG_VERBOSE, "%s: loaded %d key frames from %s\n",
+           filename.c_str(), (int)key_frames_.size(), cache_path.c_str());
+    Complete();
+    return;
+  }
+
+  AVFormatContext *p_format_context = avformat_alloc_context();
+  if (!p_format_context) {
+    Complete();
+    return;
+  }
+  p_format_context->interrupt_callback.callback = InterruptBridge;
+  p_format_context->interrupt_callback.opaque = this;
+
+  // Opening the input reads the index of the container, e.g. the sample
+  // table of mp4 files
+  int ret = avformat_open_input(&p_format_context, filename.c_str(),
+                                p_input_format, nullptr);
+  if (ret < 0) {
+    av_log(NULL, AV_LOG_WARNING, "%s: could not open to index key frames\n",
+           filename.c_str());
+    Complete();
+    return;
+  }
+
+  if (stream_index < (int)p_format_context->nb_streams) {
+    for (int i = 0; i < p_format_context->nb_streams; i++) {
+      p_format_context->streams[i]->discard =
+          i == stream_index ? AVDISCARD_NONKEY : AVDISCARD_ALL;
+    }
+    // The container indexes key frames by their decoding times, which are
+    // their presentation times only if the frames are not reordered; the
+    // first key frame tells
+    int64_t pts, seek_ts;
+    bool has_key_frame =
+        ReadKeyFrame(p_format_context, stream_index, &pts, &seek_ts);
+    bool is_presentation_order = has_key_frame && pts == seek_ts;
+    if (!(is_presentation_order &&
+          AddContainerIndexEntries(p_format_context->streams[stream_index]) >
+              0) &&
+        is_local) {
+      if (has_key_frame) {
+        Add(pts, seek_ts);
+      }
+      ScanPackets(p_format_context, stream_index);
+    }
+  }
+
+  avformat_close_input(&p_format_context);
+  av_log(NULL, AV_LOG_VERBOSE, "%s: indexed %d key frames\n", filename.c_str(),
+         (int)key_frames_.size());
+  Complete();
+
+  // Do not store an index whose build was aborted; it is incomplete
+  if (!cache_path.empty() && !abort_request_ && !key_frames_.empty() &&
+      !Store(cache_path, filename, stream_index)) {
+    av_log(NULL, AV_LOG_WARNING, "%s: could not store key frame index\n",
+           cache_path.c_str());
+  }
+}
+
+std::string KeyFrameIndex::GetCachePath(const std::string &filename,
+                                        int stream_index,
+                                        const std::string &cache_dir) const {
+  // Name the cache file by the FNV-1a hash of the path; the header holds the
+  // path itself to tell collisions apart
+  uint64_t hash = 14695981039346656037ULL;
+  for (unsigned char c : filename) {
+    hash = (hash ^ c) * 1099511628211ULL;
+  }
+  char name[40];
+  snprintf(name, sizeof(name), "%016" PRIx64 "-%d.kfi", hash, stream_index);
+  char last = cache_dir.back();
+  return cache_dir + (last == '/' || last == '\\' ? "" : "/") + name;
+}
+
+bool KeyFrameIndex::Load(const std::string &cache_path,
+                         const std::string &filename, int stream_index) {
+  int64_t file_size, file_mtime;
+  if (!GetFileKey(filename, &file_size, &file_mtime)) {
+    return false;
+  }
+  MappedFile cache(cache_path);
+  const uint8_t *p_data = cache.GetData();
+  CacheHeader header;
+  if (!p_data || cache.GetSize() < sizeof(header)) {
+    return false;
+  }
+  memcpy(&header, p_data, sizeof(header));
+  // A changed media file invalidates its index
+  if (memcmp(header.magic, kCacheMagic, sizeof(kCacheMagic)) != 0 ||
+      header.version != kCacheVersion || header.file_size != file_size ||
+      header.file_mtime != file_mtime ||
+      header.stream_index != stream_index ||
+      header.time_base_num != time_base_.num ||
+      header.time_base_den != time_base_.den ||
+      header.path_length != filename.size()) {
+    return false;
+  }
+  // A truncated file holds less than its header counts
+  size_t data_size = cache.GetSize() - sizeof(header);
+  if (data_size < header.path_length ||
+      header.num_key_frames >
+          (data_size - header.path_length) / sizeof(KeyFrame) ||
+      memcmp(p_data + sizeof(header), filename.data(), filename.size()) != 0) {
+    return false;
+  }
+  std::lock_guard<std::mutex> lock(mutex_);
+  key_frames_.resize((size_t)header.num_key_frames);
+  memcpy(key_frames_.data(), p_data + sizeof(header) + header.path_length,
+         key_frames_.size() * sizeof(KeyFrame));
+  return true;
+}
+
+bool KeyFrameIndex::Store(const std::string &cache_path,
+                          const std::string &filename,
+                          int stream_index) const {
+  CacheHeader header;
+  memcpy(header.magic, kCacheMagic, sizeof(kCacheMagic));
+  header.version = kCacheVersion;
+  if (!GetFileKey(filename, &header.file_size, &header.file_mtime)) {
+    return false;
+  }
+  header.stream_index = stream_index;
+  header.time_base_num = time_base_.num;
+  header.time_base_den = time_base_.den;
+  header.path_length = (uint32_t)filename.size();
+  header.num_key_frames = key_frames_.size();
+
+  // Write a file of this thread and move it in place, so that players that
+  // open the same media file at once never read a partial index
+  std::ostringstream tmp_path;
+  tmp_path << cache_path << "." << std::this_thread::get_id() << ".tmp";
+  FILE *p_file = OpenFile(tmp_path.str(), "wb");
+  if (!p_file) {
+    return false;
+  }
+  bool is_written =
+      fwrite(&header, sizeof(header), 1, p_file) == 1 &&
+      fwrite(filename.data(), 1, filename.size(), p_file) == filename.size() &&
+      fwrite(key_frames_.data(), sizeof(KeyFrame), key_frames_.size(),
+             p_file) == key_frames_.size();
+  is_written = fclose(p_file) == 0 && is_written;
+  if (!is_written || !ReplaceFile(tmp_path.str(), cache_path)) {
+    remove(tmp_path.str().c_str());
+    return false;
+  }
+  return true;
+}
+
+int KeyFrameIndex::AddContainerIndexEntries(const AVStream *p_stream) {
+  int num_key_frames = 0;
+#if LIBAVFORMAT_VERSION_INT >= AV_VERSION_INT(58, 78, 100)
+  int num_entries = avformat_index_get_entries_count(p_stream);
+#else
+  int num_entries = p_stream->nb_index_entries;
+#endif
+  for (int i = 0; i < num_entries && !abort_request_; i++) {
+#if LIBAVFORMAT_VERSION_INT >= AV_VERSION_INT(58, 78, 100)
+    const AVIndexEntry *p_entry =
+        avformat_index_get_entry((AVStream *)p_stream, i);
+#else
+    const AVIndexEntry *p_entry = &p_stream->index_entries[i];
+#endif
+    if (p_entry->flags & AVINDEX_KEYFRAME) {
+      // The time stamp seeks to the key frame and, without reordered frames,
+      // is its presentation time
+      Add(p_entry->timestamp, p_entry->timestamp);
+      num_key_frames++;
+    }
+  }
+  return num_key_frames;
+}
+
+void KeyFrameIndex::ScanPackets(AVFormatContext *p_format_context,
+                                int stream_index) {
+  int64_t pts, seek_ts;
+  while (ReadKeyFrame(p_format_context, stream_index, &pts, &seek_ts)) {
+    Add(pts, seek_ts);
+  }
+}
+
+bool KeyFrameIndex::ReadKeyFrame(AVFormatContext *p_format_context,
+                                 int stream_index, int64_t *p_pts,
+                                 int64_t *p_seek_ts) {
+  AVPacket packet;
+  av_init_packet(&packet);
+  while (!abort_request_ && av_read_frame(p_format_context, &packet) >= 0) {
+    bool is_key = packet.stream_index == stream_index &&
+                  (packet.flags & AV_PKT_FLAG_KEY);
+    int64_t pts = packet.pts != AV_NOPTS_VALUE ? packet.pts : packet.dts;
+    int64_t seek_ts = packet.dts != AV_NOPTS_VALUE ? packet.dts : pts;
+    av_packet_unref(&packet);
+    if (is_key && pts != AV_NOPTS_VALUE) {
+      *p_pts = pts;
+      *p_seek_ts = seek_ts;
+      return true;
+    }
+  }
+  return false;
+}
+
+int KeyFrameIndex::InterruptBridge(void *p_key_frame_index) {
+  return static_cast<KeyFrameIndex *>(p_key_frame_index)->abort_request_;
+}
@@ -0,0 +1,99 @@
+#include <atomic>
+#include <mutex>
+#include <string>
+#include <thread>
+#include <vector>
+
+extern "C" {
+#include <libavformat/avformat.h> // format context, index entries
+}
+
+#ifndef KEY_FRAME_INDEX_H_
+#define KEY_FRAME_INDEX_H_
+
+// Index of the key frames of a video stream
+//
+// The index is built in the background; from the index of the container if
+// it has entries for the stream and its frames are not reordered, otherwise
+// through a scan that reads the packets of the stream without decoding them.
+// The build opens the file a second time to leave the reader of the player
+// undisturbed. Only local files are scanned, since a scan would download a
+// remote file entirely.
+//
+// Seeks use the index to seek to the last key frame presented at or before the
+// seek time, so that the decoder decodes at most one group of pictures to
+// land on the seek time.
+//
+// Indices of local files are persisted in a cache directory, if one is given;
+// one file per media file and stream, keyed by the path, size and modification
+// time of the media file. Reopening the media file maps the cached index into
+// memory instead of building it again.
+class KeyFrameIndex {
+public:
+  // A key frame with times in the time base of the stream
+  struct KeyFrame {
+    int64_t pts;     // Presentation time
+    int64_t seek_ts; // Time stamp that seeks to this key frame
+  };
+
+  KeyFrameIndex(AVRational time_base);
+
+  virtual ~KeyFrameIndex();
+
+  // Starts building the index for the stream of the file in the background;
+  // loads and stores the index in the cache directory unless it is empty
+  void Build(const char *filename, AVInputFormat *p_input_format,
+             int stream_index, const std::string &cache_dir);
+
+  // Adds a key frame to an index that is not complete yet
+  void Add(int64_t pts, int64_t seek_ts);
+
+  // Completes the index; it does not change afterwards
+  void Complete();
+
+  inline bool IsComplete() const { return is_complete_; }
+
+  inline AVRational GetTimeBase() const { return time_base_; }
+
+  // Gets the seek time stamp of the last key frame presented at or before the
+  // time in AV_TIME_BASE units. Returns false if the index is not complete or
+  // has no such key frame.
+  bool GetSeekTimeStamp(int64_t time, int64_t *p_seek_ts) const;
+
+  // Gets the presentation times of the key frames in sec in ascending order;
+  // empty while the index is not complete
+  void GetKeyFrameTimes(std::vector<double> *p_times) const;
+
+protected:
+  // Loads the index of the stream of the file from the cache file; returns
+  // false if the cache file is missing, truncated, or stale
+  bool Load(const std::string &cache_path, const std::string &filename,
+            int stream_index);
+
+  // Stores the index of the stream of the file in the cache file
+  bool Store(const std::string &cache_path, const std::string &filename,
+             int stream_index) const;
+
+private:
+  AVRational time_base_;
+  std::vector<KeyFrame> key_frames_; // Sorted by pts once complete
+  mutable std::mutex mutex_;
+  std::atomic<bool> is_complete_;
+  std::atomic<bool> abort_request_;
+  std::thread *p_build_thread_;
+
+  void BuildFromFile(const std::string &filename, AVInputFormat *p_input_format,
+                     int stream_index, const std::string &cache_dir);
+  std::string GetCachePath(const std::string &filename, int stream_index,
+                           const std::string &cache_dir) const;
+  int AddContainerIndexEntries(const AVStream *p_stream);
+  void ScanPackets(AVFormatContext *p_format_context, int stream_index);
+  // Reads the packets up to the next key frame of the stream; returns false
+  // at the end of the stream
+  bool ReadKeyFrame(AVFormatContext *p_format_context, int stream_index,
+                    int64_t *p_pts, int64_t *p_seek_ts);
+
+  static int InterruptBridge(void *p_key_frame_index);
+};
+
+#endif KEY_FRAME_INDEX_H_
@@ -132,5 +132,7 @@
 #define ERROR_JNI_SEND_STOP_REACHED_EVENT 3084
 #define ERROR_JNI_SEND_DURATION_UPDATE_EVENT 3085
 #define ERROR_JNI_SEND_AUDIO_SPECTRUM_EVENT 3086
+#define ERROR_JNI_SEND_PLAYER_TIME_EVENT 3087
+#define ERROR_JNI_SEND_PLAYER_FRAME_EVENT 3088
 
 #endif // _MEDIA_PLAYER_ERRORS_H_
@@ -26,11 +26,16 @@
 #include "Pipeline.h"
 #include "JavaPlayerEventDispatcher.h"
 #include "MediaPlayerErrors.h"
+#include <chrono>
+#include <cmath>
 
 CPipeline::CPipeline(CPipelineOptions *p_options)
     : p_event_dispatcher_(nullptr), p_options_(p_options),
       player_state_(PlayerState::Unknown),
-      player_pending_state_(PlayerState::Unknown) {}
+      player_pending_state_(PlayerState::Unknown), time_update_interval_(-1),
+      last_time_update_(0), last_time_update_serial_(-1), frame_event_id_(-1),
+      is_frame_event_after_seek_(false), frame_event_serial_(-1),
+      displayed_serial_(-1) {}
 
 CPipeline::~CPipeline() {
   if (nullptr != p_options_) {
@@ -51,6 +56,101 @@ void CPipeline::SetEventDispatcher(
 
 void CPipeline::Dispose() {}
 
+uint32_t CPipeline::GetStatus(PlayerStatus *p_status) {
+  uint32_t err = GetStreamTime(&p_status->stream_time_);
+  if (ERROR_NONE != err) {
+    return err;
+  }
+  err = GetRate(&p_status->rate_);
+  if (ERROR_NONE != err) {
+    return err;
+  }
+  err = GetFps(&p_status->fps_);
+  if (ERROR_NONE != err) {
+    return err;
+  }
+  err = GetDuration(&p_status->duration_);
+  if (ERROR_NONE != err) {
+    return err;
+  }
+  err = GetImageWidth(&p_status->image_width_);
+  if (ERROR_NONE != err) {
+    return err;
+  }
+  return GetImageHeight(&p_status->image_height_);
+}
+
+void CPipeline::SetTimeUpdateInterval(double interval) {
+  time_update_interval_ = interval;
+}
+
+void CPipeline::RequestFrameEvent(int request_id, bool after_seek) {
+  std::lock_guard<std::mutex> lock(frame_event_mutex_);
+  if (frame_event_id_ < 0 || (after_seek && !is_frame_event_after_seek_)) {
+    is_frame_event_after_seek_ = after_seek;
+    frame_event_serial_ = displayed_serial_;
+  }
+  frame_event_id_ = request_id;
+}
+
+void CPipeline::SendFrameEventForDisplayedFrame() {
+  int frame_event_id = -1;
+  {
+    std::lock_guard<std::mutex> lock(frame_event_mutex_);
+    frame_event_id = frame_event_id_;
+    frame_event_id_ = -1;
+  }
+  double time = 0;
+  if (frame_event_id >= 0 && nullptr != p_event_dispatcher_ &&
+      ERROR_NONE == GetStreamTime(&time) &&
+      !p_event_dispatcher_->SendPlayerFrameEvent(frame_event_id, time)) {
+    p_event_dispatcher_->SendPlayerMediaErrorEvent(
+        ERROR_JNI_SEND_PLAYER_FRAME_EVENT);
+  }
+}
+
+void CPipeline::UpdateTime(double pts, int serial) {
+  if (std::isnan(pts) || nullptr == p_event_dispatcher_) {
+    return;
+  }
+  int frame_event_id = -1;
+  {
+    std::lock_guard<std::mutex> lock(frame_event_mutex_);
+    // A seek starts a new serial
+    if (frame_event_id_ >= 0 &&
+        (!is_frame_event_after_seek_ || serial != frame_event_serial_)) {
+      frame_event_id = frame_event_id_;
+      frame_event_id_ = -1;
+    }
+    displayed_serial_ = serial;
+  }
+  if (frame_event_id >= 0 &&
+      !p_event_dispatcher_->SendPlayerFrameEvent(frame_event_id, pts)) {
+    p_event_dispatcher_->SendPlayerMediaErrorEvent(
+        ERROR_JNI_SEND_PLAYER_FRAME_EVENT);
+  }
+
+  double interval = time_update_interval_;
+  if (interval < 0) {
+    return;
+  }
+  double now = std::chrono::duration<double>(
+                   std::chrono::steady_clock::now().time_since_epoch())
+                   .count();
+  // Throttle the events but always send the first frame after a seek, which
+  // changes the serial
+  if (serial == last_time_update_serial_ &&
+      now - last_time_update_ < interval) {
+    return;
+  }
+  last_time_update_ = now;
+  last_time_update_serial_ = serial;
+  if (!p_event_dispatcher_->SendPlayerTimeEvent(pts)) {
+    p_event_dispatcher_->SendPlayerMediaErrorEvent(
+        ERROR_JNI_SEND_PLAYER_TIME_EVENT);
+  }
+}
+
 bool CPipeline::IsPlayerState(PlayerState::State state) {
   return player_state_ == state;
 }
@@ -29,7 +29,10 @@
 #include "AudioVideoFormats.h"
 #include "PipelineOptions.h"
 #include "PlayerState.h"
+#include <atomic>
+#include <mutex>
 #include <stdint.h>
+#include <vector>
 #include <sys/stat.h>
 
 extern "C" {
@@ -62,10 +65,20 @@ public:
   virtual uint32_t Finish() = 0;
 
   virtual uint32_t Seek(double dSeekTime) = 0;
+  // While scrubbing seeks do not block and the latest seek time wins
+  virtual uint32_t SetScrubbing(bool bScrubbing) = 0;
+  // Sets the byte budget of the decoded frames cached for seeks; 0 disables it
+  virtual uint32_t SetFrameCacheCapacity(int64_t llCapacity) = 0;
+  // Sets the priority of the image decoder with the other players
+  virtual uint32_t SetDecoderPriority(int iPriority) = 0;
+  // Sets the bytes of the packets read ahead, e.g. the share of a budget
+  virtual uint32_t SetMaxPacketBytes(int64_t llMaxPacketBytes) = 0;
 
   virtual uint32_t GetDuration(double *pdDuration) = 0;
   virtual uint32_t GetStreamTime(double *pdStreamTime) = 0;
   virtual uint32_t GetFps(double *pdFps) = 0;
+  // Gets the key frame times in sec; empty while the index is being built
+  virtual uint32_t GetKeyFrameTimes(std::vector<double> *p_times) = 0;
   virtual uint32_t GetImageWidth(int *iWidth) const = 0;
   virtual uint32_t GetImageHeight(int *iheight) const = 0;
 
@@ -81,6 +94,18 @@ public:
   virtual uint32_t SetAudioSyncDelay(long lMillis) = 0;
   virtual uint32_t GetAudioSyncDelay(long *plMillis) = 0;
 
+  // Gets the commonly polled properties at once
+  uint32_t GetStatus(PlayerStatus *p_status);
+
+  // Sets the minimum time in sec between two time events; zero sends an event
+  // for every displayed frame and a negative interval sends none
+  void SetTimeUpdateInterval(double interval);
+
+  // Requests a frame event with the id for the next displayed frame or, after
+  // a seek, for the first frame displayed from the seek on. A new request
+  // replaces a pending one but keeps waiting for a pending seek.
+  void RequestFrameEvent(int request_id, bool after_seek);
+
 #ifdef SDL_ENABLED
   virtual uint32_t GetWindowWidth(int *p_width) const = 0;
   virtual uint32_t GetWindowHeight(int *p_height) const = 0;
@@ -97,11 +122,23 @@ protected:
   PlayerState::State
       player_pending_state_; // This is necessary to get from stalled
                              // into the next correct state
+  std::atomic<double> time_update_interval_;
+  double last_time_update_; // Wall time of the last time event in sec
+  int last_time_update_serial_;
+  std::mutex frame_event_mutex_;
+  int frame_event_id_; // Negative while no frame event is requested
+  bool is_frame_event_after_seek_;
+  int frame_event_serial_; // The displayed serial when the seek was requested
+  int displayed_serial_;
 
   bool IsPlayerState(PlayerState::State state);
   void SetPendingPlayerState();
   void UpdatePlayerState(PlayerState::State new_state);
   void SetPlayerState(PlayerState::State new_state, bool silent);
+  void UpdateTime(double pts, int serial);
+  // Sends a requested frame event for the frame on display, for commands that
+  // display no new frame
+  void SendFrameEventForDisplayedFrame();
 #ifdef SDL_ENABLED
   void MapSdlToJavaKey(SDL_Keycode sdlkeyCode);
   void DispatchKeyEvent(int javaKeyCode);
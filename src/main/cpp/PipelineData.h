@@ -45,8 +45,14 @@ public:
   virtual uint32_t GetImageHeight(int *p_height) const = 0;
   virtual uint32_t GetAudioFormat(AudioFormat *p_audio_format) const = 0;
   virtual uint32_t GetPixelFormat(PixelFormat *p_pixel_format) const = 0;
-  virtual uint32_t UpdateImageBuffer(uint8_t *p_image_buffer,
-                                     const long len) = 0;
+  virtual uint32_t UpdateImageBuffer(uint8_t *p_image_buffer, const long len,
+                                     bool *p_new_image) = 0;
+  virtual uint32_t
+  GetRemainingTimeToDisplay(double *p_remaining_time) const = 0;
+  virtual uint32_t SetImageOutputSize(int width, int height) = 0;
+  virtual uint32_t SetDisplaySize(int width, int height) = 0;
+  virtual uint32_t GetImageQualityReduction(int *p_reduction) const = 0;
+  virtual uint32_t GetImagePts(double *p_pts) const = 0;
   virtual uint32_t UpdateAudioBuffer(uint8_t *p_audio_buffer,
                                      const long len) = 0;
 };
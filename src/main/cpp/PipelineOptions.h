@@ -30,6 +30,8 @@
 #include <string.h>
 #include <string>
 
+#include "DecoderOptions.h"
+#include "QueueOptions.h"
 #include "FfmpegJniUtils.h"
 
 using namespace std;
@@ -48,11 +50,31 @@ public:
   inline const int GetAudioBufferSizeInBy() const {
     return audio_buffer_size_in_by_;
   }
+  // The directory to cache key frame indices in; empty for no cache
+  inline const string &GetKeyFrameIndexCacheDirectory() const {
+    return key_frame_index_cache_dir_;
+  }
+  inline void SetKeyFrameIndexCacheDirectory(const char *cache_dir) {
+    key_frame_index_cache_dir_ = cache_dir;
+  }
+  inline const DecoderOptions &GetDecoderOptions() const {
+    return decoder_options_;
+  }
+  inline void SetDecoderOptions(const DecoderOptions &options) {
+    decoder_options_ = options;
+  }
+  inline const QueueOptions &GetQueueOptions() const { return queue_options_; }
+  inline void SetQueueOptions(const QueueOptions &options) {
+    queue_options_ = options;
+  }
 
 private:
   AudioFormat audio_format_;
   PixelFormat pixel_format_;
   int audio_buffer_size_in_by_;
+  string key_frame_index_cache_dir_;
+  DecoderOptions decoder_options_;
+  QueueOptions queue_options_;
 };
 
 #endif //_PIPELINE_OPTIONS_H_
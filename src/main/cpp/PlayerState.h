@@ -14,4 +14,36 @@ enum State {
 };
 }
 
+// Commonly polled properties of a player, gathered by one call
+//
+// The JNI layer passes them to java as one array of doubles in the order of
+// the fields; the indices must match those in FfmpegMediaPlayer.java.
+struct PlayerStatus {
+  enum Field {
+    kStreamTime = 0,
+    kRate = 1,
+    kFps = 2,
+    kDuration = 3,
+    kImageWidth = 4,
+    kImageHeight = 5,
+    kNumFields = 6
+  };
+
+  double stream_time_;
+  float rate_;
+  double fps_;
+  double duration_;
+  int image_width_;
+  int image_height_;
+
+  void CopyTo(double *p_fields) const {
+    p_fields[kStreamTime] = stream_time_;
+    p_fields[kRate] = rate_;
+    p_fields[kFps] = fps_;
+    p_fields[kDuration] = duration_;
+    p_fields[kImageWidth] = image_width_;
+    p_fields[kImageHeight] = image_height_;
+  }
+};
+
 #endif
@@ -0,0 +1,20 @@
+#include <cstdint>
+
+#ifndef QUEUE_OPTIONS_H_
+#define QUEUE_OPTIONS_H_
+
+// Sizes of the queues of a player, which trade the memory of the player
+// against how far it reads and decodes ahead
+struct QueueOptions {
+  // Bytes of the audio and image packet queues together
+  int64_t max_packet_bytes = 15 * 1024 * 1024;
+  // Frames of the image and audio frame queues
+  int image_frame_queue_size = 3;
+  int audio_frame_queue_size = 9;
+  // A packet queue has enough packets with more than min_packets packets
+  // that last more than min_packets_duration sec
+  int min_packets = 25;
+  double min_packets_duration = 1.0;
+};
+
+#endif QUEUE_OPTIONS_H_
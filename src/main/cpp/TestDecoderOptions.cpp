@@ -0,0 +1,31 @@
+#include "gtest/gtest.h"
+
+#include "DecoderOptions.h"
+
+TEST(DecoderOptionsTest, QualityReductionTest) {
+  DecoderOptions options;
+  options.adaptive_quality = true;
+
+  // One step per halving of the frame in both dimensions
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 1920, 1080));
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 961, 540));
+  ASSERT_EQ(1, options.GetQualityReduction(1920, 1080, 960, 540));
+  ASSERT_EQ(1, options.GetQualityReduction(1920, 1080, 960, 271));
+  ASSERT_EQ(1, options.GetQualityReduction(1920, 1080, 481, 270));
+  ASSERT_EQ(2, options.GetQualityReduction(1920, 1080, 480, 270));
+  ASSERT_EQ(4, options.GetQualityReduction(1920, 1080, 120, 67));
+
+  // The quality goes back up as the display grows
+  ASSERT_EQ(1, options.GetQualityReduction(1920, 1080, 640, 360));
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 1280, 720));
+}
+
+TEST(DecoderOptionsTest, FullQualityTest) {
+  DecoderOptions options;
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 480, 270));
+
+  // Without a display size the frames are shown at their size
+  options.adaptive_quality = true;
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 0, 0));
+  ASSERT_EQ(0, options.GetQualityReduction(1920, 1080, 0, 270));
+}
@@ -0,0 +1,119 @@
+#include "gtest/gtest.h"
+
+#include "DecoderScheduler.h"
+
+#include <atomic>
+#include <chrono>
+#include <thread>
+#include <vector>
+
+static bool NotAborted() { return false; }
+
+TEST(DecoderSchedulerTest, AcquireReleaseTest) {
+  DecoderScheduler scheduler(2);
+  ASSERT_EQ(1, scheduler.Acquire(0, 1, NotAborted));
+  ASSERT_EQ(1, scheduler.Acquire(1, 1, NotAborted));
+  scheduler.Release(1);
+  scheduler.Release(1);
+  ASSERT_EQ(2, scheduler.GetNumSlots());
+
+  scheduler.SetNumSlots(0);
+  ASSERT_EQ(1, scheduler.GetNumSlots());
+}
+
+TEST(DecoderSchedulerTest, ThreadsTest) {
+  DecoderScheduler scheduler(4);
+  std::atomic<bool> is_aborted(false);
+
+  // A decoder holds a slot per thread, at most all slots
+  ASSERT_EQ(3, scheduler.Acquire(0, 3, NotAborted));
+  std::thread waiter([&scheduler, &is_aborted] {
+    ASSERT_EQ(0, scheduler.Acquire(0, 2, [&is_aborted] {
+      return is_aborted.load();
+    }));
+  });
+  std::this_thread::sleep_for(std::chrono::milliseconds(50));
+  is_aborted = true;
+  waiter.join();
+  scheduler.Release(3);
+  ASSERT_EQ(4, scheduler.Acquire(0, 8, NotAborted));
+  scheduler.Release(4);
+}
+
+TEST(DecoderSchedulerTest, AbortTest) {
+  DecoderScheduler scheduler(1);
+  std::atomic<bool> is_aborted(false);
+  std::atomic<bool> is_done(false);
+  scheduler.Acquire(DecoderScheduler::kHighestPriority, 1, NotAborted);
+
+  // A decoder that waits for the held slot returns once it is aborted
+  std::thread waiter([&scheduler, &is_aborted, &is_done] {
+    DecoderScheduler::Slot slot(&scheduler, 0, 1,
+                                [&is_aborted] { return is_aborted.load(); });
+    is_done = true;
+  });
+  std::this_thread::sleep_for(std::chrono::milliseconds(50));
+  ASSERT_FALSE(is_done);
+  is_aborted = true;
+  waiter.join();
+  ASSERT_TRUE(is_done);
+
+  // The aborted decoder took no slot
+  scheduler.Release(1);
+  ASSERT_EQ(1, scheduler.Acquire(0, 1, NotAborted));
+  scheduler.Release(1);
+}
+
+TEST(DecoderSchedulerTest, PriorityTest) {
+  DecoderScheduler scheduler(1);
+  std::mutex mutex;
+  std::vector<int> order;
+  scheduler.Acquire(DecoderScheduler::kHighestPriority, 1, NotAborted);
+
+  // Ask for the slot in reverse order of the priorities while it is held
+  std::vector<std::thread> threads;
+  for (int priority = 2; priority >= 0; --priority) {
+    threads.push_back(std::thread([&scheduler, &mutex, &order, priority] {
+      DecoderScheduler::Slot slot(&scheduler, priority, 1, NotAborted);
+      std::lock_guard<std::mutex> lock(mutex);
+      order.push_back(priority);
+    }));
+    std::this_thread::sleep_for(std::chrono::milliseconds(20));
+  }
+  scheduler.Release(1);
+  for (std::thread &thread : threads) {
+    thread.join();
+  }
+
+  ASSERT_EQ(3, order.size());
+  ASSERT_EQ(0, order[0]);
+  ASSERT_EQ(1, order[1]);
+  ASSERT_EQ(2, order[2]);
+}
+
+TEST(DecoderSchedulerTest, AgingTest) {
+  DecoderScheduler scheduler(1);
+  std::mutex mutex;
+  std::vector<int> order;
+  scheduler.Acquire(DecoderScheduler::kHighestPriority, 1, NotAborted);
+
+  // A decoder with a low priority that waited long goes before a decoder
+  // with the highest priority that just asked
+  std::vector<std::thread> threads;
+  for (int priority : {2, 0}) {
+    threads.push_back(std::thread([&scheduler, &mutex, &order, priority] {
+      DecoderScheduler::Slot slot(&scheduler, priority, 1, NotAborted);
+      std::lock_guard<std::mutex> lock(mutex);
+      order.push_back(priority);
+    }));
+    std::this_thread::sleep_for(std::chrono::milliseconds(300));
+  }
+  scheduler.Release(1);
+  for (std::thread &thread : threads) {
+    thread.join();
+  }
+
+  ASSERT_EQ(2, order.size());
+  ASSERT_EQ(2, order[0]);
+  ASSERT_EQ(0, order[1]);
+}
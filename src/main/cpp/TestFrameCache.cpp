@@ -0,0 +1,90 @@
+#include "gtest/gtest.h"
+
+#include "FrameCache.h"
+
+// Room for all frames of the tests
+static const int64_t kCapacity = 1024 * 1024;
+
+// Creates a frame of 64 x 64 gray pixels presented at pts
+static AVFrame *CreateFrame(int64_t pts) {
+  AVFrame *p_frame = av_frame_alloc();
+  p_frame->format = AV_PIX_FMT_GRAY8;
+  p_frame->width = 64;
+  p_frame->height = 64;
+  av_frame_get_buffer(p_frame, 1);
+  p_frame->pts = pts;
+  return p_frame;
+}
+
+// Adds frames presented at [first, last) with a step of 10 to the cache
+static void AddFrames(FrameCache *p_cache, int64_t first, int64_t last,
+                      int serial) {
+  for (int64_t pts = first; pts < last; pts += 10) {
+    AVFrame *p_frame = CreateFrame(pts);
+    p_cache->Add(p_frame, serial);
+    av_frame_free(&p_frame);
+  }
+}
+
+TEST(FrameCacheTest, GetTest) {
+  FrameCache cache(kCapacity);
+  AddFrames(&cache, 0, 100, 0);
+  AVFrame *p_frame = av_frame_alloc();
+
+  ASSERT_TRUE(cache.Get(50, p_frame));
+  ASSERT_EQ(50, p_frame->pts);
+  av_frame_unref(p_frame);
+
+  // Between two frames decoded in sequence gets the later one
+  ASSERT_TRUE(cache.Get(45, p_frame));
+  ASSERT_EQ(50, p_frame->pts);
+  av_frame_unref(p_frame);
+
+  // Nothing is known about the frames before the first one and after the last
+  ASSERT_FALSE(cache.Get(-5, p_frame));
+  ASSERT_FALSE(cache.Get(95, p_frame));
+  av_frame_free(&p_frame);
+}
+
+TEST(FrameCacheTest, SerialTest) {
+  FrameCache cache(kCapacity);
+  // A seek decodes from 200 on with a new serial
+  AddFrames(&cache, 0, 50, 0);
+  AddFrames(&cache, 200, 250, 1);
+  AVFrame *p_frame = av_frame_alloc();
+
+  // The frames between 50 and 200 were never decoded
+  ASSERT_FALSE(cache.Get(100, p_frame));
+  ASSERT_TRUE(cache.Get(205, p_frame));
+  ASSERT_EQ(210, p_frame->pts);
+  av_frame_free(&p_frame);
+}
+
+TEST(FrameCacheTest, EvictionTest) {
+  FrameCache cache(kCapacity);
+  AddFrames(&cache, 0, 10, 0);
+  int64_t frame_size = cache.GetSize();
+  // Room for 4 frames
+  cache.SetCapacity(4 * frame_size);
+  AddFrames(&cache, 10, 40, 0);
+  AVFrame *p_frame = av_frame_alloc();
+
+  // Using the first frame makes the second one the least recently used
+  ASSERT_TRUE(cache.Get(0, p_frame));
+  av_frame_unref(p_frame);
+  AddFrames(&cache, 40, 50, 0);
+
+  ASSERT_EQ(4 * frame_size, cache.GetSize());
+  ASSERT_TRUE(cache.Get(0, p_frame));
+  av_frame_unref(p_frame);
+  ASSERT_FALSE(cache.Get(10, p_frame));
+  // The frame before 20 is known even though it was evicted
+  ASSERT_TRUE(cache.Get(15, p_frame));
+  ASSERT_EQ(20, p_frame->pts);
+  av_frame_unref(p_frame);
+
+  cache.SetCapacity(0);
+  ASSERT_EQ(0, cache.GetSize());
+  ASSERT_FALSE(cache.Get(0, p_frame));
+  av_frame_free(&p_frame);
+}
@@ -0,0 +1,115 @@
+#include "ImageConverter.h"
+#include "gtest/gtest.h"
+
+#include <chrono>
+#include <iostream>
+
+#define NUM_FRAMES 100
+
+static AVFrame *CreateFrame(int width, int height) {
+  AVFrame *pFrame = av_frame_alloc();
+  pFrame->format = AV_PIX_FMT_YUV420P;
+  pFrame->width = width;
+  pFrame->height = height;
+  av_frame_get_buffer(pFrame, 32);
+  // Fill the planes with a mid gray
+  for (int i = 0; i < 3; ++i) {
+    int h = i == 0 ? height : height / 2;
+    memset(pFrame->data[i], 128, pFrame->linesize[i] * h);
+  }
+  return pFrame;
+}
+
+TEST(ImageConverterTest, CreateDeleteTest) {
+  ImageConverter converter(AV_PIX_FMT_RGB24);
+  ASSERT_EQ(converter.GetNumAllocations(), 0);
+}
+
+TEST(ImageConverterTest, BytesPerPixelTest) {
+  ASSERT_EQ(ImageConverter(AV_PIX_FMT_RGB24).GetBytesPerPixel(), 3);
+  ASSERT_EQ(ImageConverter(AV_PIX_FMT_0RGB32).GetBytesPerPixel(), 4);
+  ASSERT_EQ(ImageConverter(AV_PIX_FMT_RGB32).GetBytesPerPixel(), 4);
+}
+
+TEST(ImageConverterTest, BufferTooSmallTest) {
+  AVFrame *pFrame = CreateFrame(64, 48);
+  ImageConverter converter(AV_PIX_FMT_RGB24);
+  uint8_t *pImage = (uint8_t *)av_malloc(64 * 48);
+  ASSERT_EQ(converter.Convert(pFrame, pImage, 64 * 48),
+            ERROR_FFMPEG_BUFFER_TOO_SMALL);
+  av_free(pImage);
+  av_frame_free(&pFrame);
+}
+
+TEST(ImageConverterTest, AlignedConversionDoesNotAllocateTest) {
+  // 64 x 3 bytes per row is a multiple of the alignment
+  AVFrame *pFrame = CreateFrame(64, 48);
+  ImageConverter converter(AV_PIX_FMT_RGB24);
+  long len = converter.GetImageSize(64, 48);
+  uint8_t *pImage = (uint8_t *)av_malloc(len);
+  for (int i = 0; i < NUM_FRAMES; ++i) {
+    ASSERT_EQ(converter.Convert(pFrame, pImage, len), ERROR_NONE);
+  }
+  ASSERT_EQ(converter.GetNumAllocations(), 0);
+  av_free(pImage);
+  av_frame_free(&pFrame);
+}
+
+TEST(ImageConverterTest, UnalignedConversionAllocatesOnceTest) {
+  // 30 x 3 bytes per row is not a multiple of the alignment
+  AVFrame *pFrame = CreateFrame(30, 20);
+  ImageConverter converter(AV_PIX_FMT_RGB24);
+  long len = converter.GetImageSize(30, 20);
+  uint8_t *pImage = (uint8_t *)av_malloc(len);
+  for (int i = 0; i < NUM_FRAMES; ++i) {
+    ASSERT_EQ(converter.Convert(pFrame, pImage, len), ERROR_NONE);
+  }
+  ASSERT_EQ(converter.GetNumAllocations(), 1);
+  ASSERT_EQ(pImage[0], pImage[len - 1]);
+  av_free(pImage);
+  av_frame_free(&pFrame);
+}
+
+TEST(ImageConverterTest, ScaledConversionTest) {
+  // Scale a 1080p frame down to a 480x270 thumbnail
+  AVFrame *pFrame = CreateFrame(1920, 1080);
+  ImageConverter converter(AV_PIX_FMT_RGB24);
+  long len = converter.GetImageSize(480, 270);
+  uint8_t *pImage = (uint8_t *)av_malloc(len);
+  ASSERT_EQ(converter.Convert(pFrame, 480, 270, pImage, len - 1),
+            ERROR_FFMPEG_BUFFER_TOO_SMALL);
+  for (int i = 0; i < NUM_FRAMES; ++i) {
+    ASSERT_EQ(converter.Convert(pFrame, 480, 270, pImage, len), ERROR_NONE);
+  }
+  ASSERT_EQ(converter.GetNumAllocations(), 0);
+  av_free(pImage);
+  av_frame_free(&pFrame);
+}
+
+static void RunConversionBenchmark(AVPixelFormat pixelFormat) {
+  // Converts 1080p frames and reports the time and allocations per frame
+  AVFrame *pFrame = CreateFrame(1920, 1080);
+  ImageConverter converter(pixelFormat);
+  long len = converter.GetImageSize(1920, 1080);
+  uint8_t *pImage = (uint8_t *)av_malloc(len);
+  auto start = std::chrono::high_resolution_clock::now();
+  for (int i = 0; i < NUM_FRAMES; ++i) {
+    converter.Convert(pFrame, pImage, len);
+  }
+  auto end = std::chrono::high_resolution_clock::now();
+  double millis =
+      std::chrono::duration<double, std::milli>(end - start).count();
+  std::cout << "Converted " << NUM_FRAMES << " frames of 1920x1080 to "
+            << av_get_pix_fmt_name(pixelFormat) << " in "
+            << millis / NUM_FRAMES << " ms/frame with "
+            << (double)converter.GetNumAllocations() / NUM_FRAMES
+            << " allocations/frame" << std::endl;
+  ASSERT_EQ(converter.GetNumAllocations(), 0);
+  av_free(pImage);
+  av_frame_free(&pFrame);
+}
+
+TEST(ImageConverterTest, ConversionBenchmarkTest) {
+  RunConversionBenchmark(AV_PIX_FMT_RGB24);
+  RunConversionBenchmark(AV_PIX_FMT_0RGB32);
+}
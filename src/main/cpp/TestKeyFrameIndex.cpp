@@ -0,0 +1,153 @@
+#include "gtest/gtest.h"
+
+#include "KeyFrameIndex.h"
+
+#include <cstdio>
+#include <string>
+#include <vector>
+
+#ifdef _WIN32
+#include <sys/utime.h>
+#else
+#include <utime.h>
+#endif
+
+// A stream with a time base of 1/1000 sec
+static const AVRational kTimeBase = {1, 1000};
+
+static const char *kMediaPath = "KeyFrameIndexTest.media";
+static const char *kCachePath = "KeyFrameIndexTest.kfi";
+
+// Exposes the cache of the index
+class CachedKeyFrameIndex : public KeyFrameIndex {
+public:
+  CachedKeyFrameIndex() : KeyFrameIndex(kTimeBase) {}
+  using KeyFrameIndex::Load;
+  using KeyFrameIndex::Store;
+};
+
+static void WriteFile(const char *path, const std::vector<char> &data) {
+  FILE *p_file = fopen(path, "wb");
+  ASSERT_NE(nullptr, p_file);
+  ASSERT_EQ(data.size(), fwrite(data.data(), 1, data.size(), p_file));
+  fclose(p_file);
+}
+
+static std::vector<char> ReadFile(const char *path) {
+  std::vector<char> data;
+  FILE *p_file = fopen(path, "rb");
+  if (p_file) {
+    char buffer[256];
+    size_t size;
+    while ((size = fread(buffer, 1, sizeof(buffer), p_file)) > 0) {
+      data.insert(data.end(), buffer, buffer + size);
+    }
+    fclose(p_file);
+  }
+  return data;
+}
+
+// Writes a media file and the cache of an index of three key frames
+class KeyFrameIndexCacheTest : public ::testing::Test {
+protected:
+  void SetUp() override {
+    WriteFile(kMediaPath, std::vector<char>(100, 'm'));
+    CachedKeyFrameIndex index;
+    index.Add(0, 0);
+    index.Add(2000, 2000);
+    index.Add(4000, 4000);
+    index.Complete();
+    ASSERT_TRUE(index.Store(kCachePath, kMediaPath, 0));
+  }
+
+  void TearDown() override {
+    remove(kMediaPath);
+    remove(kCachePath);
+  }
+};
+
+TEST(KeyFrameIndexTest, IncompleteIndexTest) {
+  KeyFrameIndex index(kTimeBase);
+  index.Add(0, 0);
+  int64_t seek_ts = -1;
+  std::vector<double> times;
+
+  // An index that is being built is not used
+  ASSERT_FALSE(index.IsComplete());
+  ASSERT_FALSE(index.GetSeekTimeStamp(0, &seek_ts));
+  index.GetKeyFrameTimes(&times);
+  ASSERT_TRUE(times.empty());
+}
+
+TEST(KeyFrameIndexTest, GetSeekTimeStampTest) {
+  KeyFrameIndex index(kTimeBase);
+  // Key frames every 2 sec whose seek time stamps precede their presentation
+  index.Add(40, 0);
+  index.Add(2040, 2000);
+  index.Add(4040, 4000);
+  index.Complete();
+  int64_t seek_ts = -1;
+
+  // No key frame is presented before the first one
+  ASSERT_FALSE(index.GetSeekTimeStamp(0, &seek_ts));
+  ASSERT_TRUE(index.GetSeekTimeStamp(40 * 1000, &seek_ts));
+  ASSERT_EQ(0, seek_ts);
+  ASSERT_TRUE(index.GetSeekTimeStamp(2039 * 1000, &seek_ts));
+  ASSERT_EQ(0, seek_ts);
+  ASSERT_TRUE(index.GetSeekTimeStamp(2040 * 1000, &seek_ts));
+  ASSERT_EQ(2000, seek_ts);
+  ASSERT_TRUE(index.GetSeekTimeStamp(10 * AV_TIME_BASE, &seek_ts));
+  ASSERT_EQ(4000, seek_ts);
+}
+
+TEST(KeyFrameIndexTest, GetKeyFrameTimesTest) {
+  KeyFrameIndex index(kTimeBase);
+  index.Add(2000, 2000);
+  index.Add(0, 0); // Out of order
+  index.Complete();
+  index.Add(4000, 4000); // Ignored once complete
+  std::vector<double> times;
+
+  index.GetKeyFrameTimes(&times);
+  ASSERT_EQ(2, times.size());
+  ASSERT_DOUBLE_EQ(0.0, times[0]);
+  ASSERT_DOUBLE_EQ(2.0, times[1]);
+}
+
+TEST_F(KeyFrameIndexCacheTest, LoadTest) {
+  CachedKeyFrameIndex index;
+  std::vector<double> times;
+
+  ASSERT_TRUE(index.Load(kCachePath, kMediaPath, 0));
+  index.Complete();
+  index.GetKeyFrameTimes(&times);
+  ASSERT_EQ(3, times.size());
+  ASSERT_DOUBLE_EQ(0.0, times[0]);
+  ASSERT_DOUBLE_EQ(4.0, times[2]);
+
+  // The index of another stream is not cached
+  ASSERT_FALSE(CachedKeyFrameIndex().Load(kCachePath, kMediaPath, 1));
+}
+
+TEST_F(KeyFrameIndexCacheTest, StaleMtimeTest) {
+  // Modify the media file without changing its size
+  struct utimbuf times;
+  times.actime = 1000000000;
+  times.modtime = 1000000000;
+  ASSERT_EQ(0, utime(kMediaPath, &times));
+
+  ASSERT_FALSE(CachedKeyFrameIndex().Load(kCachePath, kMediaPath, 0));
+}
+
+TEST_F(KeyFrameIndexCacheTest, TruncatedFileTest) {
+  std::vector<char> data = ReadFile(kCachePath);
+  ASSERT_FALSE(data.empty());
+
+  // Cut the header, the path, and the key frames
+  for (size_t size = 0; size < data.size(); size++) {
+    WriteFile(kCachePath,
+              std::vector<char>(data.begin(), data.begin() + size));
+    ASSERT_FALSE(CachedKeyFrameIndex().Load(kCachePath, kMediaPath, 0))
+        << "Loaded " << size << " of " << data.size() << " bytes";
+  }
+}
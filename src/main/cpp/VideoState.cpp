@@ -7,8 +7,6 @@ bool VideoState::kEnableGeneratePts =
 int VideoState::kEnableSeekByBytes =
     0; // seek by bytes 0=off 1=on -1=auto (Note: we disable seek_by_byte
        // because it raises errors while seeking)
-int VideoState::kMaxQueueSize = (15 * 1024 * 1024);
-int VideoState::kMinFrames = 25;
 
 /* no AV sync correction is done if below the minimum AV sync threshold */
 double VideoState::kAvSyncThresholdMin = 0.04;
@@ -24,8 +22,12 @@ int VideoState::kSampleCorrectionMaxPercent = 10; // int
 /* we use about AUDIO_DIFF_AVG_NB A-V differences to make the average */
 int VideoState::kAudioDiffAvgNum = 20; // int
 
-int VideoState::kVideoPictureQueueSize = 3; // int
-int VideoState::kSampleQueueSize = 9;       // int
+// Bytes of the frames of a group of pictures that are played backward; every
+// other frame of larger groups is skipped, as often as needed to fit. About
+// 20 frames in 1080p; the group displayed and the group decoded take twice.
+int64_t VideoState::kReverseMaxGopBytes = 64 * 1024 * 1024;
+// Speed in both directions from which only the key frames are decoded
+double VideoState::kKeyFrameOnlyMinSpeed = 8.0;
 
 int VideoState::OpenStreamComponent(int stream_index) {
   AVCodecContext *p_codec_context;
@@ -79,6 +81,29 @@ int VideoState::OpenStreamComponent(int stream_index) {
     goto fail;
   }
 
+  if (p_codec_context->codec_type == AVMEDIA_TYPE_VIDEO) {
+    if (decoder_options_.thread_count > 0) {
+      av_dict_set_int(&p_dict, "threads", decoder_options_.thread_count, 0);
+    }
+    // Frame threads go on decoding after the packet was sent to the codec,
+    // i.e. outside of the slots of the scheduler, whereas slice threads only
+    // run while the codec decodes; so decode slices in parallel by default
+    p_codec_context->thread_type = decoder_options_.thread_type
+                                       ? decoder_options_.thread_type
+                                       : FF_THREAD_SLICE;
+    if (decoder_options_.lowres > p_codec->max_lowres) {
+      av_log(NULL, AV_LOG_WARNING,
+             "The maximum value for lowres supported by the decoder is %d\n",
+             p_codec->max_lowres);
+    }
+    p_codec_context->lowres =
+        FFMIN(FFMAX(decoder_options_.lowres, 0), p_codec->max_lowres);
+    image_lowres_ = p_codec_context->lowres;
+    max_lowres_ = p_codec->max_lowres;
+    if (decoder_options_.skip_loop_filter) {
+      p_codec_context->skip_loop_filter = AVDISCARD_ALL;
+    }
+  }
   if (!av_dict_get(p_dict, "threads", NULL, 0)) {
     av_dict_set(&p_dict, "threads", "auto", 0);
   }
@@ -171,6 +196,13 @@ int VideoState::OpenStreamComponent(int stream_index) {
 
     p_image_decoder_ = new Decoder(p_codec_context, p_image_packet_queue_,
                                    &continue_read_thread_);
+    // The image decoders of all players share the processor by priority;
+    // a codec with frame threads can't be bound by the slots of its decoder
+    if (p_codec_context->active_thread_type != FF_THREAD_FRAME) {
+      p_image_decoder_->SetScheduler(DecoderScheduler::GetInstance());
+    }
+    p_image_decoder_->SetPriority(decoder_priority_);
+    UpdateImageQuality();
     if ((ret = p_image_decoder_->Start(
              [this] { DecodeImagePacketsToFrames(); })) < 0) {
       goto out;
@@ -200,6 +232,15 @@ int VideoState::GetImageFrame(AVFrame *frame) {
   }
 
   if (got_frame) {
+    // Cache the frame before it might be dropped, so that the cache sees every
+    // frame the decoder outputs; frames decoded from key frames only would
+    // chain key frames as if no frame was in between, and frames decoded
+    // backward would evict the frames that stepping backward needs
+    int serial = p_image_decoder_->GetSerial();
+    if (serial != uncached_image_serial_) {
+      p_image_frame_cache_->Add(frame, serial);
+    }
+
     double time = frame->pts != AV_NOPTS_VALUE
                       ? av_q2d(p_image_stream_->time_base) * frame->pts
                       : NAN;
@@ -254,6 +295,20 @@ int VideoState::QueueImage(AVFrame *p_image_frame, double pts, double duration,
   return 0;
 }
 
+int VideoState::QueueDecodedImage(AVFrame *p_image_frame, double duration,
+                                  int serial) {
+  AVRational time_base = p_image_stream_->time_base;
+  double pts = (p_image_frame->pts == AV_NOPTS_VALUE)
+                   ? NAN
+                   : p_image_frame->pts * av_q2d(time_base);
+  // Calculate the frame position in the file
+  int frame_pos =
+      (p_image_frame->pts * time_base.num * p_image_stream_->r_frame_rate.num) /
+      (time_base.den * p_image_stream_->r_frame_rate.den);
+  return QueueImage(p_image_frame, pts, duration, p_image_frame->pkt_pos,
+                    frame_pos, serial);
+}
+
 void VideoState::CloseStreamComponent(int stream_index) {
   AVCodecParameters *p_codec_parameters;
 
@@ -298,9 +353,10 @@ bool VideoState::StreamHasEnoughPackets(const AVStream &stream, int stream_id,
                                         const PacketQueue &packet_queue) {
   return stream_id < 0 || packet_queue.IsAbortRequested() ||
          (stream.disposition & AV_DISPOSITION_ATTACHED_PIC) ||
-         packet_queue.getNumberOfPackets() > kMinFrames &&
+         packet_queue.getNumberOfPackets() > queue_options_.min_packets &&
              (!packet_queue.GetDuration() ||
-              av_q2d(stream.time_base) * packet_queue.GetDuration() > 1.0);
+              av_q2d(stream.time_base) * packet_queue.GetDuration() >
+                  queue_options_.min_packets_duration);
 }
 
 int VideoState::CheckStreamSpecifier(AVFormatContext *p_format_context,
@@ -461,7 +517,7 @@ int VideoState::DecodeAudioFrame() {
   Frame *p_audio_frame = nullptr;
   double original_sample_rate;
 
-  if (is_paused_) {
+  if (is_paused_ || is_reverse_) {
     return -1;
   }
 
@@ -590,19 +646,30 @@ int VideoState::DecodeAudioFrame() {
 VideoState::VideoState(int audio_buffer_size)
     : abort_request_(false), is_paused_(true),
       queue_attachments_request_(false), seek_done_(false),
-      seek_request_(false), seek_time_(0), seek_distance_(0),
+      seek_request_(false), seek_time_(0), seek_distance_(0), seek_count_(0),
+      is_scrubbing_(false),
       sync_type_(AV_SYNC_AUDIO_MASTER), frame_rate_(0.0),
       image_clock_last_set_time_(0), image_stream_index_(0),
       max_frame_duration_(0), end_of_file_(false), duration_(0),
       frame_width_(0), frame_height_(0), frame_aspect_ratio_(av_make_q(0, 0)),
       is_stepping_(false), speed_request_(false), requested_speed_(1.0),
-      current_speed_(1.0), audio_disabled_(false), video_disabled_(false),
+      current_speed_(1.0), is_key_frame_only_(false),
+      uncached_image_serial_(-1), display_width_(0),
+      display_height_(0), quality_request_(false), quality_reduction_(0),
+      image_lowres_(0), max_lowres_(0), is_reverse_(false),
+      reverse_start_pts_(AV_NOPTS_VALUE), reverse_gop_end_(AV_NOPTS_VALUE),
+      reverse_gop_key_pts_(AV_NOPTS_VALUE), is_reverse_gop_open_(false),
+      audio_disabled_(false), video_disabled_(false),
       last_video_stream_(0), last_audio_stream_(0), filename_(nullptr),
       p_audio_packet_queue_(nullptr), p_image_packet_queue_(nullptr),
       p_audio_frame_queue_(nullptr), p_image_frame_queue_(nullptr),
+      p_image_frame_cache_(nullptr),
       p_audio_clock_(nullptr), p_image_clock_(nullptr),
       p_external_clock_(nullptr), p_audio_decoder_(nullptr),
       p_image_decoder_(nullptr), p_reader_thread_(nullptr),
+      p_key_frame_index_(nullptr),
+      max_packet_bytes_(queue_options_.max_packet_bytes),
+      decoder_priority_(DecoderScheduler::kHighestPriority),
       p_input_format_(nullptr), p_format_context(nullptr), swr_ctx(nullptr),
       p_audio_stream_(nullptr), p_image_stream_(nullptr),
       audio_stream_index_(0), audio_pts_(0.0), audio_serial_(0),
@@ -642,7 +709,9 @@ int VideoState::CreateVideoState(VideoState **pp_video_state,
   // Handle frame queues
   if (FrameQueue::CreateFrameQueue(&(*pp_video_state)->p_audio_frame_queue_,
                                    (*pp_video_state)->p_audio_packet_queue_,
-                                   kSampleQueueSize, true)) {
+                                   (*pp_video_state)
+                                       ->queue_options_.audio_frame_queue_size,
+                                   true)) {
     av_log(NULL, AV_LOG_ERROR, "Unable to create frame queue for audio");
     delete *pp_video_state;
     return ENOMEM;
@@ -650,11 +719,20 @@ int VideoState::CreateVideoState(VideoState **pp_video_state,
 
   if (FrameQueue::CreateFrameQueue(&(*pp_video_state)->p_image_frame_queue_,
                                    (*pp_video_state)->p_image_packet_queue_,
-                                   kVideoPictureQueueSize, true)) {
+                                   (*pp_video_state)
+                                       ->queue_options_.image_frame_queue_size,
+                                   true)) {
     av_log(NULL, AV_LOG_ERROR, "Unable to create frame queue for video");
     delete *pp_video_state;
     return ENOMEM;
   }
+  // Disabled until the player sets a byte budget
+  (*pp_video_state)->p_image_frame_cache_ = new (std::nothrow) FrameCache(0);
+  if (!(*pp_video_state)->p_image_frame_cache_) {
+    av_log(NULL, AV_LOG_ERROR, "Unable to create frame cache for video");
+    delete *pp_video_state;
+    return ENOMEM;
+  }
 
   // Create clocks
   int *p_audio_serial = nullptr;
@@ -692,6 +770,10 @@ VideoState::~VideoState() {
     delete p_reader_thread_;
     p_reader_thread_ = nullptr;
   }
+  if (p_key_frame_index_) {
+    delete p_key_frame_index_; // Aborts a build in progress
+    p_key_frame_index_ = nullptr;
+  }
 
   if (audio_stream_index_ >= 0) {
     CloseStreamComponent(audio_stream_index_);
@@ -724,6 +806,10 @@ VideoState::~VideoState() {
     delete p_audio_frame_queue_;
   }
 
+  if (p_image_frame_cache_) {
+    delete p_image_frame_cache_;
+  }
+
   if (p_image_clock_) {
     delete p_image_clock_;
   }
@@ -755,11 +841,57 @@ int VideoState::ReadPacketsToQueues() {
       current_speed_ = requested_speed_;
       speed_request_ = false;
       queue_attachments_request_ = true;
+      bool is_reverse = current_speed_ < 0 && p_image_stream_;
+      bool is_key_frame_only =
+          fabs(current_speed_) >= kKeyFrameOnlyMinSpeed && p_image_stream_;
+      // Decoding all frames again starts at a key frame
+      bool is_full_decode = is_key_frame_only_ && !is_key_frame_only;
+      is_key_frame_only_ = is_key_frame_only;
+      if (is_reverse != is_reverse_ || is_full_decode) {
+        is_reverse_ = is_reverse;
+        // Read the packets in the new direction or all packets
+        SeekToDisplayedTime();
+      }
+    }
+
+    if (quality_request_) {
+      quality_request_ = false;
+      // The image decoder takes the quality at the flush of the seek
+      if (UpdateImageQuality()) {
+        SeekToDisplayedTime();
+      }
     }
 
     if (seek_request_) {
-      ret =
-          av_seek_frame(p_format_context, -1, seek_time_, AVSEEK_FLAG_BACKWARD);
+      int64_t seek_time;
+      int seek_count;
+      {
+        std::lock_guard<std::mutex> lock(seek_mutex_);
+        seek_time = seek_time_;
+        seek_count = seek_count_;
+      }
+      if (is_reverse_) {
+        // Backward the group of pictures with the seek time is read first
+        AVRational time_base = p_image_stream_->time_base;
+        reverse_start_pts_ =
+            av_rescale_q(seek_time, AV_TIME_BASE_Q, time_base) + 1;
+        reverse_gop_end_ = reverse_start_pts_;
+        is_reverse_gop_open_ = false;
+        ret = 0;
+      } else {
+        // Seek straight to the key frame before the seek time if it is
+        // indexed; otherwise the container might seek to an earlier key frame
+        int seek_stream_index = -1;
+        int64_t seek_ts = seek_time;
+        if (p_key_frame_index_ &&
+            p_key_frame_index_->GetSeekTimeStamp(seek_time, &seek_ts)) {
+          seek_stream_index = image_stream_index_;
+        } else {
+          seek_ts = seek_time;
+        }
+        ret = av_seek_frame(p_format_context, seek_stream_index, seek_ts,
+                            AVSEEK_FLAG_BACKWARD);
+      }
 
       if (ret < 0) {
         av_log(NULL, AV_LOG_ERROR, "%s: error while seeking\n",
@@ -774,19 +906,27 @@ int VideoState::ReadPacketsToQueues() {
           p_image_packet_queue_->PutFlushPacket();
         }
         p_external_clock_->SetTime(
-            seek_time_ / (double)AV_TIME_BASE,
+            seek_time / (double)AV_TIME_BASE,
             0); // 0 != -1 which will return NAN for interim time
       }
-      seek_request_ = false;
-      seek_done_ =
-          true; // Seek is done here, not in the Audio and Frame packet threads
-      queue_attachments_request_ = true;
-      end_of_file_ = false;
-
+      // Step before clearing the request, so that the paused player is never
+      // seen as idle before the frame at the seek time is displayed
       if (is_paused_) {
         step_to_next_frame_callback(); // Assume that the step callback is set
                                        // -- otherwise fail hard here
       }
+
+      {
+        std::lock_guard<std::mutex> lock(seek_mutex_);
+        // A seek that replaced this one while seeking runs in the next loop
+        if (seek_count == seek_count_) {
+          seek_request_ = false;
+          seek_done_ = true; // Seek is done here, not in the Audio and Frame
+                             // packet threads
+        }
+      }
+      queue_attachments_request_ = true;
+      end_of_file_ = false;
     }
     if (queue_attachments_request_) {
       if (p_image_stream_ &&
@@ -803,9 +943,10 @@ int VideoState::ReadPacketsToQueues() {
 
     /* if the queues are full, no need to read more */
     if (p_audio_packet_queue_->GetSize() + p_image_packet_queue_->GetSize() >
-            kMaxQueueSize ||
-        (StreamHasEnoughPackets(*p_audio_stream_, audio_stream_index_,
-                                *p_audio_packet_queue_) &&
+            max_packet_bytes_ ||
+        ((is_reverse_ ||
+          StreamHasEnoughPackets(*p_audio_stream_, audio_stream_index_,
+                                 *p_audio_packet_queue_)) &&
          StreamHasEnoughPackets(*p_image_stream_, image_stream_index_,
                                 *p_image_packet_queue_))) {
       /* wait 10 ms */
@@ -827,6 +968,21 @@ int VideoState::ReadPacketsToQueues() {
         Seek(GetStartTime(), 0);
       }
     }
+    if (is_key_frame_only_ || is_reverse_) {
+      // Mark the serial before its packets are queued; leaving these modes
+      // seeks to a new serial
+      uncached_image_serial_ = p_image_packet_queue_->GetSerial();
+    }
+    if (is_reverse_) {
+      // Backward the audio packets are not read
+      if (ReadImagePacketInReverse(pkt) < 0) {
+        /* wait 10 ms */
+        std::unique_lock<std::mutex> locker(wait_mutex);
+        continue_read_thread_.wait_for(locker, std::chrono::milliseconds(10));
+        locker.unlock();
+      }
+      continue;
+    }
     ret = av_read_frame(p_format_context, pkt);
     if (ret < 0) {
       if ((ret == AVERROR_EOF || avio_feof(p_format_context->pb)) &&
@@ -870,7 +1026,10 @@ int VideoState::ReadPacketsToQueues() {
     if (pkt->stream_index == audio_stream_index_ && pkt_in_play_range) {
       p_audio_packet_queue_->Put(pkt);
     } else if (pkt->stream_index == image_stream_index_ && pkt_in_play_range &&
-               !(p_image_stream_->disposition & AV_DISPOSITION_ATTACHED_PIC)) {
+               !(p_image_stream_->disposition & AV_DISPOSITION_ATTACHED_PIC) &&
+               (!is_key_frame_only_ || (pkt->flags & AV_PKT_FLAG_KEY))) {
+      // At high speeds the decoder only decodes the key frames instead of
+      // dropping the decoded frames that are late
       p_image_packet_queue_->Put(pkt);
     } else {
       av_packet_unref(pkt);
@@ -890,6 +1049,123 @@ fail:
   return 0;
 }
 
+void VideoState::SeekToDisplayedTime() {
+  std::lock_guard<std::mutex> lock(seek_mutex_);
+  if (!seek_request_) {
+    double time = GetTime();
+    int64_t seek_time =
+        isnan(time) ? seek_time_ : (int64_t)(time * AV_TIME_BASE);
+    if (is_reverse_ && frame_rate_ > 0) {
+      seek_time -= (int64_t)(AV_TIME_BASE / (2 * frame_rate_));
+    }
+    seek_time_ = seek_time;
+    seek_distance_ = 0;
+    seek_count_++;
+    seek_request_ = true;
+    seek_done_ = false;
+  }
+}
+
+bool VideoState::UpdateImageQuality() {
+  if (!decoder_options_.adaptive_quality || !p_image_decoder_) {
+    return false;
+  }
+  int reduction = decoder_options_.GetQualityReduction(
+      frame_width_, frame_height_, display_width_, display_height_);
+  if (reduction == quality_reduction_) {
+    return false;
+  }
+  quality_reduction_ = reduction;
+  // Decode at a lower resolution if the codec supports it; otherwise skip the
+  // loop filter, which is hardly visible in scaled down images
+  int lowres = FFMIN(image_lowres_ + reduction, max_lowres_);
+  AVDiscard skip_loop_filter =
+      decoder_options_.skip_loop_filter ? AVDISCARD_ALL : AVDISCARD_DEFAULT;
+  if (reduction > 0 && lowres == image_lowres_) {
+    skip_loop_filter = AVDISCARD_ALL;
+  }
+  p_image_decoder_->SetQuality(lowres, skip_loop_filter);
+  // Frames of the former quality would be displayed at the new size
+  p_image_frame_cache_->Clear();
+  return true;
+}
+
+int VideoState::ReadImagePacketInReverse(AVPacket *pkt) {
+  if (reverse_gop_end_ == AV_NOPTS_VALUE) {
+    return AVERROR_EOF; // Played backward to the start of the stream
+  }
+  if (!is_reverse_gop_open_) {
+    // Seek to the key frame before the end of the group of pictures
+    int64_t seek_ts = reverse_gop_end_ - 1;
+    int64_t time = av_rescale_q_rnd(seek_ts, p_image_stream_->time_base,
+                                    AV_TIME_BASE_Q, AV_ROUND_DOWN);
+    int64_t index_ts;
+    if (p_key_frame_index_ &&
+        p_key_frame_index_->GetSeekTimeStamp(time, &index_ts)) {
+      seek_ts = index_ts;
+    }
+    int ret = av_seek_frame(p_format_context, image_stream_index_, seek_ts,
+                            AVSEEK_FLAG_BACKWARD);
+    if (ret < 0) {
+      av_log(NULL, AV_LOG_ERROR, "%s: error while seeking backward\n",
+             p_format_context->url);
+      return ret;
+    }
+    reverse_gop_key_pts_ = AV_NOPTS_VALUE;
+    is_reverse_gop_open_ = true;
+  }
+
+  int ret = av_read_frame(p_format_context, pkt);
+  if (ret < 0) {
+    if (ret != AVERROR_EOF && !avio_feof(p_format_context->pb)) {
+      return ret;
+    }
+    // The group of pictures ends with the stream
+    p_image_packet_queue_->PutNullPacket(image_stream_index_);
+    is_reverse_gop_open_ = false;
+    reverse_gop_end_ = reverse_gop_key_pts_;
+    return 0;
+  }
+  if (pkt->stream_index != image_stream_index_) {
+    av_packet_unref(pkt);
+    return 0;
+  }
+  int64_t pkt_ts = pkt->pts == AV_NOPTS_VALUE ? pkt->dts : pkt->pts;
+  bool is_key = (pkt->flags & AV_PKT_FLAG_KEY) != 0;
+  if (reverse_gop_key_pts_ == AV_NOPTS_VALUE) {
+    if (!is_key) {
+      av_packet_unref(pkt); // Not decodable without the key frame
+      return 0;
+    }
+    if (pkt_ts >= reverse_gop_end_) {
+      // No key frame before the end; the start of the stream is played
+      av_packet_unref(pkt);
+      is_reverse_gop_open_ = false;
+      reverse_gop_end_ = AV_NOPTS_VALUE;
+      return 0;
+    }
+    reverse_gop_key_pts_ = pkt_ts;
+    if (is_key_frame_only_) {
+      // The group of pictures is played by its key frame
+      p_image_packet_queue_->Put(pkt);
+      p_image_packet_queue_->PutNullPacket(image_stream_index_);
+      is_reverse_gop_open_ = false;
+      reverse_gop_end_ = reverse_gop_key_pts_;
+      return 0;
+    }
+  } else if (is_key && pkt_ts >= reverse_gop_end_) {
+    // The next group of pictures starts; drain the decoder and read the group
+    // before this one
+    av_packet_unref(pkt);
+    p_image_packet_queue_->PutNullPacket(image_stream_index_);
+    is_reverse_gop_open_ = false;
+    reverse_gop_end_ = reverse_gop_key_pts_;
+    return 0;
+  }
+  p_image_packet_queue_->Put(pkt);
+  return 0;
+}
+
 /* Called when the stream is opened */
 int VideoState::DecodeAudioPacketsToFrames() {
   AVFrame *p_frame = av_frame_alloc();
@@ -947,56 +1223,203 @@ the_end:
   return ret;
 }
 
+// Frees the frames and empties the deque
+static void FreeFrames(std::deque<AVFrame *> *p_frames) {
+  for (AVFrame *p_frame : *p_frames) {
+    av_frame_free(&p_frame);
+  }
+  p_frames->clear();
+}
+
+// Frees every other frame, starting with the second one
+static void FreeEveryOtherFrame(std::deque<AVFrame *> *p_frames,
+                                int64_t *p_bytes) {
+  std::deque<AVFrame *> kept_frames;
+  for (size_t i = 0; i < p_frames->size(); i++) {
+    AVFrame *p_frame = (*p_frames)[i];
+    if (i % 2 == 0) {
+      kept_frames.push_back(p_frame);
+    } else {
+      *p_bytes -= FrameCache::GetFrameSize(p_frame);
+      av_frame_free(&p_frame);
+    }
+  }
+  p_frames->swap(kept_frames);
+}
+
 /* Called when the stream is opened */
 int VideoState::DecodeImagePacketsToFrames() {
   AVFrame *p_frame = av_frame_alloc();
-  double pts;
-  double duration;
+  AVFrame *p_cached_frame = av_frame_alloc();
   int ret;
-  int frame_pos = 0;
-  AVRational time_base = p_image_stream_->time_base;
   AVRational frame_rate =
       av_guess_frame_rate(p_format_context, p_image_stream_, NULL);
-  bool request_attachement_ = false;
+  double duration = (frame_rate.num && frame_rate.den)
+                        ? av_q2d(av_make_q(frame_rate.den, frame_rate.num))
+                        : 0;
   double image_time_base = av_q2d(p_image_stream_->time_base);
-
-  if (!p_frame) {
+  int cache_lookup_serial = -1;        // Serial of the last cache lookup
+  int64_t cached_pts = AV_NOPTS_VALUE; // Pts of the frame queued from the cache
+  // Backward the frames of a group of pictures are collected until the reader
+  // drains the decoder; then they are queued latest first while the group
+  // before is decoded
+  std::deque<AVFrame *> gop_frames;      // Frames of the group being decoded
+  std::deque<AVFrame *> reversed_frames; // Frames to queue, latest first
+  size_t reversed_gop_size = 0;          // Frames of the group reversed last
+  int64_t gop_bytes = 0;                 // Bytes of the frames of the group
+  // Every gop_stride-th frame of the group is kept; counted by gop_position
+  int gop_stride = 1;
+  int gop_position = 0;
+  int reverse_serial = -1;
+  int64_t reverse_end = AV_NOPTS_VALUE; // Exclusive end of the group decoded
+  int64_t gop_key_pts = AV_NOPTS_VALUE; // Key frame of the group decoded
+
+  if (!p_frame || !p_cached_frame) {
+    av_frame_free(&p_frame);
+    av_frame_free(&p_cached_frame);
     return AVERROR(ENOMEM);
   }
 
   for (;;) {
+    if (!reversed_frames.empty()) {
+      if (reverse_serial != p_image_packet_queue_->GetSerial()) {
+        FreeFrames(&reversed_frames); // Seeked meanwhile
+      } else if (p_image_frame_queue_->IsWritable() ||
+                 reversed_frames.size() > reversed_gop_size ||
+                 p_image_packet_queue_->getNumberOfPackets() == 0) {
+        // Wait for the display only if the group before is decoded already or
+        // there are no packets to decode
+        ret = QueueDecodedImage(reversed_frames.front(), duration,
+                                reverse_serial);
+        av_frame_free(&reversed_frames.front());
+        reversed_frames.pop_front();
+        if (seek_done_) {
+          queue_attachments_request_ = true;
+          continue_after_seek_.notify_one();
+        }
+        if (ret < 0) {
+          goto the_end;
+        }
+        continue;
+      }
+    }
+
     ret = GetImageFrame(p_frame);
 
     if (ret < 0) {
       goto the_end;
     }
 
+    if (is_reverse_) {
+      int serial = p_image_decoder_->GetSerial();
+      if (serial != reverse_serial) {
+        FreeFrames(&gop_frames);
+        FreeFrames(&reversed_frames);
+        reverse_serial = serial;
+        reverse_end = reverse_start_pts_;
+        gop_key_pts = AV_NOPTS_VALUE;
+        gop_bytes = 0;
+        gop_stride = 1;
+        gop_position = 0;
+      }
+      if (ret) {
+        if (gop_key_pts == AV_NOPTS_VALUE && p_frame->key_frame) {
+          gop_key_pts = p_frame->pts;
+        }
+        // Skip the frames that lead the key frame in an open group of pictures,
+        // the frames after the end of the group, and the frames between the
+        // kept ones of a group that is too large
+        if (gop_key_pts != AV_NOPTS_VALUE && p_frame->pts >= gop_key_pts &&
+            p_frame->pts < reverse_end && gop_position++ % gop_stride == 0) {
+          AVFrame *p_gop_frame = av_frame_alloc();
+          if (!p_gop_frame) {
+            goto the_end;
+          }
+          av_frame_move_ref(p_gop_frame, p_frame);
+          gop_frames.push_back(p_gop_frame);
+          gop_bytes += FrameCache::GetFrameSize(p_gop_frame);
+          // The decoder outputs the frames in presentation order; thin them
+          // out evenly once they exceed the budget
+          while (gop_bytes > kReverseMaxGopBytes && gop_frames.size() > 1) {
+            FreeEveryOtherFrame(&gop_frames, &gop_bytes);
+            gop_stride *= 2;
+          }
+        } else {
+          av_frame_unref(p_frame);
+        }
+      } else if (p_image_decoder_->IsFinished()) {
+        // The decoder is drained at the end of the group of pictures
+        p_image_decoder_->setFinished(false);
+        std::sort(gop_frames.begin(), gop_frames.end(),
+                  [](const AVFrame *a, const AVFrame *b) {
+                    return a->pts < b->pts;
+                  });
+        reversed_gop_size = gop_frames.size();
+        reversed_frames.insert(reversed_frames.end(), gop_frames.rbegin(),
+                               gop_frames.rend());
+        gop_frames.clear();
+        gop_bytes = 0;
+        gop_stride = 1;
+        gop_position = 0;
+        if (gop_key_pts != AV_NOPTS_VALUE) {
+          reverse_end = gop_key_pts;
+        }
+        gop_key_pts = AV_NOPTS_VALUE;
+      }
+      continue;
+    }
+
+    // Forward the frames left from playing backward are stale
+    if (reverse_serial != -1) {
+      FreeFrames(&gop_frames);
+      FreeFrames(&reversed_frames);
+      reverse_serial = -1;
+    }
+
     if (!ret) {
       continue;
     }
 
     int64_t image_seek_pts =
         seek_time_ / (image_time_base * (double)AV_TIME_BASE);
-    // Calculate the frame position in the file
-    frame_pos =
-        (p_frame->pts * time_base.num * p_image_stream_->r_frame_rate.num) /
-        (time_base.den * p_image_stream_->r_frame_rate.den);
 
+    int serial = p_image_decoder_->GetSerial();
     if (p_frame->pts < image_seek_pts) {
-       av_frame_unref(p_frame);
+      // The decoder decodes from the key frame before the seek time; queue the
+      // frame at the seek time from the cache instead of waiting for it, e.g.
+      // when stepping backward. The decoder goes on decoding from the key
+      // frame, so the cache saves the wait for the display, not the decoding
+      if (serial != cache_lookup_serial) {
+        cache_lookup_serial = serial;
+        cached_pts = AV_NOPTS_VALUE;
+        if (p_image_frame_cache_->Get(image_seek_pts, p_cached_frame)) {
+          cached_pts = p_cached_frame->pts;
+          ret = QueueDecodedImage(p_cached_frame, duration, serial);
+          av_frame_unref(p_cached_frame);
+          if (seek_done_) {
+            queue_attachments_request_ = true;
+            continue_after_seek_.notify_one();
+          }
+          if (ret < 0) {
+            goto the_end;
+          }
+        }
+      }
+      av_frame_unref(p_frame);
+      continue;
+    }
+
+    // Skip the frames queued from the cache already
+    if (serial == cache_lookup_serial && cached_pts != AV_NOPTS_VALUE &&
+        p_frame->pts <= cached_pts) {
+      av_frame_unref(p_frame);
       continue;
     }
 
     av_log(NULL, AV_LOG_TRACE, " Video frame pts = %I64d, tb = %2.7f\n",
-           p_frame->pts, av_q2d(time_base));
+           p_frame->pts, image_time_base);
 
-    duration = (frame_rate.num && frame_rate.den)
-                   ? av_q2d(av_make_q(frame_rate.den, frame_rate.num))
-                   : 0;
-    pts = (p_frame->pts == AV_NOPTS_VALUE) ? NAN
-                                           : p_frame->pts * av_q2d(time_base);
-    ret = QueueImage(p_frame, pts, duration, p_frame->pkt_pos, frame_pos,
-                     p_image_decoder_->GetSerial());
+    ret = QueueDecodedImage(p_frame, duration, serial);
 
     // Seek complete processed after we request a seek and enqueued an image
     // Actually, it would be best after we displayed an image but
@@ -1013,7 +1436,10 @@ int VideoState::DecodeImagePacketsToFrames() {
     }
   }
 the_end:
+  FreeFrames(&gop_frames);
+  FreeFrames(&reversed_frames);
   av_frame_free(&p_frame);
+  av_frame_free(&p_cached_frame);
   return 0;
 }
 
@@ -1180,6 +1606,17 @@ int VideoState::StartStream() {
     sync_type_ = AV_SYNC_VIDEO_MASTER;
   }
 
+  // Index the key frames of the image stream in the background
+  if (image_stream_index_ >= 0) {
+    p_key_frame_index_ =
+        new (std::nothrow) KeyFrameIndex(p_image_stream_->time_base);
+    if (p_key_frame_index_) {
+      p_key_frame_index_->Build(filename_, p_input_format_,
+                                image_stream_index_,
+                                key_frame_index_cache_dir_);
+    }
+  }
+
   if (update_player_state_callbacks[PlayerState::Ready]) {
     update_player_state_callbacks[PlayerState::Ready]();
   }
@@ -1230,28 +1667,41 @@ void VideoState::SetPts(double pts, int serial) {
   // Sync external clock to video clock
   Clock::SyncMasterToSlave(p_external_clock_, p_image_clock_,
                            kAvNoSyncThreshold);
+  if (pts_callback) {
+    pts_callback(pts, serial);
+  }
 }
 
 // FIXME Seek to end of stream
 /* seek in the stream */
-void VideoState::Seek(int64_t time, int64_t distance) {
+bool VideoState::Seek(int64_t time, int64_t distance) {
   // Only seek if
   // - there is no seek request in progress AND
   // - this seek time is different from the last OR
   //        this seek is different than the current PTS OR
   //		the last seek was not precise (the we might not be at seek time)
+  // While scrubbing a seek in progress is replaced if its time is different
   int64_t step = (int64_t)((1 / frame_rate_) * AV_TIME_BASE);
-  if (!seek_request_ &&
-      (fabs(time - seek_time_) >= step ||
-       fabs(time - (int64_t)(GetTime() * AV_TIME_BASE)) >= step)) {
+  std::unique_lock<std::mutex> lock(seek_mutex_);
+  bool is_new_time =
+      fabs(time - seek_time_) >= step ||
+      (!seek_request_ &&
+       fabs(time - (int64_t)(GetTime() * AV_TIME_BASE)) >= step);
+  if ((is_scrubbing_ || !seek_request_) && is_new_time) {
     std::mutex mtx;
 
     seek_time_ = time;
     seek_distance_ = distance;
+    seek_count_++;
 
     seek_request_ = true;
     seek_done_ = false;
+    lock.unlock();
     continue_read_thread_.notify_one();
+    // While scrubbing return right away; the next seek replaces this one
+    if (is_scrubbing_) {
+      return true;
+    }
     std::unique_lock<std::mutex> lck(mtx);
     // Blocks until the seek request is done which we defined by
     // enquing either an image frame or audio frame
@@ -1259,7 +1709,10 @@ void VideoState::Seek(int64_t time, int64_t distance) {
     // stressing the jog or seek
     continue_after_seek_.wait_for(lck, std::chrono::milliseconds(10),
                                   [this] { return this->seek_done_; });
+    return true;
   }
+  // A seek in progress displays a new frame, otherwise the frame is displayed
+  return seek_request_;
 }
 
 // Lot's of discussion around big endian (may have to clean this up)
@@ -1311,6 +1764,10 @@ double VideoState::ComputeTargetDelay(double delay) {
 
 /* get the current synchronization type */
 VideoState::AvSyncType VideoState::GetMasterSyncType() const {
+  // Backward the audio is muted and the images are timed by the image clock
+  if (is_reverse_) {
+    return AV_SYNC_VIDEO_MASTER;
+  }
   if (sync_type_ == AV_SYNC_VIDEO_MASTER) {
     if (p_image_stream_ != nullptr) {
       return AV_SYNC_VIDEO_MASTER;
@@ -1398,6 +1855,37 @@ void VideoState::GetAudioCallback(uint8_t *stream, int len) {
   }
 }
 
+int VideoState::SetQueueOptions(const QueueOptions &options) {
+  // The frame queues allocate their frames up front
+  FrameQueue *p_audio_frame_queue = nullptr;
+  FrameQueue *p_image_frame_queue = nullptr;
+  if (FrameQueue::CreateFrameQueue(&p_audio_frame_queue, p_audio_packet_queue_,
+                                   options.audio_frame_queue_size, true)) {
+    av_log(NULL, AV_LOG_ERROR, "Unable to create frame queue for audio");
+    return ENOMEM;
+  }
+  if (FrameQueue::CreateFrameQueue(&p_image_frame_queue, p_image_packet_queue_,
+                                   options.image_frame_queue_size, true)) {
+    av_log(NULL, AV_LOG_ERROR, "Unable to create frame queue for video");
+    delete p_audio_frame_queue;
+    return ENOMEM;
+  }
+  delete p_audio_frame_queue_;
+  delete p_image_frame_queue_;
+  p_audio_frame_queue_ = p_audio_frame_queue;
+  p_image_frame_queue_ = p_image_frame_queue;
+  queue_options_ = options;
+  max_packet_bytes_ = options.max_packet_bytes;
+  return 0;
+}
+
+void VideoState::SetDisplaySize(int width, int height) {
+  display_width_ = width;
+  display_height_ = height;
+  quality_request_ = true;
+  continue_read_thread_.notify_one();
+}
+
 int VideoState::SetSpeed(double requested_speed) {
   // If we request a different rates
   if (current_speed_ != requested_speed) {
@@ -1,7 +1,10 @@
 #ifndef VIDEOSTATE_H_
 #define VIDEOSTATE_H_
 
+#include <algorithm>
 #include <atomic>
+#include <deque>
+#include <mutex>
 #include <inttypes.h>
 #include <limits.h>
 #include <math.h>
@@ -11,7 +14,11 @@
 #include "AudioVideoFormats.h"
 #include "Clock.h"
 #include "Decoder.h"
+#include "DecoderOptions.h"
+#include "QueueOptions.h"
+#include "FrameCache.h"
 #include "FrameQueue.h"
+#include "KeyFrameIndex.h"
 #include "PacketQueue.h"
 #include "PlayerState.h"
 
@@ -88,6 +95,11 @@ public:
     step_to_next_frame_callback = func;
   }
 
+  // Called with the pts and serial of every displayed frame
+  inline void SetPtsCallback(const std::function<void(double, int)> &func) {
+    pts_callback = func;
+  }
+
   /* Controls */
   inline int GetFrameWidth() const { return frame_width_; }
   inline int GetFrameHeight() const { return frame_height_; }
@@ -104,7 +116,13 @@ public:
   } // current time in sec
   inline void ToggleMute() { is_muted_ = !is_muted_; }
   void SetPts(double pts, int serial);
-  void Seek(int64_t time, int64_t distance);
+  // Returns false if the seek is skipped since the time is displayed already
+  bool Seek(int64_t time, int64_t distance);
+
+  // While scrubbing seeks return without waiting and replace a pending seek,
+  // so that the latest seek time wins
+  inline void SetScrubbing(bool is_scrubbing) { is_scrubbing_ = is_scrubbing; }
+  inline bool IsScrubbing() const { return is_scrubbing_; }
 
   inline bool IsPaused() const { return is_paused_; }
 
@@ -113,9 +131,22 @@ public:
   inline int IsStepping() const { return is_stepping_; }
   inline void SetStepping(bool is_stepping) { is_stepping_ = is_stepping; }
 
+  inline bool IsSeekRequested() const { return seek_request_; }
+
+  // Negative speeds play the image stream backward and mute the audio; at
+  // speeds of kKeyFrameOnlyMinSpeed and above only key frames are decoded
   int SetSpeed(double requested_speed);
   inline double GetSpeed() const { return current_speed_; }
 
+  // Sets the size the images are displayed at; 0 for the image size. With
+  // adaptive quality the images are decoded at a lower quality while the
+  // display is at most half their size
+  void SetDisplaySize(int width, int height);
+
+  // Number of times the images are halved for the display; the quality is
+  // reduced by as many steps
+  inline int GetQualityReduction() const { return quality_reduction_; }
+
   inline int GetNumFrameDropsEarly() const { return num_frame_drops_early_; }
 
   inline const void GetFilename(char **pp_filename) const {
@@ -170,6 +201,51 @@ public:
 
   inline int64_t GetSeekTime() const { return seek_time_; }
 
+  // Sets the directory to cache the key frame index in; call before starting
+  // the stream
+  inline void SetKeyFrameIndexCacheDirectory(const std::string &cache_dir) {
+    key_frame_index_cache_dir_ = cache_dir;
+  }
+
+  // Sets the options of the image decoder; call before starting the stream
+  inline void SetDecoderOptions(const DecoderOptions &options) {
+    decoder_options_ = options;
+  }
+
+  // Sets the sizes of the queues; call before starting the stream. Returns
+  // ENOMEM if the frame queues cannot be created at the new sizes
+  int SetQueueOptions(const QueueOptions &options);
+
+  // Sets the bytes of the packet queues, e.g. to share a memory budget with
+  // other players; the packets read ahead shrink as they are decoded
+  inline void SetMaxPacketBytes(int64_t max_packet_bytes) {
+    max_packet_bytes_ = max_packet_bytes;
+  }
+
+  // Sets the priority of the image decoder with the other players; lower
+  // values decode first, see DecoderScheduler
+  inline void SetDecoderPriority(int priority) {
+    decoder_priority_ = priority;
+    if (p_image_decoder_) {
+      p_image_decoder_->SetPriority(priority);
+    }
+  }
+
+  // Gets the presentation times of the key frames of the image stream in sec;
+  // empty while the key frame index is being built
+  inline void GetKeyFrameTimes(std::vector<double> *p_times) const {
+    if (p_key_frame_index_) {
+      p_key_frame_index_->GetKeyFrameTimes(p_times);
+    } else {
+      p_times->clear();
+    }
+  }
+
+  // Sets the byte budget of the cache of decoded image frames; 0 disables it
+  inline void SetFrameCacheCapacity(int64_t capacity) {
+    p_image_frame_cache_->SetCapacity(capacity);
+  }
+
   inline double GetMaxFrameDuration() const { return max_frame_duration_; }
 
   inline int InterruptDecode() const { return abort_request_; }
@@ -210,6 +286,9 @@ private:
   int64_t seek_time_;
   int64_t seek_distance_; // Signed distance between the current time and the
                           // seek time
+  int seek_count_;        // Counts seek requests to detect replaced requests
+  std::mutex seek_mutex_; // Guards the seek time, distance, and count
+  std::atomic<bool> is_scrubbing_;
   AvSyncType sync_type_;  // default is AV_SYNC_AUDIO_MASTER
   double frame_rate_;     // Frame rate in Hz (frames per second)
 
@@ -228,6 +307,29 @@ private:
   double requested_speed_;
   double current_speed_;
   bool speed_request_;
+  // True if only the key frames of the image stream are read at high speeds
+  bool is_key_frame_only_;
+  // Serial of the image packets read while only key frames are read or while
+  // reading backward; their frames are kept out of the frame cache
+  std::atomic<int> uncached_image_serial_;
+
+  // Adaptive quality variables
+  std::atomic<int> display_width_;
+  std::atomic<int> display_height_;
+  std::atomic<bool> quality_request_;
+  std::atomic<int> quality_reduction_; // Times the display halves the images
+  int image_lowres_;      // Lowres the image codec was opened with
+  int max_lowres_;        // Maximum lowres of the image codec
+
+  // Backward playback variables; times are in the time base of the image
+  // stream and the ends of groups of pictures are exclusive
+  std::atomic<bool> is_reverse_;
+  std::atomic<int64_t> reverse_start_pts_; // End of the first group after a
+                                           // seek
+  int64_t reverse_gop_end_;  // End of the group read next; AV_NOPTS_VALUE at
+                             // the start of the stream
+  int64_t reverse_gop_key_pts_; // Key frame of the group being read
+  bool is_reverse_gop_open_;    // True while reading the packets of a group
 
   bool audio_disabled_; // only available at startup
   bool video_disabled_; // only availabel at startup
@@ -245,6 +347,7 @@ private:
 
   FrameQueue *p_audio_frame_queue_;
   FrameQueue *p_image_frame_queue_;
+  FrameCache *p_image_frame_cache_; // Decoded image frames for seeks
 
   Clock *p_audio_clock_;
   Clock *p_image_clock_;
@@ -254,6 +357,12 @@ private:
   Decoder *p_image_decoder_;
 
   std::thread *p_reader_thread_;
+  KeyFrameIndex *p_key_frame_index_; // Index of the image stream
+  std::string key_frame_index_cache_dir_;
+  DecoderOptions decoder_options_; // Options of the image decoder
+  QueueOptions queue_options_;     // Sizes of the queues
+  std::atomic<int64_t> max_packet_bytes_;
+  std::atomic<int> decoder_priority_;
   AVInputFormat *p_input_format_;
   AVFormatContext *p_format_context;
   struct SwrContext *swr_ctx;
@@ -309,6 +418,21 @@ private:
 
   int QueueImage(AVFrame *image_frame, double pts, double duration, int64_t pos,
                  int frame_pos, int serial);
+  // Queues the frame with the times and positions derived from its pts
+  int QueueDecodedImage(AVFrame *image_frame, double duration, int serial);
+
+  // Reads the next packet while playing backward. Seeks to the key frame of
+  // each group of pictures, queues the packets of the image stream up to the
+  // end of the group, and a null packet to have the decoder output the frames
+  // of the group. Returns AVERROR_EOF at the start of the stream.
+  int ReadImagePacketInReverse(AVPacket *pkt);
+
+  // Seeks to the displayed frame unless a seek is pending; backward the frame
+  // before it is next
+  void SeekToDisplayedTime();
+  // Sets the quality of the image decoder for the display size; returns true
+  // if it changed
+  bool UpdateImageQuality();
   void CloseStreamComponent(int stream_index);
   bool StreamHasEnoughPackets(const AVStream &p_stream, int stream_index,
                               const PacketQueue &packet_queue);
@@ -346,6 +470,7 @@ private:
   std::function<void()>
       destroy_callback; // TODO(fraudies): Possibly clean-up through destructor
   std::function<void()> step_to_next_frame_callback;
+  std::function<void(double, int)> pts_callback;
   VideoState(int audio_buffer_size);
 
   // get the current synchronization type
@@ -353,15 +478,13 @@ private:
   static bool kEnableShowFormat;
   static bool kEnableFastDecode;
   static bool kEnableGeneratePts;
-  static int kMaxQueueSize;
-  static int kMinFrames;
   static double kAvSyncThresholdMin;
   static double kAvSyncFrameDupThreshold;
   static double kAvNoSyncThreshold;
   static int kSampleCorrectionMaxPercent;
   static int kAudioDiffAvgNum;
-  static int kVideoPictureQueueSize;
-  static int kSampleQueueSize;
+  static int64_t kReverseMaxGopBytes;
+  static double kKeyFrameOnlyMinSpeed;
 
   static int CreateVideoState(VideoState **pp_video_state,
                               int audio_buffer_size);
@@ -33,11 +33,13 @@ extern "C" {
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegInitPlayer
  * Signature:
- * ([JLjava/lang/String;Ljavax/sound/sampled/AudioFormat;Ljava/awt/color/ColorSpace;I)I
+ * ([JLjava/lang/String;Ljavax/sound/sampled/AudioFormat;Ljava/awt/color/ColorSpace;IILjava/lang/String;IIIZZJIIID)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegInitPlayer(
-    JNIEnv *, jobject, jlongArray, jstring, jobject, jobject, jint);
+    JNIEnv *, jobject, jlongArray, jstring, jobject, jobject, jint, jint,
+    jstring, jint, jint, jint, jboolean, jboolean, jlong, jint, jint, jint,
+    jdouble);
 
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
@@ -162,6 +164,42 @@ JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetFps(
     JNIEnv *, jobject, jlong, jdoubleArray);
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetKeyFrameTimes
+ * Signature: (J[[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetKeyFrameTimes(
+    JNIEnv *, jobject, jlong, jobjectArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetStatus
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetStatus(
+    JNIEnv *, jobject, jlong, jdoubleArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetTimeUpdateInterval
+ * Signature: (JD)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetTimeUpdateInterval(
+    JNIEnv *, jobject, jlong, jdouble);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegRequestFrameEvent
+ * Signature: (JIZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegRequestFrameEvent(
+    JNIEnv *, jobject, jlong, jint, jboolean);
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegGetDuration
@@ -181,6 +219,42 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSeek(JNIEnv *,
                                                                  jobject, jlong,
                                                                  jdouble, jint);
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetScrubbing
+ * Signature: (JZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetScrubbing(
+    JNIEnv *, jobject, jlong, jboolean);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetFrameCacheCapacity
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetFrameCacheCapacity(
+    JNIEnv *, jobject, jlong, jlong);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetDecoderPriority
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetDecoderPriority(
+    JNIEnv *, jobject, jlong, jint, jint);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetMaxPacketBytes
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetMaxPacketBytes(
+    JNIEnv *, jobject, jlong, jlong);
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegHasAudioData
@@ -238,11 +312,65 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetColorSpace(
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
  * Method:    ffmpegUpdateImageData
- * Signature: (J[B)I
+ * Signature: (J[B[Z)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegUpdateImageData(
-    JNIEnv *, jobject, jlong, jbyteArray);
+    JNIEnv *, jobject, jlong, jbyteArray, jbooleanArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegUpdateImageBuffer
+ * Signature: (JLjava/nio/ByteBuffer;[Z)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegUpdateImageBuffer(
+    JNIEnv *, jobject, jlong, jobject, jbooleanArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetRemainingTimeToDisplay
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetRemainingTimeToDisplay(
+    JNIEnv *, jobject, jlong, jdoubleArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetImageOutputSize
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetImageOutputSize(
+    JNIEnv *, jobject, jlong, jint, jint);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegSetDisplaySize
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegSetDisplaySize(
+    JNIEnv *, jobject, jlong, jint, jint);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetImageQualityReduction
+ * Signature: (J[I)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetImageQualityReduction(
+    JNIEnv *, jobject, jlong, jintArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
+ * Method:    ffmpegGetImagePresentationTime
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer_ffmpegGetImagePresentationTime(
+    JNIEnv *, jobject, jlong, jdoubleArray);
 
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegJavaMediaPlayer
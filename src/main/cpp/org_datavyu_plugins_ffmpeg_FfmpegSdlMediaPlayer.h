@@ -30,11 +30,12 @@ extern "C" {
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegInitPlayer
- * Signature: ([JLjava/lang/String;)I
+ * Signature: ([JLjava/lang/String;Ljava/lang/String;IIIZZJIIID)I
  */
 JNIEXPORT jint JNICALL
 Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegInitPlayer(
-    JNIEnv *, jobject, jlongArray, jstring);
+    JNIEnv *, jobject, jlongArray, jstring, jstring, jint, jint, jint,
+    jboolean, jboolean, jlong, jint, jint, jint, jdouble);
 
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
@@ -162,6 +163,42 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetFps(JNIEnv *,
                                                                   jlong,
                                                                   jdoubleArray);
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegGetKeyFrameTimes
+ * Signature: (J[[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetKeyFrameTimes(
+    JNIEnv *, jobject, jlong, jobjectArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegGetStatus
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegGetStatus(
+    JNIEnv *, jobject, jlong, jdoubleArray);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetTimeUpdateInterval
+ * Signature: (JD)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetTimeUpdateInterval(
+    JNIEnv *, jobject, jlong, jdouble);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegRequestFrameEvent
+ * Signature: (JIZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegRequestFrameEvent(
+    JNIEnv *, jobject, jlong, jint, jboolean);
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegGetBalance
@@ -201,6 +238,42 @@ Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSeek(JNIEnv *,
                                                                 jobject, jlong,
                                                                 jdouble);
 
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetScrubbing
+ * Signature: (JZ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetScrubbing(
+    JNIEnv *, jobject, jlong, jboolean);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetFrameCacheCapacity
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetFrameCacheCapacity(
+    JNIEnv *, jobject, jlong, jlong);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetDecoderPriority
+ * Signature: (JII)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetDecoderPriority(
+    JNIEnv *, jobject, jlong, jint, jint);
+
+/*
+ * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
+ * Method:    ffmpegSetMaxPacketBytes
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer_ffmpegSetMaxPacketBytes(
+    JNIEnv *, jobject, jlong, jlong);
+
 /*
  * Class:     org_datavyu_plugins_ffmpeg_FfmpegSdlMediaPlayer
  * Method:    ffmpegGetImageWidth
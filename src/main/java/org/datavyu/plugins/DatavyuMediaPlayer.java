@@ -71,74 +71,69 @@ public abstract class DatavyuMediaPlayer extends NativeMediaPlayer implements Me
   }
   @Override
   public void showWindow() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerShowWindow();
-        setMute(false);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerShowWindow();
+      setMute(false);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void hideWindow() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerHideWindow();
-        setMute(true);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerHideWindow();
+      setMute(true);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public int getWindowHeight() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetWindowHeight();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetWindowHeight();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1;
   }
 
   @Override
   public int getWindowWidth() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetWindowWidth();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetWindowWidth();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1;
   }
 
   @Override
   public void setWindowSize(final int width, final int height) {
-    if (disposeLock.tryLock()) {
-      try {
-        playerSetWindowSize(width, height);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerSetWindowSize(width, height);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
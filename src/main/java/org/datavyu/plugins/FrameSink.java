@@ -0,0 +1,33 @@
+package org.datavyu.plugins;
+
+import java.awt.color.ColorSpace;
+import java.nio.ByteBuffer;
+
+/**
+ * An interface used to receive the decoded frames of a media player instead of displaying them,
+ * e.g. for decoding throughput tests or batch processing without a display.
+ */
+public interface FrameSink {
+  /**
+   * Initializes the sink before the first frame is received
+   *
+   * @param width The frame width in pixels
+   * @param height The frame height in pixels
+   * @param imageType The image type that the frames are formatted in, see {@link
+   *     MediaPlayerData#getImageType()}
+   * @param colorSpace The color space that the frames are formatted in
+   */
+  void init(int width, int height, int imageType, ColorSpace colorSpace);
+
+  /**
+   * Receives a decoded frame. The buffer is reused for the next frame, thus the sink must copy the
+   * frame to keep it beyond this call.
+   *
+   * @param frame The direct buffer with the frame, positioned at its start
+   * @param presentationTime The presentation time of the frame in seconds
+   */
+  void onFrame(ByteBuffer frame, double presentationTime);
+
+  /** Releases the sink once the player is disposed; no frames are received afterwards */
+  void dispose();
+}
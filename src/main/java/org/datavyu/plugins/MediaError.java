@@ -160,7 +160,9 @@ public enum MediaError {
   ERROR_JNI_SEND_BUFFER_PROGRESS_EVENT(ERROR_JNI_BASE.code() + 0x000B),
   ERROR_JNI_SEND_STOP_REACHED_EVENT(ERROR_JNI_BASE.code() + 0x000C),
   ERROR_JNI_SEND_DURATION_UPDATE_EVENT(ERROR_JNI_BASE.code() + 0x000D),
-  ERROR_JNI_SEND_AUDIO_SPECTRUM_EVENT(ERROR_JNI_BASE.code() + 0x000E);
+  ERROR_JNI_SEND_AUDIO_SPECTRUM_EVENT(ERROR_JNI_BASE.code() + 0x000E),
+  ERROR_JNI_SEND_PLAYER_TIME_EVENT(ERROR_JNI_BASE.code() + 0x000F),
+  ERROR_JNI_SEND_PLAYER_FRAME_EVENT(ERROR_JNI_BASE.code() + 0x0010);
 
   private static final Map<Integer, String> codeToDescription = new HashMap<>();
   private static final Map<Integer, MediaError> codeToError = new HashMap<>();
@@ -1,5 +1,7 @@
 package org.datavyu.plugins;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This interface is similar to the one in javafx But at the time (July 2018) we
  * decided against making a dependency on javafx
@@ -48,6 +50,38 @@ public interface MediaPlayer {
    */
   void removeMediaPlayerStateListener(PlayerStateListener listener);
 
+  /**
+   * Adds a listener for the presentation time. The player sends time updates while at least one
+   * listener is registered.
+   *
+   * @param listener listener to be added
+   * @throws IllegalArgumentException if <code>listener</code> is <code>null</code>.
+   */
+  void addMediaPlayerTimeListener(PlayerTimeListener listener);
+
+  /**
+   * Removes a listener for the presentation time.
+   *
+   * @param listener listener to be removed
+   * @throws IllegalArgumentException if <code>listener</code> is <code>null</code>.
+   */
+  void removeMediaPlayerTimeListener(PlayerTimeListener listener);
+
+  /**
+   * Sets the minimum time between two time updates. The default of 0 sends an update for every
+   * displayed frame; e.g. 1.0/30 sends at most 30 updates per second.
+   *
+   * @param interval The interval in seconds; must not be negative
+   */
+  void setTimeUpdateInterval(double interval);
+
+  /**
+   * Gets the minimum time between two time updates.
+   *
+   * @return The interval in seconds
+   */
+  double getTimeUpdateInterval();
+
   /**
    * Set the amount of time to delay for the audio.
    *
@@ -122,6 +156,16 @@ public interface MediaPlayer {
    */
   double getFps();
 
+  /**
+   * Gets the presentation times of the key frames of the video stream. The player indexes the key
+   * frames in the background after opening the media; seeks to a time between two key frames
+   * decode from the earlier one. Thus, the key frames bound the decoding work of a seek.
+   *
+   * @return The key frame times in seconds in ascending order; empty while the index is built or
+   *     if the player has no index
+   */
+  double[] getKeyFrameTimes();
+
   /**
    * Gets the current volume.
    *
@@ -194,6 +238,94 @@ public interface MediaPlayer {
    */
   void seek(double streamTime);
 
+  /**
+   * Enables or disables the scrub mode, e.g. while the user drags a time line. In scrub mode a
+   * seek returns without waiting for the seek to land and replaces a seek that is still in
+   * progress, so that the latest seek time always wins; seeks are neither queued nor dropped.
+   *
+   * @param scrubbing True to enable the scrub mode
+   */
+  void setScrubbing(boolean scrubbing);
+
+  /**
+   * Gets whether the scrub mode is enabled, see {@link #setScrubbing(boolean)}.
+   *
+   * @return True if the scrub mode is enabled
+   */
+  boolean isScrubbing();
+
+  /**
+   * Sets the byte budget of the cache of decoded frames. A seek to a cached frame, e.g. a step
+   * backward, displays the frame without waiting for the frames from the previous key frame on to
+   * be decoded. The decoder still decodes these frames, so the cache shortens the wait for the
+   * display but not the decoding. The least recently used frames are evicted to stay within the
+   * budget. The budget defaults to 128 MB, which holds a group of pictures of 40 frames in 1080p.
+   *
+   * @param capacityInBytes The budget in bytes; 0 disables the cache
+   */
+  void setFrameCacheCapacity(long capacityInBytes);
+
+  /**
+   * Gets the byte budget of the cache of decoded frames, see {@link #setFrameCacheCapacity(long)}.
+   *
+   * @return The budget in bytes
+   */
+  long getFrameCacheCapacity();
+
+  // **************************************************************************
+  // ***** Asynchronous control. The futures complete on the event thread of
+  // ***** the player; use the async variants of CompletableFuture for long
+  // ***** running continuations. They complete exceptionally if the command
+  // ***** fails or the player is disposed before they complete.
+  // **************************************************************************
+  /**
+   * Begins playing of the media.
+   *
+   * @return A future that completes with the state once the player plays
+   */
+  CompletableFuture<PlayerStateEvent.PlayerState> playAsync();
+
+  /**
+   * Pauses the media playing.
+   *
+   * @return A future that completes with the state once the player paused
+   */
+  CompletableFuture<PlayerStateEvent.PlayerState> pauseAsync();
+
+  /**
+   * Step to the next frame and pause the media.
+   *
+   * @return A future that completes with the presentation time of the frame once it is displayed
+   */
+  CompletableFuture<Double> stepForwardAsync();
+
+  /**
+   * Step back to one frame and pause the media.
+   *
+   * @return A future that completes with the presentation time of the frame once it is displayed
+   */
+  CompletableFuture<Double> stepBackwardAsync();
+
+  /**
+   * Sets the playback rate, see {@link #setRate(float)}.
+   *
+   * @param rate The rate
+   * @return A future that completes with the rate of the player once it is set
+   */
+  CompletableFuture<Float> setRateAsync(float rate);
+
+  /**
+   * Seeks playback to the specified time, see {@link #seek(double)}.
+   *
+   * <p>Seeks that overlap may land at the time of a later seek only; then all of them complete with
+   * the time where the player landed.
+   *
+   * @param streamTime The time in seconds to which to seek.
+   * @return A future that completes with the presentation time of the first frame displayed after
+   *     the seek
+   */
+  CompletableFuture<Double> seekAsync(double streamTime);
+
   /**
    * Get the width of the image in pixels
    *
@@ -215,6 +347,14 @@ public interface MediaPlayer {
    */
   PlayerStateEvent.PlayerState getState();
 
+  /**
+   * Retrieves the state, time, rate and other commonly polled properties of the player at once.
+   * Prefer this over the individual getters when polling several properties.
+   *
+   * @return The status; or null if the player is disposed.
+   */
+  PlayerStatus getStatus();
+
   /**
    * Release any resources held by this player. The player will
    * be unusable after this method is invoked.
@@ -2,6 +2,7 @@ package org.datavyu.plugins;
 
 import javax.sound.sampled.AudioFormat;
 import java.awt.color.ColorSpace;
+import java.nio.ByteBuffer;
 
 /**
  * This provides the interface to the media player data when we
@@ -40,6 +41,17 @@ public interface MediaPlayerData extends MediaPlayer {
    */
   ColorSpace getColorSpace();
 
+  /**
+   * Returns the layout of the image data as type of a BufferedImage
+   *
+   * <p>Either BufferedImage.TYPE_CUSTOM for packed bytes with one byte per component in the color
+   * space, or BufferedImage.TYPE_INT_RGB and BufferedImage.TYPE_INT_ARGB_PRE for one int per pixel
+   * in native byte order.
+   *
+   * @return The image type
+   */
+  int getImageType();
+
   /**
    * Update the byte buffer with the most recent audio data to play
    *
@@ -50,7 +62,57 @@ public interface MediaPlayerData extends MediaPlayer {
   /**
    * Update the byte buffer with the most recent image data to play
    *
+   * <p>The data is only written when a new frame is due for display; otherwise the data keeps the
+   * previous frame.
+   *
    * @param data The data that is updated on the native side
+   * @return True if a new frame was written into the data; otherwise false
+   */
+  boolean updateImageData(byte[] data);
+
+  /**
+   * Update the direct byte buffer with the most recent image data to play
+   *
+   * <p>The native side converts the frame straight into the memory of the buffer, no copies are
+   * made between the java heap and native memory. The buffer must be direct and hold at least
+   * width x height x number of color components bytes.
+   *
+   * @param buffer The direct buffer that is updated on the native side
+   * @return True if a new frame was written into the buffer; otherwise false
+   */
+  boolean updateImageData(ByteBuffer buffer);
+
+  /**
+   * Sets the size that images are scaled to natively before they are passed to java, e.g. the size
+   * of the display; the image buffers must hold images of that size
+   *
+   * @param width The image width in pixels; 0 for the width of the stream
+   * @param height The image height in pixels; 0 for the height of the stream
+   */
+  void setImageOutputSize(int width, int height);
+
+  /**
+   * Sets the size that images are displayed at, whether they are scaled natively or in java; with
+   * adaptive quality the images are decoded at a lower quality while they are displayed at half
+   * their size or less
+   *
+   * @param width The displayed width in pixels; 0 if unknown
+   * @param height The displayed height in pixels; 0 if unknown
+   */
+  void setDisplaySize(int width, int height);
+
+  /**
+   * Returns the time until the next image is due for display, as computed by the last image update
+   *
+   * @return The time in seconds; or positive infinity if the playback is paused and no image is
+   *     pending
+   */
+  double getRemainingTimeToDisplay();
+
+  /**
+   * Returns the presentation time of the image last written by an image update
+   *
+   * @return The time in seconds; or NaN if no image was written yet
    */
-  void updateImageData(byte[] data);
+  double getImagePresentationTime();
 }
@@ -6,13 +6,25 @@ import org.datavyu.plugins.ffmpeg.FfmpegSdlMediaPlayer.SdlPlayerKeyEvent;
 
 import java.lang.ref.WeakReference;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public abstract class NativeMediaPlayer implements MediaPlayer {
 
@@ -27,13 +39,84 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   public static final int eventPlayerFinished = 106;
   public static final int eventPlayerError = 107;
 
-  private final List<WeakReference<MediaErrorListener>> errorListeners = new ArrayList<>();
-  private final List<WeakReference<PlayerStateListener>> playerStateListeners = new ArrayList<>();
+  /** The maximum number of queued events; senders wait while the queue is full */
+  private static final int EVENT_QUEUE_CAPACITY = 256;
+
+  /**
+   * The longest time a sender waits for space in the queue before it sets the event aside; a sender
+   * may hold the dispose lock, which a listener waits for during the disposal
+   */
+  private static final long EVENT_POST_TIMEOUT_IN_MILLIS = 500;
+
+  /** Wakes up the dispatch for the events set aside while the queue was full */
+  private static final PlayerEvent WAKE_UP_EVENT = new PlayerEvent();
+
+  /**
+   * The longest time a command waits for its frame; then it completes with the frame displayed,
+   * since the native layer displays no new frame, e.g. when stepping past the last frame
+   */
+  private static final long FRAME_REQUEST_TIMEOUT_IN_MILLIS = 5000; // 5 sec
+
+  /** Expires the frame requests of all players */
+  private static final ScheduledThreadPoolExecutor frameRequestTimer =
+      new ScheduledThreadPoolExecutor(
+          1,
+          runnable -> {
+            Thread thread = new Thread(runnable, "Media Player Frame Request Timer");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  static {
+    frameRequestTimer.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * The default byte budget of the cache of decoded frames, about 40 frames in 1080p; ffmpeg players
+   * cache at most their share of the {@link org.datavyu.plugins.ffmpeg.MemoryBudget}
+   */
+  public static final long DEFAULT_FRAME_CACHE_CAPACITY = 128 * 1024 * 1024; // 128 MB
+
+  // The listeners are copied on write, so the event queue thread dispatches without locks
+  private final List<WeakReference<MediaErrorListener>> errorListeners =
+      new CopyOnWriteArrayList<>();
+  private final List<WeakReference<PlayerStateListener>> playerStateListeners =
+      new CopyOnWriteArrayList<>();
+  private final List<WeakReference<PlayerTimeListener>> playerTimeListeners =
+      new CopyOnWriteArrayList<>();
+
+  /** The minimum time between two time updates in seconds */
+  private volatile double timeUpdateInterval = 0.0;
+  /** True while seeks replace each other instead of waiting, see {@link #setScrubbing} */
+  private volatile boolean isScrubbing = false;
+  /** The byte budget of the cache of decoded frames, see {@link #setFrameCacheCapacity} */
+  private volatile long frameCacheCapacity = DEFAULT_FRAME_CACHE_CAPACITY;
+  /** The latest time sent by the native layer, as the bits of a double */
+  private final AtomicLong latestTime = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+  /** True while a time event is queued; further times only replace the latest time */
+  private final AtomicBoolean isTimeEventPending = new AtomicBoolean(false);
+
+  /** The commands that wait for a displayed frame, in the order of their ids */
+  private final Queue<FrameRequest> frameRequests = new ArrayDeque<>();
+  /** The id of the last frame request; guarded by the frame requests */
+  private int lastFrameRequestId = 0;
+  /** The commands that wait for a state */
+  private final List<StateRequest> stateRequests = new CopyOnWriteArrayList<>();
 
   protected long nativeMediaRef = 0;
-  private PlayerStateEvent.PlayerState playerState = PlayerStateEvent.PlayerState.UNKNOWN;
-  private EventQueueThread eventLoop = new EventQueueThread();
-  protected final Lock disposeLock = new ReentrantLock();
+  private volatile PlayerStateEvent.PlayerState playerState = PlayerStateEvent.PlayerState.UNKNOWN;
+  private volatile EventLoop eventLoop = new EventQueueThread();
+  /**
+   * Guards the native player against its disposal. Commands and getters hold the read lock, so
+   * getters proceed concurrently and wait only while the player is being disposed, which holds the
+   * write lock.
+   */
+  protected final ReadWriteLock disposeLock = new ReentrantReadWriteLock();
+  /**
+   * Serializes the commands that change the playback, such as play, seek, and set rate, since the
+   * native player handles one of them at a time. Taken after the read lock of the dispose lock.
+   */
+  private final Lock commandLock = new ReentrantLock();
   protected boolean isDisposed = false;
   private double startTime = 0.0;
   private double stopTime = Double.POSITIVE_INFINITY;
@@ -65,7 +148,7 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
     private final Object source;
     private final MediaError error;
 
-    MediaErrorEvent(Object source, MediaError error) {
+    public MediaErrorEvent(Object source, MediaError error) {
       this.source = source;
       this.error = error;
     }
@@ -83,40 +166,228 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
     }
   }
 
+  /** Marks that the latest time is ready to be sent to the time listeners */
+  private static class PlayerTimeEvent extends PlayerEvent {}
+
+  /** Reports the first frame displayed after the commands up to the request id */
+  private static class PlayerFrameEvent extends PlayerEvent {
+    private final int requestId;
+    private final double time;
+
+    PlayerFrameEvent(int requestId, double time) {
+      this.requestId = requestId;
+      this.time = time;
+    }
+  }
+
+  /** A command that waits for the first frame displayed after it */
+  private static class FrameRequest {
+    private final int id;
+    private final CompletableFuture<Double> future;
+
+    FrameRequest(int id, CompletableFuture<Double> future) {
+      this.id = id;
+      this.future = future;
+    }
+  }
+
+  /** A command that waits for the player to reach a state */
+  private static class StateRequest {
+    private final PlayerStateEvent.PlayerState state;
+    private final CompletableFuture<PlayerStateEvent.PlayerState> future =
+        new CompletableFuture<>();
+
+    StateRequest(PlayerStateEvent.PlayerState state) {
+      this.state = state;
+    }
+  }
+
+  @FunctionalInterface
+  private interface PlayerCommand {
+    void run() throws MediaException;
+  }
+
   protected void initNative() {
     eventLoop.start();
   }
 
+  /**
+   * Dispatches the events of this player on the threads of the given dispatcher instead of a
+   * thread of its own. Set the dispatcher BEFORE calling the init method.
+   *
+   * @param dispatcher The shared dispatcher; null for a thread of its own
+   * @throws IllegalStateException if the player is already initialized
+   */
+  public void setEventDispatcher(PlayerEventDispatcher dispatcher) {
+    EventLoop loop = eventLoop;
+    if (loop == null || loop.started) {
+      throw new IllegalStateException("Set the event dispatcher before initializing the player");
+    }
+    EventLoop newLoop =
+        dispatcher == null ? new EventQueueThread() : new SharedEventLoop(dispatcher.getExecutor());
+    // Keep the events sent before
+    loop.eventQueue.drainTo(newLoop.eventQueue);
+    eventLoop = newLoop;
+  }
+
   protected long getNativeMediaRef() {
     return nativeMediaRef;
   }
 
-  private class EventQueueThread extends Thread {
-    private final BlockingQueue<PlayerEvent> eventQueue = new LinkedBlockingQueue<>();
-    private volatile boolean stopped = false;
+  /**
+   * Queues the events of this player and dispatches them in order, in bulk as they queue up.
+   * Senders wait a limited time while the queue is full, except for time events, which are
+   * coalesced anyway, for listeners, which would wait for themselves, and before the loop started.
+   * Once a sender timed out, senders do not wait until the dispatch resumes.
+   *
+   * <p>Only time events are dropped when the queue is full. States that repeat the state queued
+   * before them are dropped when they are posted, since they change nothing. Any other event that
+   * finds the queue full is set aside and dispatched after the queued events, since the commands
+   * wait for the frame and state events and the listeners for the errors.
+   */
+  private abstract class EventLoop {
+    final BlockingQueue<PlayerEvent> eventQueue = new ArrayBlockingQueue<>(EVENT_QUEUE_CAPACITY);
+    /** The events taken from the queue at once */
+    private final List<PlayerEvent> batch = new ArrayList<>(EVENT_QUEUE_CAPACITY);
+    /** The thread that dispatches events at the moment, if any */
+    private volatile Thread dispatchThread = null;
+    volatile boolean started = false;
+    volatile boolean stopped = false;
+    /** True after a sender timed out; senders do not wait again until the next dispatch */
+    private volatile boolean stalled = false;
+    /** The events set aside while the queue was full, in order; guarded by itself */
+    private final Queue<PlayerEvent> overflow = new ArrayDeque<>();
+    /** True while events are set aside; later events line up behind them */
+    private volatile boolean overflowing = false;
+    /** Orders the state events and guards the last queued state */
+    private final Object stateLock = new Object();
+    /** The state of the last queued state event */
+    private PlayerStateEvent.PlayerState lastQueuedState = null;
+
+    /** Starts to dispatch the queued events */
+    abstract void start();
+
+    /** Called after the event has been queued */
+    abstract void onEventQueued();
+
+    /**
+     * Dispatches the event and all events queued after it.
+     *
+     * @param first The first event
+     */
+    void dispatchEvents(PlayerEvent first) {
+      dispatchThread = Thread.currentThread();
+      try {
+        batch.add(first);
+        eventQueue.drainTo(batch);
+        if (overflowing) {
+          synchronized (overflow) {
+            batch.addAll(overflow);
+            overflow.clear();
+            overflowing = false;
+          }
+        }
+        stalled = false;
+        for (PlayerEvent evt : batch) {
+          if (stopped) {
+            break;
+          }
+          dispatchEvent(evt);
+        }
+      } finally {
+        batch.clear();
+        dispatchThread = null;
+      }
+    }
+
+    public void postEvent(PlayerEvent event) {
+      if (event instanceof PlayerStateEvent) {
+        synchronized (stateLock) {
+          PlayerStateEvent.PlayerState state = ((PlayerStateEvent) event).getState();
+          if (state != lastQueuedState) {
+            lastQueuedState = state;
+            queueEvent(event);
+          }
+        }
+      } else {
+        queueEvent(event);
+      }
+    }
+
+    private void queueEvent(PlayerEvent event) {
+      boolean isQueued;
+      if (event instanceof PlayerTimeEvent) {
+        isQueued = eventQueue.offer(event);
+        if (!isQueued) {
+          // Let the next time queue a new event
+          isTimeEventPending.set(false);
+          return;
+        }
+      } else if (overflowing) {
+        // Keep the order of the events set aside before
+        isQueued = false;
+      } else if (Thread.currentThread() == dispatchThread || !started || stalled) {
+        isQueued = eventQueue.offer(event);
+      } else {
+        try {
+          isQueued = eventQueue.offer(event, EVENT_POST_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+          if (!isQueued) {
+            // The dispatch is stuck, e.g. in a listener that waits for the disposal
+            stalled = true;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          isQueued = eventQueue.offer(event);
+        }
+      }
+      if (!isQueued) {
+        synchronized (overflow) {
+          overflow.add(event);
+          overflowing = true;
+        }
+        // The dispatch may have drained the queue before the event was set aside
+        eventQueue.offer(WAKE_UP_EVENT);
+      }
+      onEventQueued();
+    }
+
+    /** Signals the loop to terminate. */
+    public void terminateLoop() {
+      stopped = true;
+      synchronized (overflow) {
+        overflow.clear();
+      }
+      // put an event to unblock eventQueue.take(); if the queue is full take() does not block
+      eventQueue.offer(WAKE_UP_EVENT);
+      onEventQueued();
+    }
+  }
+
+  /** Dispatches the events of this player on a thread of its own */
+  private class EventQueueThread extends EventLoop implements Runnable {
+    private final Thread thread = new Thread(this, "Media Player EventQueueThread");
 
     EventQueueThread() {
-      setName("Media Player EventQueueThread");
-      setDaemon(true);
+      thread.setDaemon(true);
+    }
+
+    @Override
+    void start() {
+      started = true;
+      thread.start();
+    }
+
+    @Override
+    void onEventQueued() {
+      // The thread waits for the queue
     }
 
     @Override
     public void run() {
       while (!stopped) {
         try {
-          // trying to take an event from the queue.
-          // this method will block until an event becomes available.
-          PlayerEvent evt = eventQueue.take();
-
-          if (!stopped) {
-            if (evt instanceof PlayerStateEvent) {
-              HandleStateEvents((PlayerStateEvent) evt);
-            } else if (evt instanceof MediaErrorEvent) {
-              HandleErrorEvents((MediaErrorEvent) evt);
-            } else if (evt instanceof SdlPlayerKeyEvent) {
-              HandleSdlKeyEvents((SdlPlayerKeyEvent) evt);
-            }
-          }
+          // Block until an event becomes available, then drain all queued events in bulk
+          dispatchEvents(eventQueue.take());
         } catch (Exception e) {
           System.err.println(e);
           // eventQueue.take() can throw InterruptedException,
@@ -129,77 +400,148 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
 
       eventQueue.clear();
     }
+  }
 
-    private void HandleStateEvents(PlayerStateEvent evt) {
-      playerState = evt.getState();
-
-      for (ListIterator<WeakReference<PlayerStateListener>> it =
-              playerStateListeners.listIterator();
-          it.hasNext(); ) {
-        PlayerStateListener listener = it.next().get();
-        if (listener != null) {
-          switch (playerState) {
-            case READY:
-              listener.onReady(evt);
-              break;
-
-            case PLAYING:
-              listener.onPlaying(evt);
-              break;
-
-            case PAUSED:
-              listener.onPause(evt);
-              break;
-
-            case STOPPED:
-              listener.onStop(evt);
-              break;
+  /**
+   * Dispatches the events of this player on the threads of a shared dispatcher. At most one task
+   * per player runs at a time, which keeps the events in order; each task dispatches one batch, so
+   * that busy players do not hold up the others.
+   */
+  private class SharedEventLoop extends EventLoop {
+    private final Executor executor;
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
 
-            case STALLED:
-              listener.onStall(evt);
-              break;
+    SharedEventLoop(Executor executor) {
+      this.executor = executor;
+    }
 
-            case FINISHED:
-              listener.onFinish(evt);
-              break;
+    @Override
+    void start() {
+      started = true;
+      onEventQueued();
+    }
 
-            case HALTED:
-              listener.onHalt(evt);
-              break;
+    @Override
+    void onEventQueued() {
+      if (started && !eventQueue.isEmpty() && isScheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::dispatchQueuedEvents);
+        } catch (RejectedExecutionException e) {
+          isScheduled.set(false);
+          logger.warn("The event dispatcher is shut down: " + e.getMessage());
+        }
+      }
+    }
 
-            default:
-              break;
-          }
-        } else {
-          it.remove();
+    private void dispatchQueuedEvents() {
+      try {
+        PlayerEvent first = eventQueue.poll();
+        if (first != null && !stopped) {
+          dispatchEvents(first);
         }
+      } catch (Exception e) {
+        logger.error("Failed to dispatch the events: " + e);
+      } finally {
+        isScheduled.set(false);
+      }
+      if (stopped) {
+        eventQueue.clear();
+      } else {
+        // Schedule the events queued during the dispatch
+        onEventQueued();
       }
     }
+  }
+
+  private void dispatchEvent(PlayerEvent evt) {
+    if (evt instanceof PlayerStateEvent) {
+      HandleStateEvents((PlayerStateEvent) evt);
+    } else if (evt instanceof PlayerTimeEvent) {
+      HandleTimeEvents();
+    } else if (evt instanceof PlayerFrameEvent) {
+      PlayerFrameEvent frameEvent = (PlayerFrameEvent) evt;
+      completeFrameRequests(frameEvent.requestId, frameEvent.time);
+    } else if (evt instanceof MediaErrorEvent) {
+      HandleErrorEvents((MediaErrorEvent) evt);
+    } else if (evt instanceof SdlPlayerKeyEvent) {
+      HandleSdlKeyEvents((SdlPlayerKeyEvent) evt);
+    }
+  }
 
-    private void HandleErrorEvents(MediaErrorEvent evt) {
-      for (ListIterator<WeakReference<MediaErrorListener>> it = errorListeners.listIterator();
-          it.hasNext(); ) {
-        MediaErrorListener l = it.next().get();
-        if (l != null) {
-          l.onError(evt.getSource(), evt.getErrorCode(), evt.getMessage());
-        } else {
-          it.remove();
+  private void HandleStateEvents(PlayerStateEvent evt) {
+    // Coalesce redundant events, which repeat the current state
+    if (evt.getState() == playerState) {
+      return;
+    }
+    playerState = evt.getState();
+
+    for (WeakReference<PlayerStateListener> reference : playerStateListeners) {
+      PlayerStateListener listener = reference.get();
+      if (listener != null) {
+        switch (playerState) {
+          case READY:
+            listener.onReady(evt);
+            break;
+
+          case PLAYING:
+            listener.onPlaying(evt);
+            break;
+
+          case PAUSED:
+            listener.onPause(evt);
+            break;
+
+          case STOPPED:
+            listener.onStop(evt);
+            break;
+
+          case STALLED:
+            listener.onStall(evt);
+            break;
+
+          case FINISHED:
+            listener.onFinish(evt);
+            break;
+
+          case HALTED:
+            listener.onHalt(evt);
+            break;
+
+          default:
+            break;
         }
+      } else {
+        playerStateListeners.remove(reference);
       }
     }
 
+    completeStateRequests(playerState);
+  }
 
-    public void postEvent(PlayerEvent event) {
-      eventQueue.offer(event);
+  private void HandleTimeEvents() {
+    // Clear the flag before reading the time, so that a time sent meanwhile queues a new event
+    isTimeEventPending.set(false);
+    double time = Double.longBitsToDouble(latestTime.get());
+
+    for (WeakReference<PlayerTimeListener> reference : playerTimeListeners) {
+      PlayerTimeListener listener = reference.get();
+      if (listener != null) {
+        listener.onTimeUpdate(this, time);
+      } else {
+        playerTimeListeners.remove(reference);
+      }
     }
+  }
 
-    /** Signals the thread to terminate. */
-    public void terminateLoop() {
-      stopped = true;
-      // put an event to unblock eventQueue.take()
-      try {
-        eventQueue.put(new PlayerEvent());
-      } catch (InterruptedException ex) {
+  private void HandleErrorEvents(MediaErrorEvent evt) {
+    // The frames of the pending commands may never be displayed
+    failFrameRequests(new MediaException(evt.getMessage(), null, evt.error));
+    for (WeakReference<MediaErrorListener> reference : errorListeners) {
+      MediaErrorListener l = reference.get();
+      if (l != null) {
+        l.onError(evt.getSource(), evt.getErrorCode(), evt.getMessage());
+      } else {
+        errorListeners.remove(reference);
       }
     }
   }
@@ -218,34 +560,138 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   @Override
   public void removeMediaErrorListener(MediaErrorListener listener) {
     if (listener != null) {
-      for (ListIterator<WeakReference<MediaErrorListener>> it = errorListeners.listIterator();
-          it.hasNext(); ) {
-        MediaErrorListener l = it.next().get();
-        if (l == null || l == listener) {
-          it.remove();
-        }
-      }
+      errorListeners.removeIf(
+          reference -> {
+            MediaErrorListener l = reference.get();
+            return l == null || l == listener;
+          });
     }
   }
 
   @Override
   public void addMediaPlayerStateListener(PlayerStateListener listener) {
     if (listener != null) {
-      playerStateListeners.add(new WeakReference(listener));
+      playerStateListeners.add(new WeakReference<>(listener));
     }
   }
 
   @Override
   public void removeMediaPlayerStateListener(PlayerStateListener listener) {
     if (listener != null) {
-      for (ListIterator<WeakReference<PlayerStateListener>> it =
-              playerStateListeners.listIterator();
-          it.hasNext(); ) {
-        PlayerStateListener l = it.next().get();
-        if (l == null || l == listener) {
-          it.remove();
-        }
+      playerStateListeners.removeIf(
+          reference -> {
+            PlayerStateListener l = reference.get();
+            return l == null || l == listener;
+          });
+    }
+  }
+
+  @Override
+  public void addMediaPlayerTimeListener(PlayerTimeListener listener) {
+    if (listener != null) {
+      playerTimeListeners.add(new WeakReference<>(listener));
+      updateTimeUpdateInterval();
+    }
+  }
+
+  @Override
+  public void removeMediaPlayerTimeListener(PlayerTimeListener listener) {
+    if (listener != null) {
+      playerTimeListeners.removeIf(
+          reference -> {
+            PlayerTimeListener l = reference.get();
+            return l == null || l == listener;
+          });
+      updateTimeUpdateInterval();
+    }
+  }
+
+  @Override
+  public void setTimeUpdateInterval(double interval) {
+    if (interval < 0) {
+      throw new IllegalArgumentException("The time update interval must not be negative");
+    }
+    timeUpdateInterval = interval;
+    updateTimeUpdateInterval();
+  }
+
+  @Override
+  public double getTimeUpdateInterval() {
+    return timeUpdateInterval;
+  }
+
+  /**
+   * Passes the time update interval to the native layer, or disables the time updates when no
+   * listener is registered. Players call this after creating the native layer.
+   */
+  protected void updateTimeUpdateInterval() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed && nativeMediaRef != 0) {
+        playerSetTimeUpdateInterval(playerTimeListeners.isEmpty() ? -1 : timeUpdateInterval);
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void setScrubbing(boolean scrubbing) {
+    isScrubbing = scrubbing;
+    updateScrubbing();
+  }
+
+  @Override
+  public boolean isScrubbing() {
+    return isScrubbing;
+  }
+
+  /**
+   * Passes the scrub mode to the native layer. Players call this after creating the native layer.
+   */
+  protected void updateScrubbing() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed && nativeMediaRef != 0) {
+        playerSetScrubbing(isScrubbing);
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void setFrameCacheCapacity(long capacityInBytes) {
+    if (capacityInBytes < 0) {
+      throw new IllegalArgumentException("The frame cache capacity must not be negative");
+    }
+    frameCacheCapacity = capacityInBytes;
+    updateFrameCacheCapacity();
+  }
+
+  @Override
+  public long getFrameCacheCapacity() {
+    return frameCacheCapacity;
+  }
+
+  /**
+   * Passes the byte budget of the frame cache to the native layer. Players call this after creating
+   * the native layer.
+   */
+  protected void updateFrameCacheCapacity() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed && nativeMediaRef != 0) {
+        playerSetFrameCacheCapacity(frameCacheCapacity);
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
@@ -305,8 +751,80 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   
   protected abstract void playerDispose();
 
+  /**
+   * Gets the key frame times of the video stream. The default returns none for players without a
+   * key frame index.
+   *
+   * @return The key frame times in seconds in ascending order
+   * @throws MediaException
+   */
+  protected double[] playerGetKeyFrameTimes() throws MediaException {
+    return new double[0];
+  }
+
+  /**
+   * Gets the commonly polled properties of the player. The default gets the properties one by one;
+   * players override this to get them in one call.
+   *
+   * @param state The current state of the player
+   * @return The status
+   * @throws MediaException
+   */
+  protected PlayerStatus playerGetStatus(PlayerStateEvent.PlayerState state)
+      throws MediaException {
+    return new PlayerStatus(
+        state,
+        playerGetPresentationTime(),
+        playerIsSeekPlaybackEnabled() ? playBackRate : playerGetRate(),
+        playerGetFps(),
+        playerGetDuration(),
+        playerGetImageWidth(),
+        playerGetImageHeight());
+  }
+
   protected abstract boolean playerRateIsSupported(float rate) throws MediaException;
 
+  /**
+   * Sets the minimum time between two time updates sent through {@link #sendPlayerTimeEvent}. The
+   * default does nothing for players whose native layer sends no time updates.
+   *
+   * @param interval The interval in seconds; 0 for every displayed frame and negative to disable
+   * @throws MediaException
+   */
+  protected void playerSetTimeUpdateInterval(double interval) throws MediaException {}
+
+  /**
+   * Sets the scrub mode of the native layer. The default does nothing for players whose seeks do
+   * not block.
+   *
+   * @param scrubbing True to enable the scrub mode
+   * @throws MediaException
+   */
+  protected void playerSetScrubbing(boolean scrubbing) throws MediaException {}
+
+  /**
+   * Sets the byte budget of the frame cache of the native layer. The default does nothing for
+   * players without a frame cache.
+   *
+   * @param capacityInBytes The budget in bytes; 0 disables the cache
+   * @throws MediaException
+   */
+  protected void playerSetFrameCacheCapacity(long capacityInBytes) throws MediaException {}
+
+  /**
+   * Requests a frame event through {@link #sendPlayerFrameEvent} for the first frame displayed
+   * after the next command. The default returns false for players whose native layer sends no frame
+   * events; their commands complete with the presentation time after the command.
+   *
+   * @param requestId The id that the frame event reports
+   * @param isSeek True if the command seeks; then the frame is the first frame of the seek
+   * @return True if the player sends the frame event
+   * @throws MediaException
+   */
+  protected boolean playerRequestFrameEvent(int requestId, boolean isSeek) throws MediaException {
+    return false;
+  }
+
   protected abstract void HandleSdlKeyEvents(SdlPlayerKeyEvent evt);
 
   @Override
@@ -328,103 +846,112 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
     return 0;
   }
 
+  private void playFromStartTime() throws MediaException {
+    if (isStartTimeUpdated) {
+      playerSeek(startTime);
+    }
+    playerPlay();
+  }
+
   @Override
   public void play() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (isStartTimeUpdated) {
-          playerSeek(startTime);
-        }
-        playerPlay();
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playFromStartTime();
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void stop() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerStop();
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerStop();
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void pause() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerPause();
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerPause();
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void togglePause() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (getState() == PlayerStateEvent.PlayerState.PAUSED) {
-          play();
-        } else {
-          pause();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally{
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      if (getState() == PlayerStateEvent.PlayerState.PAUSED) {
+        play();
+      } else {
+        pause();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void stepForward() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerStepForward();
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerStepForward();
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public void stepBackward() {
-    if (disposeLock.tryLock()) {
-      try {
-        playerStepBackward();
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerStepBackward();
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public float getRate() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return isSeekPlaybackEnabled() ? playBackRate : playerGetRate();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return isSeekPlaybackEnabled() ? playBackRate : playerGetRate();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return 0;
   }
@@ -432,124 +959,133 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   // ***** Public properties
   @Override
   public void setRate(float rate) {
-    if (disposeLock.tryLock()) {
-      try {
-        playerSetRate(rate);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
-      // Native players will throw an exception when rates are not supported
-      playBackRate = rate;
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerSetRate(rate);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
     }
+    // Native players will throw an exception when rates are not supported
+    playBackRate = rate;
   }
 
   @Override
   public double getPresentationTime() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetPresentationTime();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetPresentationTime();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1.0;
   }
 
   @Override
   public double getFps() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetFps();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetFps();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1.0;
   }
 
+  @Override
+  public double[] getKeyFrameTimes() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetKeyFrameTimes();
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+    return new double[0];
+  }
+
   @Override
   public int getImageHeight() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetImageHeight();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetImageHeight();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1;
   }
 
   @Override
   public int getImageWidth() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetImageWidth();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetImageWidth();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return -1;
   }
 
   @Override
   public float getVolume() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetVolume();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetVolume();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return 0;
   }
 
   @Override
   public void setVolume(float vol) {
-    if (disposeLock.tryLock()) {
-      try {
-        playerSetVolume(Math.max(Math.min(vol, 1F), 0F));
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerSetVolume(Math.max(Math.min(vol, 1F), 0F));
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public boolean getMute() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetMute();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetMute();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return false;
   }
@@ -559,58 +1095,54 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
    */
   @Override
   public void setMute(boolean enable) {
-    if (disposeLock.tryLock()) {
-      try {
-        playerSetMute(enable);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerSetMute(enable);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public float getBalance() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetBalance();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetBalance();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return 0;
   }
 
   @Override
   public void setBalance(float bal) {
-    if (disposeLock.tryLock()) {
-      try {
-        playerSetBalance(Math.max(Math.min(bal, 1F), -1F));
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      playerSetBalance(Math.max(Math.min(bal, 1F), -1F));
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
   @Override
   public double getDuration() {
-    if (disposeLock.tryLock()) {
-      try {
-        if (!isDisposed) {
-          return playerGetDuration();
-        }
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetDuration();
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return Double.POSITIVE_INFINITY;
   }
@@ -624,19 +1156,18 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   /** Sets the start time within the media to play. */
   @Override
   public void setStartTime(double startTime) {
-    if (disposeLock.tryLock()) {
-      try {
-        this.startTime = startTime;
-        if (playerState != PlayerStateEvent.PlayerState.PLAYING
-            && playerState != PlayerStateEvent.PlayerState.FINISHED
-            && playerState != PlayerStateEvent.PlayerState.STOPPED) {
-          playerSetStartTime(startTime);
-        } else if (playerState == PlayerStateEvent.PlayerState.STOPPED) {
-          isStartTimeUpdated = true;
-        }
-      } finally {
-        disposeLock.unlock();
+    disposeLock.readLock().lock();
+    try {
+      this.startTime = startTime;
+      if (playerState != PlayerStateEvent.PlayerState.PLAYING
+          && playerState != PlayerStateEvent.PlayerState.FINISHED
+          && playerState != PlayerStateEvent.PlayerState.STOPPED) {
+        playerSetStartTime(startTime);
+      } else if (playerState == PlayerStateEvent.PlayerState.STOPPED) {
+        isStartTimeUpdated = true;
       }
+    } finally {
+      disposeLock.readLock().unlock();
     }
   }
 
@@ -649,42 +1180,242 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
   /** Sets the stop time within the media to stop playback. */
   @Override
   public void setStopTime(double stopTime) {
-    if (disposeLock.tryLock()) {
-      try {
-        this.stopTime = stopTime;
-        isStopTimeSet = true;
-      } finally {
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      this.stopTime = stopTime;
+      isStopTimeSet = true;
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  private double clampStreamTime(double streamTime) {
+    if (streamTime < 0.0) {
+      return 0.0;
     }
+    double duration = getDuration();
+    return duration >= 0.0 && streamTime > duration ? duration : streamTime;
   }
 
   @Override
   public void seek(double streamTime) {
+    double clampedTime = clampStreamTime(streamTime);
 
-    if (streamTime < 0.0) {
-      streamTime = 0.0;
-    } else {
-      double duration = getDuration();
-      if (duration >= 0.0 && streamTime > duration) {
-        streamTime = duration;
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      playerSeek(clampedTime);
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public CompletableFuture<PlayerStateEvent.PlayerState> playAsync() {
+    return runUntilState(PlayerStateEvent.PlayerState.PLAYING, this::playFromStartTime);
+  }
+
+  @Override
+  public CompletableFuture<PlayerStateEvent.PlayerState> pauseAsync() {
+    return runUntilState(PlayerStateEvent.PlayerState.PAUSED, this::playerPause);
+  }
+
+  @Override
+  public CompletableFuture<Double> stepForwardAsync() {
+    return runUntilFrame(false, this::playerStepForward);
+  }
+
+  @Override
+  public CompletableFuture<Double> stepBackwardAsync() {
+    return runUntilFrame(true, this::playerStepBackward);
+  }
+
+  @Override
+  public CompletableFuture<Float> setRateAsync(float rate) {
+    CompletableFuture<Float> future = new CompletableFuture<>();
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      if (isDisposed) {
+        future.completeExceptionally(new IllegalStateException("The player is disposed"));
+      } else {
+        playerSetRate(rate);
+        playBackRate = rate;
+        future.complete(isSeekPlaybackEnabled() ? playBackRate : playerGetRate());
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+      future.completeExceptionally(me);
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
+    }
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<Double> seekAsync(double streamTime) {
+    double clampedTime = clampStreamTime(streamTime);
+    return runUntilFrame(true, () -> playerSeek(clampedTime));
+  }
+
+  /**
+   * Runs the command and completes the future once the player reached the state.
+   *
+   * @param state The state
+   * @param command The command
+   * @return The future
+   */
+  private CompletableFuture<PlayerStateEvent.PlayerState> runUntilState(
+      PlayerStateEvent.PlayerState state, PlayerCommand command) {
+    StateRequest request = new StateRequest(state);
+    stateRequests.add(request);
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      if (isDisposed) {
+        request.future.completeExceptionally(new IllegalStateException("The player is disposed"));
+      } else {
+        command.run();
+        // The player may be in the state already, then no state event follows
+        if (playerState == state) {
+          request.future.complete(state);
+        }
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+      request.future.completeExceptionally(me);
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
+    }
+    if (request.future.isDone()) {
+      stateRequests.remove(request);
+    }
+    return request.future;
+  }
+
+  private void completeStateRequests(PlayerStateEvent.PlayerState state) {
+    for (StateRequest request : stateRequests) {
+      if (request.state == state) {
+        stateRequests.remove(request);
+        request.future.complete(state);
       }
     }
+  }
 
-    if (disposeLock.tryLock()) {
-      try {
-        playerSeek(streamTime);
-      } catch (MediaException me) {
-        sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
-      } finally {
-        disposeLock.unlock();
+  /**
+   * Runs the command and completes the future with the presentation time of the first frame
+   * displayed after the command. If no frame follows, because the player stopped or reached the end
+   * of the media or after {@link #FRAME_REQUEST_TIMEOUT_IN_MILLIS}, the future completes with the
+   * time of the frame displayed then; it fails on an error of the player.
+   *
+   * @param isSeek True if the command seeks; then the frame is the first frame of the seek
+   * @param command The command
+   * @return The future
+   */
+  private CompletableFuture<Double> runUntilFrame(boolean isSeek, PlayerCommand command) {
+    CompletableFuture<Double> future = new CompletableFuture<>();
+    disposeLock.readLock().lock();
+    commandLock.lock();
+    try {
+      if (isDisposed) {
+        future.completeExceptionally(new IllegalStateException("The player is disposed"));
+        return future;
+      }
+      int requestId;
+      synchronized (frameRequests) {
+        requestId = ++lastFrameRequestId;
+        frameRequests.add(new FrameRequest(requestId, future));
+      }
+      boolean hasFrameEvent = playerRequestFrameEvent(requestId, isSeek);
+      command.run();
+      if (!hasFrameEvent) {
+        completeFrameRequests(requestId, playerGetPresentationTime());
+      } else if (!future.isDone()) {
+        ScheduledFuture<?> timeout =
+            frameRequestTimer.schedule(
+                () -> expireFrameRequests(requestId),
+                FRAME_REQUEST_TIMEOUT_IN_MILLIS,
+                TimeUnit.MILLISECONDS);
+        future.whenComplete((time, throwable) -> timeout.cancel(false));
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+      future.completeExceptionally(me);
+    } finally {
+      commandLock.unlock();
+      disposeLock.readLock().unlock();
+    }
+    return future;
+  }
+
+  private void completeFrameRequests(int requestId, double time) {
+    List<CompletableFuture<Double>> futures = new ArrayList<>();
+    synchronized (frameRequests) {
+      while (!frameRequests.isEmpty() && frameRequests.peek().id <= requestId) {
+        futures.add(frameRequests.poll().future);
+      }
+    }
+    // Complete outside of the lock since the futures run their continuations
+    futures.forEach(future -> future.complete(time));
+  }
+
+  /**
+   * Completes the requests up to the id with the frame displayed now, since no new frame completed
+   * them in time
+   *
+   * @param requestId The id of the last request to complete
+   */
+  private void expireFrameRequests(int requestId) {
+    synchronized (frameRequests) {
+      if (frameRequests.isEmpty() || frameRequests.peek().id > requestId) {
+        return;
+      }
+    }
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        completeFrameRequests(requestId, playerGetPresentationTime());
+      }
+    } catch (MediaException me) {
+      failFrameRequests(me);
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  private void failFrameRequests(Throwable cause) {
+    List<CompletableFuture<Double>> futures = new ArrayList<>();
+    synchronized (frameRequests) {
+      while (!frameRequests.isEmpty()) {
+        futures.add(frameRequests.poll().future);
       }
     }
+    futures.forEach(future -> future.completeExceptionally(cause));
+  }
+
+  private void failRequests(Throwable cause) {
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+    synchronized (frameRequests) {
+      while (!frameRequests.isEmpty()) {
+        futures.add(frameRequests.poll().future);
+      }
+    }
+    for (StateRequest request : stateRequests) {
+      futures.add(request.future);
+    }
+    stateRequests.clear();
+    futures.forEach(future -> future.completeExceptionally(cause));
   }
 
   protected void sendPlayerEvent(PlayerEvent evt) {
-    if (eventLoop != null) {
-      eventLoop.postEvent(evt);
+    EventLoop loop = eventLoop; // Read once since dispose resets the event loop
+    if (loop != null) {
+      loop.postEvent(evt);
     }
   }
 
@@ -695,19 +1426,28 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
    */
   @Override
   public PlayerStateEvent.PlayerState getState() {
-    if (disposeLock.tryLock()) {
-      try {
-        return playerState;
-      } finally {
-        disposeLock.unlock();
+    // The state is only written by the event queue thread, thus reads need no lock
+    return playerState;
+  }
+
+  @Override
+  public PlayerStatus getStatus() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed) {
+        return playerGetStatus(playerState);
       }
+    } catch (MediaException me) {
+      sendPlayerEvent(new MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
     }
     return null;
   }
 
   @Override
   public final void dispose() {
-    disposeLock.lock();
+    disposeLock.writeLock().lock();
     try {
       if (!isDisposed) {
 
@@ -727,36 +1467,36 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
           errorListeners.clear();
         }
 
+        playerTimeListeners.clear();
+
+        failRequests(new IllegalStateException("The player is disposed"));
+
         nativeMediaRef = 0;
         isDisposed = true;
       }
     } finally {
-      disposeLock.unlock();
+      disposeLock.writeLock().unlock();
     }
   }
 
   @Override
   public boolean isSeekPlaybackEnabled() {
-    if (disposeLock.tryLock()) {
-      try {
-        return playerIsSeekPlaybackEnabled();
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      return playerIsSeekPlaybackEnabled();
+    } finally {
+      disposeLock.readLock().unlock();
     }
-    return false;
   }
 
   @Override
   public boolean isRateSupported(float rate) {
-    if (disposeLock.tryLock()) {
-      try {
-        return playerRateIsSupported(rate);
-      } finally{
-        disposeLock.unlock();
-      }
+    disposeLock.readLock().lock();
+    try {
+      return playerRateIsSupported(rate);
+    } finally {
+      disposeLock.readLock().unlock();
     }
-    return false;
   }
 
   // **************************************************************************
@@ -770,6 +1510,32 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
     sendPlayerEvent(new MediaErrorEvent(this, MediaError.getFromCode(errorCode)));
   }
 
+  protected void sendPlayerTimeEvent(double time) {
+    // Coalesce the times: queue at most one event, which sends the latest time when handled
+    latestTime.set(Double.doubleToRawLongBits(time));
+    if (isTimeEventPending.compareAndSet(false, true)) {
+      sendPlayerEvent(new PlayerTimeEvent());
+    }
+  }
+
+  protected void sendPlayerFrameEvent(int requestId, double time) {
+    sendPlayerEvent(new PlayerFrameEvent(requestId, time));
+  }
+
+  /**
+   * Completes the commands sent so far that wait for a frame, once the events before are
+   * dispatched; no frame follows when the player stopped or reached the end of the media
+   *
+   * @param time The time of the frame displayed last
+   */
+  private void sendFrameEventForPendingRequests(double time) {
+    int requestId;
+    synchronized (frameRequests) {
+      requestId = lastFrameRequestId;
+    }
+    sendPlayerFrameEvent(requestId, time);
+  }
+
   protected void sendPlayerStateEvent(int eventID, double time) {
     switch (eventID) {
       case eventPlayerReady:
@@ -783,12 +1549,14 @@ public abstract class NativeMediaPlayer implements MediaPlayer {
         break;
       case eventPlayerStopped:
         sendPlayerEvent(new PlayerStateEvent(PlayerStateEvent.PlayerState.STOPPED, time));
+        sendFrameEventForPendingRequests(time);
         break;
       case eventPlayerStalled:
         sendPlayerEvent(new PlayerStateEvent(PlayerStateEvent.PlayerState.STALLED, time));
         break;
       case eventPlayerFinished:
         sendPlayerEvent(new PlayerStateEvent(PlayerStateEvent.PlayerState.FINISHED, time));
+        sendFrameEventForPendingRequests(time);
         break;
       default:
         break;
@@ -0,0 +1,91 @@
+package org.datavyu.plugins;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+
+/**
+ * A frame sink that keeps the most recent frame in an offscreen image, which works without a
+ * display, e.g. with java.awt.headless=true.
+ *
+ * <p>Besides the image, the sink counts the received frames and keeps the presentation time of the
+ * most recent one, which is sufficient for decoding throughput tests and batch processing.
+ */
+public class OffscreenFrameSink implements FrameSink {
+  private BufferedImage image;
+  private byte[] data;
+  private int[] intData;
+  private long numFrames = 0;
+  private double presentationTime = Double.NaN;
+
+  @Override
+  public synchronized void init(int width, int height, int imageType, ColorSpace colorSpace) {
+    if (imageType == BufferedImage.TYPE_CUSTOM) {
+      ComponentColorModel cm =
+          new ComponentColorModel(
+              colorSpace, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+      WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
+      image = new BufferedImage(cm, raster, false, null);
+      data = ((DataBufferByte) raster.getDataBuffer()).getData();
+    } else {
+      image = new BufferedImage(width, height, imageType);
+      intData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+  }
+
+  @Override
+  public synchronized void onFrame(ByteBuffer frame, double presentationTime) {
+    if (intData != null) {
+      frame.asIntBuffer().get(intData);
+    } else {
+      frame.get(data);
+    }
+    this.numFrames++;
+    this.presentationTime = presentationTime;
+  }
+
+  @Override
+  public synchronized void dispose() {
+    image = null;
+    data = null;
+    intData = null;
+  }
+
+  /**
+   * Returns a copy of the most recent frame
+   *
+   * @return The image; or null if the sink is not initialized or disposed
+   */
+  public synchronized BufferedImage getImage() {
+    if (image == null) {
+      return null;
+    }
+    ColorModel cm = image.getColorModel();
+    return new BufferedImage(cm, image.copyData(null), cm.isAlphaPremultiplied(), null);
+  }
+
+  /**
+   * Returns the number of frames received so far
+   *
+   * @return The number of frames
+   */
+  public synchronized long getNumFrames() {
+    return numFrames;
+  }
+
+  /**
+   * Returns the presentation time of the most recent frame
+   *
+   * @return The time in seconds; or NaN if no frame was received
+   */
+  public synchronized double getPresentationTime() {
+    return presentationTime;
+  }
+}
@@ -0,0 +1,62 @@
+package org.datavyu.plugins;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches the events of many players on a shared pool of threads, instead of one event queue
+ * thread per player. The events of each player are still dispatched one at a time and in order.
+ *
+ * <p>Register a player through {@link NativeMediaPlayer#setEventDispatcher} before initializing
+ * it. On Java 21 and later, a dispatcher created with {@code
+ * Executors.newVirtualThreadPerTaskExecutor()} dispatches the events on virtual threads.
+ */
+public final class PlayerEventDispatcher {
+
+  private static final String THREAD_NAME = "Media Player Event Dispatcher";
+
+  private final ExecutorService executorService;
+
+  /**
+   * Creates a dispatcher with a fixed number of daemon threads
+   *
+   * @param numThreads The number of threads
+   */
+  public PlayerEventDispatcher(int numThreads) {
+    this(
+        Executors.newFixedThreadPool(
+            numThreads,
+            new ThreadFactory() {
+              private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread =
+                    new Thread(runnable, THREAD_NAME + " " + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+              }
+            }));
+  }
+
+  /**
+   * Creates a dispatcher that runs on the given executor service
+   *
+   * @param executorService The executor service
+   */
+  public PlayerEventDispatcher(ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  Executor getExecutor() {
+    return executorService;
+  }
+
+  /** Shuts down the threads; dispose the registered players before. */
+  public void shutdown() {
+    executorService.shutdown();
+  }
+}
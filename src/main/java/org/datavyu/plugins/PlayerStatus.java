@@ -0,0 +1,99 @@
+package org.datavyu.plugins;
+
+/**
+ * An immutable snapshot of the commonly polled properties of a media player.
+ *
+ * <p>Players gather all properties at once, which replaces one call per getter when polling, e.g.
+ * on every tick of a user interface.
+ */
+public final class PlayerStatus {
+  private final PlayerStateEvent.PlayerState state;
+  private final double presentationTime;
+  private final float rate;
+  private final double fps;
+  private final double duration;
+  private final int imageWidth;
+  private final int imageHeight;
+
+  /**
+   * Constructor.
+   *
+   * @param state The state of the player
+   * @param presentationTime The presentation time in seconds
+   * @param rate The playback rate
+   * @param fps The frame rate of the video stream
+   * @param duration The duration in seconds
+   * @param imageWidth The image width in pixels
+   * @param imageHeight The image height in pixels
+   */
+  public PlayerStatus(
+      PlayerStateEvent.PlayerState state,
+      double presentationTime,
+      float rate,
+      double fps,
+      double duration,
+      int imageWidth,
+      int imageHeight) {
+    this.state = state;
+    this.presentationTime = presentationTime;
+    this.rate = rate;
+    this.fps = fps;
+    this.duration = duration;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+  }
+
+  /** @return The state of the player, see {@link MediaPlayer#getState()} */
+  public PlayerStateEvent.PlayerState getState() {
+    return state;
+  }
+
+  /** @return The presentation time in seconds, see {@link MediaPlayer#getPresentationTime()} */
+  public double getPresentationTime() {
+    return presentationTime;
+  }
+
+  /** @return The playback rate, see {@link MediaPlayer#getRate()} */
+  public float getRate() {
+    return rate;
+  }
+
+  /** @return The frame rate of the video stream, see {@link MediaPlayer#getFps()} */
+  public double getFps() {
+    return fps;
+  }
+
+  /** @return The duration in seconds, see {@link MediaPlayer#getDuration()} */
+  public double getDuration() {
+    return duration;
+  }
+
+  /** @return The image width in pixels, see {@link MediaPlayer#getImageWidth()} */
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  /** @return The image height in pixels, see {@link MediaPlayer#getImageHeight()} */
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public String toString() {
+    return "PlayerStatus{state="
+        + state
+        + ", presentationTime="
+        + presentationTime
+        + ", rate="
+        + rate
+        + ", fps="
+        + fps
+        + ", duration="
+        + duration
+        + ", imageWidth="
+        + imageWidth
+        + ", imageHeight="
+        + imageHeight
+        + "}";
+  }
+}
@@ -0,0 +1,16 @@
+package org.datavyu.plugins;
+
+/**
+ * An interface used to receive the presentation time of the media while it is displayed, which
+ * replaces polling the time of the player.
+ */
+public interface PlayerTimeListener {
+  /**
+   * Reports the presentation time of a displayed frame. Times that arrive while the listener still
+   * handles a previous time are coalesced, so a slow listener only receives the latest time.
+   *
+   * @param source the source of the time, likely the player calling this method.
+   * @param time the presentation time in seconds.
+   */
+  void onTimeUpdate(Object source, double time);
+}
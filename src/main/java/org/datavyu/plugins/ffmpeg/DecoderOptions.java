@@ -0,0 +1,186 @@
+package org.datavyu.plugins.ffmpeg;
+
+/**
+ * Options of the image decoder of an ffmpeg player.
+ *
+ * <p>The options are passed to the native player when it is initialized. The default options keep
+ * the defaults of libavcodec, which decodes with one thread per core, except that the threads
+ * decode the slices of a frame at once, see {@link DecoderScheduler}. Many players open at once may
+ * cap the threads per player instead, and a single high resolution stream may use more threads or
+ * trade quality for speed with a lower resolution or by skipping the loop filter. Players shown
+ * much smaller than the video, like thumbnails, may adapt the quality to the displayed size.
+ */
+public final class DecoderOptions {
+
+  /** The threading of the decoder, see the thread_type of libavcodec */
+  public enum ThreadType {
+    /** Slice threading, which keeps the decoder within the budget of {@link DecoderScheduler} */
+    DEFAULT(0),
+    /**
+     * Decodes several frames at once, which adds one frame of latency per thread; the threads go on
+     * decoding between the turns of the decoder, so the decoder is not scheduled
+     */
+    FRAME(1),
+    /** Decodes the slices of a frame at once, if the stream has several slices per frame */
+    SLICE(2),
+    /**
+     * Frame threading if the codec supports it, without scheduling; otherwise slice threading
+     */
+    FRAME_AND_SLICE(3);
+
+    private final int value;
+
+    ThreadType(int value) {
+      this.value = value;
+    }
+
+    int getValue() {
+      return value;
+    }
+  }
+
+  /** The largest supported lowres; codecs may support less */
+  public static final int MAX_LOWRES = 3;
+
+  /** The default options */
+  public static final DecoderOptions DEFAULT = new Builder().build();
+
+  private final int threadCount;
+
+  private final ThreadType threadType;
+
+  private final int lowres;
+
+  private final boolean skipLoopFilter;
+
+  private final boolean adaptiveQuality;
+
+  private DecoderOptions(Builder builder) {
+    this.threadCount = builder.threadCount;
+    this.threadType = builder.threadType;
+    this.lowres = builder.lowres;
+    this.skipLoopFilter = builder.skipLoopFilter;
+    this.adaptiveQuality = builder.adaptiveQuality;
+  }
+
+  /**
+   * Gets the number of decoding threads
+   *
+   * @return The number of threads; 0 for one thread per core
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public ThreadType getThreadType() {
+    return threadType;
+  }
+
+  /**
+   * Gets the lowres; the images are decoded at 1 / 2^lowres of their size if the codec supports it
+   *
+   * @return The lowres; 0 for the full size
+   */
+  public int getLowres() {
+    return lowres;
+  }
+
+  /**
+   * Gets whether the loop filter is skipped for all frames
+   *
+   * @return True if skipped
+   */
+  public boolean isSkipLoopFilter() {
+    return skipLoopFilter;
+  }
+
+  /**
+   * Gets whether the quality adapts to the displayed size. While the display is at most half the
+   * size of the images, they are decoded at a lower resolution, or without the loop filter if the
+   * codec does not support lowres; once the display grows, the full quality is decoded again.
+   *
+   * @return True if adaptive
+   */
+  public boolean isAdaptiveQuality() {
+    return adaptiveQuality;
+  }
+
+  @Override
+  public String toString() {
+    return "DecoderOptions{threadCount="
+        + threadCount
+        + ", threadType="
+        + threadType
+        + ", lowres="
+        + lowres
+        + ", skipLoopFilter="
+        + skipLoopFilter
+        + ", adaptiveQuality="
+        + adaptiveQuality
+        + "}";
+  }
+
+  /** Builds decoder options starting from the defaults */
+  public static final class Builder {
+
+    private int threadCount = 0;
+
+    private ThreadType threadType = ThreadType.DEFAULT;
+
+    private int lowres = 0;
+
+    private boolean skipLoopFilter = false;
+
+    private boolean adaptiveQuality = false;
+
+    /**
+     * Sets the number of decoding threads
+     *
+     * @param threadCount The number of threads; 0 for one thread per core
+     * @return This builder
+     */
+    public Builder setThreadCount(int threadCount) {
+      if (threadCount < 0) {
+        throw new IllegalArgumentException("Thread count must not be negative: " + threadCount);
+      }
+      this.threadCount = threadCount;
+      return this;
+    }
+
+    public Builder setThreadType(ThreadType threadType) {
+      if (threadType == null) {
+        throw new IllegalArgumentException("Thread type must not be null");
+      }
+      this.threadType = threadType;
+      return this;
+    }
+
+    /**
+     * Sets the lowres
+     *
+     * @param lowres The lowres from 0 to {@link #MAX_LOWRES}
+     * @return This builder
+     */
+    public Builder setLowres(int lowres) {
+      if (lowres < 0 || lowres > MAX_LOWRES) {
+        throw new IllegalArgumentException("Lowres must be in [0, " + MAX_LOWRES + "]: " + lowres);
+      }
+      this.lowres = lowres;
+      return this;
+    }
+
+    public Builder setSkipLoopFilter(boolean skipLoopFilter) {
+      this.skipLoopFilter = skipLoopFilter;
+      return this;
+    }
+
+    public Builder setAdaptiveQuality(boolean adaptiveQuality) {
+      this.adaptiveQuality = adaptiveQuality;
+      return this;
+    }
+
+    public DecoderOptions build() {
+      return new DecoderOptions(this);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package org.datavyu.plugins.ffmpeg;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the processor among the image decoders of all ffmpeg players in the process.
+ *
+ * <p>The image decoders of the players take turns on a budget of threads; a decoder decodes once
+ * the budget has room for all of its threads. Once more threads than the budget want to decode, the
+ * player with the highest priority decodes next: players in the foreground first, then paused
+ * players, then players that play in the background. Players that waited long decode eventually,
+ * whatever their priority. Players that are initialized with the default thread count of {@link
+ * DecoderOptions} split the budget into their decoding threads, instead of each decoding with one
+ * thread per core; no player decodes with more threads than the budget.
+ *
+ * <p>Only decoders with slice threading, the default, are scheduled: their threads run while the
+ * decoder has its turn. The threads of a decoder with frame threading, see {@link
+ * DecoderOptions.ThreadType#FRAME}, go on decoding after its turn, so such a decoder is not held to
+ * the budget.
+ */
+public final class DecoderScheduler {
+
+  /** The priority of a player; set with {@link FfmpegMediaPlayer#setDecoderPriority} */
+  public enum Priority {
+    /** The player has the focus or is visible */
+    FOREGROUND,
+    /** The player is hidden or out of focus */
+    BACKGROUND
+  }
+
+  /** The native priorities; lower values decode first */
+  private static final int FOREGROUND_PRIORITY = 0;
+
+  private static final int PAUSED_PRIORITY = 1;
+
+  private static final int BACKGROUND_PRIORITY = 2;
+
+  private static volatile int threadBudget = Runtime.getRuntime().availableProcessors();
+
+  private static final Set<FfmpegMediaPlayer> players = ConcurrentHashMap.newKeySet();
+
+  private DecoderScheduler() {}
+
+  /**
+   * Sets the number of threads that decode at once in all players
+   *
+   * @param threadBudget The number of threads; at least 1
+   */
+  public static void setThreadBudget(int threadBudget) {
+    if (threadBudget < 1) {
+      throw new IllegalArgumentException("Thread budget must be at least 1: " + threadBudget);
+    }
+    DecoderScheduler.threadBudget = threadBudget;
+    for (FfmpegMediaPlayer player : players) {
+      player.updateDecoderPriority();
+    }
+  }
+
+  /**
+   * Gets the number of threads that decode at once in all players
+   *
+   * @return The number of threads; defaults to the number of cores
+   */
+  public static int getThreadBudget() {
+    return threadBudget;
+  }
+
+  static void register(FfmpegMediaPlayer player) {
+    players.add(player);
+  }
+
+  static void unregister(FfmpegMediaPlayer player) {
+    players.remove(player);
+  }
+
+  /**
+   * Gets the number of decoding threads of a player that is initialized. The players that are
+   * initialized later get smaller shares; the budget holds anyway, since the decoders take turns.
+   *
+   * @param decoderOptions The options of the player
+   * @return The thread count of the options if set, otherwise the share of the budget; at most the
+   *     budget
+   */
+  static int getThreadCount(DecoderOptions decoderOptions) {
+    int budget = threadBudget;
+    if (decoderOptions.getThreadCount() > 0) {
+      return Math.min(decoderOptions.getThreadCount(), budget);
+    }
+    return Math.max(1, budget / Math.max(1, players.size()));
+  }
+
+  /**
+   * Gets the native priority of a player
+   *
+   * @param priority The priority of the player
+   * @param isPlaying True if the player plays
+   * @return The native priority
+   */
+  static int getPriority(Priority priority, boolean isPlaying) {
+    if (priority == Priority.FOREGROUND) {
+      return FOREGROUND_PRIORITY;
+    }
+    return isPlaying ? BACKGROUND_PRIORITY : PAUSED_PRIORITY;
+  }
+}
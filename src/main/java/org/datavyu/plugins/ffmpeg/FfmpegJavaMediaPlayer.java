@@ -1,8 +1,10 @@
 package org.datavyu.plugins.ffmpeg;
 
+import org.datavyu.plugins.FrameSink;
 import org.datavyu.plugins.MediaError;
 import org.datavyu.plugins.MediaException;
 import org.datavyu.plugins.MediaPlayerData;
+import org.datavyu.plugins.OffscreenFrameSink;
 import org.datavyu.plugins.SdlKeyEventListener;
 import org.datavyu.util.LibraryLoader;
 import org.apache.logging.log4j.LogManager;
@@ -14,7 +16,9 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
 import java.net.URI;
+import java.nio.ByteBuffer;
 
 import static java.awt.color.ColorSpace.CS_sRGB;
 
@@ -30,10 +34,17 @@ import static java.awt.color.ColorSpace.CS_sRGB;
 public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements MediaPlayerData {
   private AudioPlayerThread audioPlayerThread = null;
   private ImageCanvasPlayerThread imageCanvasPlayerThread = null;
+  private FrameSinkPlayerThread frameSinkPlayerThread = null;
   private Container container;
+  private FrameSink frameSink;
   private static final int AUDIO_BUFFER_SIZE = 4 * 1024; // 4 kB
   private AudioFormat audioFormat;
   private ColorSpace colorSpace;
+  private int imageType;
+  /** Reused by the image updates to avoid allocating an array for every frame */
+  private final boolean[] newImage = new boolean[1];
+  private final double[] remainingTime = new double[1];
+  private final double[] imagePresentationTime = new double[1];
   private static final Logger LOGGER = LogManager.getFormatterLogger(FfmpegJavaMediaPlayer.class);
 
   static {
@@ -49,18 +60,89 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
    * Create an ffmpeg media player instance and play through java Datavyu container
    *
    * @param mediaPath The File source
-   * @param container The Container to display
+   * @param container The Container to display, or null when the caller renders the frames pulled
+   *     through {@link MediaPlayerData#updateImageData(ByteBuffer)}
    * @param audioFormat The audio format used for playback
    * @param colorSpace The color space used for playback
+   * @param imageType The image type used for playback, either BufferedImage.TYPE_CUSTOM for packed
+   *     bytes in the color space, BufferedImage.TYPE_INT_RGB for one int per pixel, which Java2D
+   *     can draw without conversion on most pipelines, or BufferedImage.TYPE_INT_ARGB_PRE for one
+   *     opaque int per pixel, e.g. for a JavaFX PixelBuffer
    */
   public FfmpegJavaMediaPlayer(
-      URI mediaPath, Container container, AudioFormat audioFormat, ColorSpace colorSpace) {
+      URI mediaPath,
+      Container container,
+      AudioFormat audioFormat,
+      ColorSpace colorSpace,
+      int imageType) {
+    this(mediaPath, container, null, audioFormat, colorSpace, imageType);
+  }
+
+  /**
+   * Create an ffmpeg media player instance that hands the decoded frames to a frame sink instead of
+   * displaying them, which requires no display
+   *
+   * @param mediaPath The media path
+   * @param frameSink The sink that receives the frames
+   * @param imageType The image type of the frames, see {@link MediaPlayerData#getImageType()}
+   */
+  public FfmpegJavaMediaPlayer(URI mediaPath, FrameSink frameSink, int imageType) {
+    this(
+        mediaPath,
+        null,
+        frameSink,
+        AudioPlayerThread.getMonoFormat(),
+        ColorSpace.getInstance(ColorSpace.CS_sRGB),
+        imageType);
+  }
+
+  /**
+   * Create an ffmpeg media player instance that hands the decoded frames as packed bytes to a
+   * frame sink instead of displaying them, which requires no display
+   *
+   * @param mediaPath The media path
+   * @param frameSink The sink that receives the frames
+   */
+  public FfmpegJavaMediaPlayer(URI mediaPath, FrameSink frameSink) {
+    this(mediaPath, frameSink, BufferedImage.TYPE_CUSTOM);
+  }
+
+  private FfmpegJavaMediaPlayer(
+      URI mediaPath,
+      Container container,
+      FrameSink frameSink,
+      AudioFormat audioFormat,
+      ColorSpace colorSpace,
+      int imageType) {
     super(mediaPath);
+    if (imageType != BufferedImage.TYPE_CUSTOM
+        && imageType != BufferedImage.TYPE_INT_RGB
+        && imageType != BufferedImage.TYPE_INT_ARGB_PRE) {
+      throw new IllegalArgumentException("Unsupported image type " + imageType);
+    }
     this.container = container;
+    this.frameSink = frameSink;
     this.audioFormat = audioFormat;
     this.colorSpace = colorSpace;
+    this.imageType = imageType;
     this.audioPlayerThread = new AudioPlayerThread(this);
     this.imageCanvasPlayerThread = new ImageCanvasPlayerThread(this);
+    if (frameSink != null) {
+      this.frameSinkPlayerThread = new FrameSinkPlayerThread(this, frameSink);
+    }
+  }
+
+  /**
+   * Create an ffmpeg media player instance and play through java Datavyu container
+   *
+   * @param mediaPath The File source
+   * @param container The Container to display
+   * @param audioFormat The audio format used for playback
+   * @param colorSpace The color space used for playback
+   */
+  public FfmpegJavaMediaPlayer(
+      URI mediaPath, Container container, AudioFormat audioFormat, ColorSpace colorSpace) {
+    this(mediaPath, container, audioFormat, colorSpace, BufferedImage.TYPE_CUSTOM);
   }
 
   /**
@@ -78,16 +160,35 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
   }
 
   /**
-   * Create an ffmpeg media player instance and play through java framework
+   * Create an ffmpeg media player instance and play through java framework; in a headless
+   * environment the frames go to an {@link OffscreenFrameSink}
    *
    * @param mediaPath The media path
    */
   public FfmpegJavaMediaPlayer(URI mediaPath) {
     this(
         mediaPath,
-        new JDialog(),
+        GraphicsEnvironment.isHeadless() ? null : new JDialog(),
+        GraphicsEnvironment.isHeadless() ? new OffscreenFrameSink() : null,
         AudioPlayerThread.getMonoFormat(),
-        ColorSpace.getInstance(ColorSpace.CS_sRGB));
+        ColorSpace.getInstance(ColorSpace.CS_sRGB),
+        BufferedImage.TYPE_CUSTOM);
+  }
+
+  /**
+   * Create an ffmpeg media player instance whose frames are rendered by the caller, e.g. into a
+   * JavaFX PixelBuffer, by pulling them through {@link MediaPlayerData#updateImageData(ByteBuffer)}
+   *
+   * @param mediaPath The media path
+   * @param imageType The image type of the pulled frames
+   */
+  public FfmpegJavaMediaPlayer(URI mediaPath, int imageType) {
+    this(
+        mediaPath,
+        null,
+        AudioPlayerThread.getMonoFormat(),
+        ColorSpace.getInstance(ColorSpace.CS_sRGB),
+        imageType);
   }
 
   private void initAndStartAudioPlayer() {
@@ -99,8 +200,14 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     }
   }
 
+  private void initAndStartFrameSinkPlayer() {
+    frameSinkPlayerThread.init(getColorSpace(), getImageType(), getImageWidth(), getImageHeight());
+    frameSinkPlayerThread.start();
+  }
+
   private void initAndStartImagePlayer() {
-    imageCanvasPlayerThread.init(getColorSpace(), getImageWidth(), getImageHeight(), container);
+    imageCanvasPlayerThread.init(
+        getColorSpace(), getImageType(), getImageWidth(), getImageHeight(), container);
     imageCanvasPlayerThread.start();
   }
 
@@ -109,21 +216,49 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     initNative(); // start the event queue, make sure to register all state/error listeners before
     long[] newNativeMediaRef = new long[1];
 
+    DecoderOptions options = decoderOptions;
+    QueueOptions queueOptions = this.queueOptions;
+    DecoderScheduler.register(this);
+    MemoryBudget.register(this);
     int rc =
-        ffmpegInitPlayer(newNativeMediaRef, mediaPath, audioFormat, colorSpace, AUDIO_BUFFER_SIZE);
+        ffmpegInitPlayer(
+            newNativeMediaRef,
+            mediaPath,
+            audioFormat,
+            colorSpace,
+            imageType,
+            AUDIO_BUFFER_SIZE,
+            KeyFrameIndexCache.getDirectoryPath(),
+            DecoderScheduler.getThreadCount(options),
+            options.getThreadType().getValue(),
+            options.getLowres(),
+            options.isSkipLoopFilter(),
+            options.isAdaptiveQuality(),
+            MemoryBudget.getMaxPacketBytes(queueOptions),
+            queueOptions.getImageFrameQueueSize(),
+            queueOptions.getAudioFrameQueueSize(),
+            queueOptions.getMinPackets(),
+            queueOptions.getMinPacketsDuration());
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
 
     nativeMediaRef = newNativeMediaRef[0];
+    updateTimeUpdateInterval();
+    updateScrubbing();
+    updateDecoderPriority();
+    updateMemoryShare();
 
     // If we have audio data consume it
     if (hasAudioData()) {
       initAndStartAudioPlayer();
     }
-    // If we have image data consume it
-    if (hasImageData()) {
+    // If we have image data consume it through the container or the frame sink; otherwise the
+    // caller pulls the frames
+    if (hasImageData() && container != null) {
       initAndStartImagePlayer();
+    } else if (hasImageData() && frameSinkPlayerThread != null) {
+      initAndStartFrameSinkPlayer();
     }
 
     synchronized (initLock) {
@@ -155,6 +290,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -173,6 +309,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -181,6 +318,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -189,6 +327,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -197,6 +336,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -215,6 +355,7 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
   }
 
   @Override
@@ -299,39 +440,57 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
+    wakeUpImagePlayer();
     LOGGER.trace("Player is seeking to " + streamTime + " sec");
   }
 
   @Override
   protected int playerGetWindowWidth() throws MediaException {
+    if (this.container == null) {
+      return getImageWidth();
+    }
     return this.container.getWidth();
   }
 
   @Override
   protected int playerGetWindowHeight() throws MediaException {
+    if (this.container == null) {
+      return getImageHeight();
+    }
     return this.container.getHeight();
   }
 
   @Override
   protected void playerSetWindowSize(int width, int height) throws MediaException {
-    this.container.setSize(width, height);
+    if (this.container != null) {
+      this.container.setSize(width, height);
+    }
   }
 
   @Override
   protected void playerShowWindow() throws MediaException {
-    this.container.setVisible(true);
+    if (this.container != null) {
+      this.container.setVisible(true);
+    }
   }
 
   @Override
   protected void playerHideWindow() throws MediaException {
-    this.container.setVisible(false);
+    if (this.container != null) {
+      this.container.setVisible(false);
+    }
   }
 
   @Override
   protected void playerDispose() {
+    DecoderScheduler.unregister(this);
+    MemoryBudget.unregister(this);
     if (imageCanvasPlayerThread.isInit()) {
       imageCanvasPlayerThread.terminate();
     }
+    if (frameSinkPlayerThread != null && frameSinkPlayerThread.isInit()) {
+      frameSinkPlayerThread.terminate();
+    }
     if (audioPlayerThread.isInit()) {
       audioPlayerThread.terminate();
     }
@@ -406,6 +565,11 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
     return colorSpace[0];
   }
 
+  @Override
+  public int getImageType() {
+    return imageType;
+  }
+
   @Override
   public void updateAudioData(byte[] data) {
     int rc = ffmpegUpdateAudioData(getNativeMediaRef(), data);
@@ -415,13 +579,103 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
   }
 
   @Override
-  public void updateImageData(byte[] data) {
-    int rc = ffmpegUpdateImageData(getNativeMediaRef(), data);
+  public boolean updateImageData(byte[] data) {
+    synchronized (newImage) {
+      int rc = ffmpegUpdateImageData(getNativeMediaRef(), data, newImage);
+      if (0 != rc) {
+        throwMediaErrorException(rc, null);
+      }
+      return newImage[0];
+    }
+  }
+
+  @Override
+  public boolean updateImageData(ByteBuffer buffer) {
+    if (!buffer.isDirect()) {
+      throw new IllegalArgumentException("The image buffer must be a direct buffer");
+    }
+    synchronized (newImage) {
+      int rc = ffmpegUpdateImageBuffer(getNativeMediaRef(), buffer, newImage);
+      if (0 != rc) {
+        throwMediaErrorException(rc, null);
+      }
+      return newImage[0];
+    }
+  }
+
+  @Override
+  public void setImageOutputSize(int width, int height) {
+    int rc = ffmpegSetImageOutputSize(getNativeMediaRef(), width, height);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+  }
+
+  @Override
+  public void setDisplaySize(int width, int height) {
+    int rc = ffmpegSetDisplaySize(getNativeMediaRef(), width, height);
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
   }
 
+  /**
+   * Gets the number of steps the decoding quality is reduced for the display size, one step
+   * per halving of the images; always 0 without adaptive quality
+   *
+   * @return The number of steps
+   */
+  public int getImageQualityReduction() {
+    int[] reduction = new int[1];
+    int rc = ffmpegGetImageQualityReduction(getNativeMediaRef(), reduction);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+    return reduction[0];
+  }
+
+  /**
+   * Sets whether the displayed frames are scaled down natively to the size of the container, which
+   * is much cheaper for containers that are smaller than the video
+   *
+   * @param scaleNatively True to scale natively; false to transfer the frames at full size
+   */
+  public void setScaleImageNatively(boolean scaleNatively) {
+    imageCanvasPlayerThread.setScaleNatively(scaleNatively);
+  }
+
+  @Override
+  public double getRemainingTimeToDisplay() {
+    synchronized (remainingTime) {
+      int rc = ffmpegGetRemainingTimeToDisplay(getNativeMediaRef(), remainingTime);
+      if (0 != rc) {
+        throwMediaErrorException(rc, null);
+      }
+      return remainingTime[0];
+    }
+  }
+
+  @Override
+  public double getImagePresentationTime() {
+    synchronized (imagePresentationTime) {
+      int rc = ffmpegGetImagePresentationTime(getNativeMediaRef(), imagePresentationTime);
+      if (0 != rc) {
+        throwMediaErrorException(rc, null);
+      }
+      return imagePresentationTime[0];
+    }
+  }
+
+  /** Wakes up the image player so that it displays the effect of a command without delay */
+  private void wakeUpImagePlayer() {
+    if (imageCanvasPlayerThread.isInit()) {
+      imageCanvasPlayerThread.wakeUp();
+    }
+    if (frameSinkPlayerThread != null && frameSinkPlayerThread.isInit()) {
+      frameSinkPlayerThread.wakeUp();
+    }
+  }
+
   @Override
   protected void HandleSdlKeyEvents(FfmpegSdlMediaPlayer.SdlPlayerKeyEvent evt) {
     throw new IllegalArgumentException();
@@ -442,7 +696,19 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
       String sourcePath,
       AudioFormat requestedAudioFormat,
       ColorSpace requestedColorFormat,
-      int audioBufferSizeInBy);
+      int requestedImageType,
+      int audioBufferSizeInBy,
+      String keyFrameIndexCacheDir,
+      int decoderThreadCount,
+      int decoderThreadType,
+      int decoderLowres,
+      boolean skipLoopFilter,
+      boolean adaptiveQuality,
+      long maxPacketBytes,
+      int imageFrameQueueSize,
+      int audioFrameQueueSize,
+      int minPackets,
+      double minPacketsDuration);
 
   private native int ffmpegDisposePlayer(long refNativeMedia);
 
@@ -470,6 +736,31 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
 
   private native int ffmpegGetFps(long refNativeMedia, double[] fps);
 
+  @Override
+  protected native int ffmpegGetStatus(long refNativeMedia, double[] status);
+
+  @Override
+  protected native int ffmpegGetKeyFrameTimes(long refNativeMedia, double[][] times);
+
+  @Override
+  protected native int ffmpegSetTimeUpdateInterval(long refNativeMedia, double interval);
+
+  @Override
+  protected native int ffmpegSetScrubbing(long refNativeMedia, boolean scrubbing);
+
+  @Override
+  protected native int ffmpegSetFrameCacheCapacity(long refNativeMedia, long capacityInBytes);
+
+  @Override
+  protected native int ffmpegSetDecoderPriority(long refNativeMedia, int priority, int numSlots);
+
+  @Override
+  protected native int ffmpegSetMaxPacketBytes(long refNativeMedia, long maxPacketBytes);
+
+  @Override
+  protected native int ffmpegRequestFrameEvent(
+      long refNativeMedia, int requestId, boolean isSeek);
+
   private native int ffmpegGetDuration(long refNativeMedia, double[] duration);
 
   private native int ffmpegSeek(long refNativeMedia, double streamTime);
@@ -486,7 +777,20 @@ public final class FfmpegJavaMediaPlayer extends FfmpegMediaPlayer implements Me
 
   private native int ffmpegGetColorSpace(long refNativeMedia, ColorSpace[] colorSpace);
 
-  private native int ffmpegUpdateImageData(long refNativeMedia, byte[] data);
+  private native int ffmpegUpdateImageData(long refNativeMedia, byte[] data, boolean[] newImage);
+
+  private native int ffmpegUpdateImageBuffer(
+      long refNativeMedia, ByteBuffer buffer, boolean[] newImage);
+
+  private native int ffmpegSetImageOutputSize(long refNativeMedia, int width, int height);
+
+  private native int ffmpegSetDisplaySize(long refNativeMedia, int width, int height);
+
+  private native int ffmpegGetImageQualityReduction(long refNativeMedia, int[] reduction);
+
+  private native int ffmpegGetRemainingTimeToDisplay(long refNativeMedia, double[] remainingTime);
+
+  private native int ffmpegGetImagePresentationTime(long refNativeMedia, double[] presentationTime);
 
   private native int ffmpegUpdateAudioData(long refNativeMedia, byte[] data);
 }
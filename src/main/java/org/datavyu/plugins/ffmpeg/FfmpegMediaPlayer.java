@@ -2,9 +2,11 @@ package org.datavyu.plugins.ffmpeg;
 
 import org.datavyu.plugins.DatavyuMediaPlayer;
 import org.datavyu.plugins.MediaException;
+import org.datavyu.plugins.NativeMediaPlayer;
 import org.datavyu.plugins.PlayerStateEvent;
 
 import org.datavyu.plugins.PlayerStateListener;
+import org.datavyu.plugins.PlayerStatus;
 import java.net.URI;
 
 /** Uses ffmpeg to decode and transcode (optional) image and audio data */
@@ -16,6 +18,30 @@ abstract class FfmpegMediaPlayer extends DatavyuMediaPlayer {
 
   protected double startTime = 0.0;
 
+  /** The options of the image decoder passed to the native player on init */
+  protected volatile DecoderOptions decoderOptions = DecoderOptions.DEFAULT;
+
+  /** The sizes of the queues passed to the native player on init */
+  protected volatile QueueOptions queueOptions = QueueOptions.DEFAULT;
+
+  /** The priority of the image decoder with the decoders of the other players */
+  private volatile DecoderScheduler.Priority decoderPriority = DecoderScheduler.Priority.FOREGROUND;
+
+  /** True while playing; paused players decode before the players playing in the background */
+  private volatile boolean isPlaying = false;
+
+  /** Indices into the status array filled natively; must match PlayerStatus in PlayerState.h */
+  protected static final int STATUS_STREAM_TIME = 0;
+  protected static final int STATUS_RATE = 1;
+  protected static final int STATUS_FPS = 2;
+  protected static final int STATUS_DURATION = 3;
+  protected static final int STATUS_IMAGE_WIDTH = 4;
+  protected static final int STATUS_IMAGE_HEIGHT = 5;
+  protected static final int STATUS_NUM_FIELDS = 6;
+
+  /** Reused by the status queries to avoid allocating an array for every query */
+  private final double[] status = new double[STATUS_NUM_FIELDS];
+
   /**
    * Create an ffmpeg media player instance
    *
@@ -27,6 +53,126 @@ abstract class FfmpegMediaPlayer extends DatavyuMediaPlayer {
     this.addMediaPlayerStateListener(stateListener);
   }
 
+  /**
+   * Sets the options of the image decoder; takes effect when the player is initialized
+   *
+   * @param decoderOptions The decoder options
+   */
+  public void setDecoderOptions(DecoderOptions decoderOptions) {
+    if (decoderOptions == null) {
+      throw new IllegalArgumentException("Decoder options must not be null");
+    }
+    this.decoderOptions = decoderOptions;
+  }
+
+  public DecoderOptions getDecoderOptions() {
+    return decoderOptions;
+  }
+
+  /**
+   * Sets the sizes of the queues; takes effect when the player is initialized
+   *
+   * @param queueOptions The queue options
+   */
+  public void setQueueOptions(QueueOptions queueOptions) {
+    if (queueOptions == null) {
+      throw new IllegalArgumentException("Queue options must not be null");
+    }
+    this.queueOptions = queueOptions;
+  }
+
+  public QueueOptions getQueueOptions() {
+    return queueOptions;
+  }
+
+  /**
+   * Passes the bytes of the packet queues and the frame cache, limited by the share of the memory
+   * budget, to the native layer. Players call this after creating the native layer. Skips players
+   * that are being disposed, since they might update the other players meanwhile.
+   */
+  void updateMemoryShare() {
+    if (!disposeLock.readLock().tryLock()) {
+      return;
+    }
+    try {
+      if (!isDisposed && nativeMediaRef != 0) {
+        int rc =
+            ffmpegSetMaxPacketBytes(nativeMediaRef, MemoryBudget.getMaxPacketBytes(queueOptions));
+        if (0 != rc) {
+          throwMediaErrorException(rc, null);
+        }
+        playerSetFrameCacheCapacity(getFrameCacheCapacity());
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new NativeMediaPlayer.MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Sets the bytes of the packets that are read ahead
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param maxPacketBytes The bytes of the audio and image packet queues together
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegSetMaxPacketBytes(long refNativeMedia, long maxPacketBytes);
+
+  /**
+   * Sets the priority of the image decoder with the image decoders of the other players, see
+   * {@link DecoderScheduler}
+   *
+   * @param decoderPriority The priority
+   */
+  public void setDecoderPriority(DecoderScheduler.Priority decoderPriority) {
+    if (decoderPriority == null) {
+      throw new IllegalArgumentException("Decoder priority must not be null");
+    }
+    this.decoderPriority = decoderPriority;
+    updateDecoderPriority();
+  }
+
+  public DecoderScheduler.Priority getDecoderPriority() {
+    return decoderPriority;
+  }
+
+  /**
+   * Passes the decoder priority and the thread budget to the native layer. Players call this after
+   * creating the native layer.
+   */
+  void updateDecoderPriority() {
+    disposeLock.readLock().lock();
+    try {
+      if (!isDisposed && nativeMediaRef != 0) {
+        int rc =
+            ffmpegSetDecoderPriority(
+                nativeMediaRef,
+                DecoderScheduler.getPriority(decoderPriority, isPlaying),
+                DecoderScheduler.getThreadBudget());
+        if (0 != rc) {
+          throwMediaErrorException(rc, null);
+        }
+      }
+    } catch (MediaException me) {
+      sendPlayerEvent(new NativeMediaPlayer.MediaErrorEvent(this, me.getMediaError()));
+    } finally {
+      disposeLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Sets the priority of the image decoder and the number of image decoders that decode at once in
+   * the process
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param priority The priority; lower values decode first
+   * @param numSlots The number of decoders that decode at once
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegSetDecoderPriority(
+      long refNativeMedia, int priority, int numSlots);
+
   @Override
   protected double playerGetStartTime() throws MediaException {
     return startTime;
@@ -40,14 +186,135 @@ abstract class FfmpegMediaPlayer extends DatavyuMediaPlayer {
 
   @Override
   protected boolean playerIsSeekPlaybackEnabled() {
-    return playBackRate < 0F || playBackRate > 32F;
+    return playBackRate < -32F || playBackRate > 32F;
   }
 
   @Override
   protected boolean playerRateIsSupported(final float rate) {
-    return 0F <= rate && rate <= 32F;
+    return -32F <= rate && rate <= 32F;
   }
 
+  @Override
+  protected PlayerStatus playerGetStatus(PlayerStateEvent.PlayerState state)
+      throws MediaException {
+    synchronized (status) {
+      int rc = ffmpegGetStatus(getNativeMediaRef(), status);
+      if (0 != rc) {
+        throwMediaErrorException(rc, null);
+      }
+      return new PlayerStatus(
+          state,
+          status[STATUS_STREAM_TIME],
+          playerIsSeekPlaybackEnabled() ? playBackRate : (float) status[STATUS_RATE],
+          status[STATUS_FPS],
+          // Like the duration getters, an unknown duration is infinite
+          status[STATUS_DURATION] == -1.0 ? Double.POSITIVE_INFINITY : status[STATUS_DURATION],
+          (int) status[STATUS_IMAGE_WIDTH],
+          (int) status[STATUS_IMAGE_HEIGHT]);
+    }
+  }
+
+  /**
+   * Fills the status array with the commonly polled properties in one native call
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param status The array of STATUS_NUM_FIELDS values
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegGetStatus(long refNativeMedia, double[] status);
+
+  @Override
+  protected double[] playerGetKeyFrameTimes() throws MediaException {
+    double[][] times = new double[1][];
+    int rc = ffmpegGetKeyFrameTimes(getNativeMediaRef(), times);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+    return times[0];
+  }
+
+  /**
+   * Gets the key frame times of the video stream in a new array
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param times The array whose only element is set to the times
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegGetKeyFrameTimes(long refNativeMedia, double[][] times);
+
+  @Override
+  protected void playerSetTimeUpdateInterval(double interval) throws MediaException {
+    int rc = ffmpegSetTimeUpdateInterval(getNativeMediaRef(), interval);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+  }
+
+  /**
+   * Sets the minimum time between two time events sent by the native layer
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param interval The interval in seconds; 0 for every displayed frame and negative to disable
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegSetTimeUpdateInterval(long refNativeMedia, double interval);
+
+  @Override
+  protected void playerSetScrubbing(boolean scrubbing) throws MediaException {
+    int rc = ffmpegSetScrubbing(getNativeMediaRef(), scrubbing);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+  }
+
+  /**
+   * Sets the scrub mode in which a seek returns right away and replaces a seek in progress
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param scrubbing True to enable the scrub mode
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegSetScrubbing(long refNativeMedia, boolean scrubbing);
+
+  @Override
+  protected void playerSetFrameCacheCapacity(long capacityInBytes) throws MediaException {
+    int rc =
+        ffmpegSetFrameCacheCapacity(
+            getNativeMediaRef(), MemoryBudget.getFrameCacheBytes(queueOptions, capacityInBytes));
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+  }
+
+  /**
+   * Sets the byte budget of the cache of decoded frames
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param capacityInBytes The budget in bytes; 0 disables the cache
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegSetFrameCacheCapacity(long refNativeMedia, long capacityInBytes);
+
+  @Override
+  protected boolean playerRequestFrameEvent(int requestId, boolean isSeek) throws MediaException {
+    int rc = ffmpegRequestFrameEvent(getNativeMediaRef(), requestId, isSeek);
+    if (0 != rc) {
+      throwMediaErrorException(rc, null);
+    }
+    return true;
+  }
+
+  /**
+   * Requests a frame event for the first frame displayed after the next command
+   *
+   * @param refNativeMedia The reference to the native media
+   * @param requestId The id that the frame event reports
+   * @param isSeek True if the command seeks; then the frame is the first frame of the seek
+   * @return The error code; 0 for no error
+   */
+  protected abstract int ffmpegRequestFrameEvent(
+      long refNativeMedia, int requestId, boolean isSeek);
+
   class FfmpegPlayerStateListener implements PlayerStateListener {
 
     @Override
@@ -64,19 +331,31 @@ abstract class FfmpegMediaPlayer extends DatavyuMediaPlayer {
     }
 
     @Override
-    public void onPlaying(PlayerStateEvent evt) {}
+    public void onPlaying(PlayerStateEvent evt) {
+      isPlaying = true;
+      updateDecoderPriority();
+    }
 
     @Override
-    public void onPause(PlayerStateEvent evt) {}
+    public void onPause(PlayerStateEvent evt) {
+      isPlaying = false;
+      updateDecoderPriority();
+    }
 
     @Override
-    public void onStop(PlayerStateEvent evt) {}
+    public void onStop(PlayerStateEvent evt) {
+      isPlaying = false;
+      updateDecoderPriority();
+    }
 
     @Override
     public void onStall(PlayerStateEvent evt) {}
 
     @Override
-    public void onFinish(PlayerStateEvent evt) {}
+    public void onFinish(PlayerStateEvent evt) {
+      isPlaying = false;
+      updateDecoderPriority();
+    }
 
     @Override
     public void onHalt(PlayerStateEvent evt) {}
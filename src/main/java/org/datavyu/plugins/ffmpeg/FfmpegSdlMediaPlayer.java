@@ -42,12 +42,34 @@ public final class FfmpegSdlMediaPlayer extends FfmpegMediaPlayer {
     initNative(); // start the event queue, make sure to register all state/error listeners before
     long[] newNativeMediaRef = new long[1];
 
-    int rc = ffmpegInitPlayer(newNativeMediaRef, mediaPath);
+    DecoderOptions options = decoderOptions;
+    QueueOptions queueOptions = this.queueOptions;
+    DecoderScheduler.register(this);
+    MemoryBudget.register(this);
+    int rc =
+        ffmpegInitPlayer(
+            newNativeMediaRef,
+            mediaPath,
+            KeyFrameIndexCache.getDirectoryPath(),
+            DecoderScheduler.getThreadCount(options),
+            options.getThreadType().getValue(),
+            options.getLowres(),
+            options.isSkipLoopFilter(),
+            options.isAdaptiveQuality(),
+            MemoryBudget.getMaxPacketBytes(queueOptions),
+            queueOptions.getImageFrameQueueSize(),
+            queueOptions.getAudioFrameQueueSize(),
+            queueOptions.getMinPackets(),
+            queueOptions.getMinPacketsDuration());
     if (0 != rc) {
       throwMediaErrorException(rc, null);
     }
 
     nativeMediaRef = newNativeMediaRef[0];
+    updateTimeUpdateInterval();
+    updateScrubbing();
+    updateDecoderPriority();
+    updateMemoryShare();
   }
 
   @Override
@@ -244,6 +266,8 @@ public final class FfmpegSdlMediaPlayer extends FfmpegMediaPlayer {
 
   @Override
   protected void playerDispose() {
+    DecoderScheduler.unregister(this);
+    MemoryBudget.unregister(this);
     ffmpegDisposePlayer(getNativeMediaRef());
 
     if (keyListeners != null) {
@@ -358,7 +382,20 @@ public final class FfmpegSdlMediaPlayer extends FfmpegMediaPlayer {
   }
 
   // Native methods
-  protected native int ffmpegInitPlayer(long[] newNativeMedia, String sourcePath);
+  protected native int ffmpegInitPlayer(
+      long[] newNativeMedia,
+      String sourcePath,
+      String keyFrameIndexCacheDir,
+      int decoderThreadCount,
+      int decoderThreadType,
+      int decoderLowres,
+      boolean skipLoopFilter,
+      boolean adaptiveQuality,
+      long maxPacketBytes,
+      int imageFrameQueueSize,
+      int audioFrameQueueSize,
+      int minPackets,
+      double minPacketsDuration);
 
   protected native int ffmpegDisposePlayer(long refNativeMedia);
 
@@ -386,6 +423,31 @@ public final class FfmpegSdlMediaPlayer extends FfmpegMediaPlayer {
 
   protected native int ffmpegGetFps(long refNativeMedia, double[] fps);
 
+  @Override
+  protected native int ffmpegGetStatus(long refNativeMedia, double[] status);
+
+  @Override
+  protected native int ffmpegGetKeyFrameTimes(long refNativeMedia, double[][] times);
+
+  @Override
+  protected native int ffmpegSetTimeUpdateInterval(long refNativeMedia, double interval);
+
+  @Override
+  protected native int ffmpegSetScrubbing(long refNativeMedia, boolean scrubbing);
+
+  @Override
+  protected native int ffmpegSetFrameCacheCapacity(long refNativeMedia, long capacityInBytes);
+
+  @Override
+  protected native int ffmpegSetDecoderPriority(long refNativeMedia, int priority, int numSlots);
+
+  @Override
+  protected native int ffmpegSetMaxPacketBytes(long refNativeMedia, long maxPacketBytes);
+
+  @Override
+  protected native int ffmpegRequestFrameEvent(
+      long refNativeMedia, int requestId, boolean isSeek);
+
   protected native int ffmpegGetBalance(long refNativeMedia, float[] balance);
 
   protected native int ffmpegSetBalance(long refNativeMedia, float balance);
@@ -0,0 +1,87 @@
+package org.datavyu.plugins.ffmpeg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.datavyu.plugins.FrameSink;
+import org.datavyu.plugins.MediaPlayerData;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This Class is responsible of handing the decoded frames to a frame sink instead of displaying
+ * them, which requires no display and thus runs with java.awt.headless=true.
+ *
+ * <p>Like the image canvas player thread, it sleeps until the native side expects the next frame to
+ * be due and parks while the playback is paused. Player commands wake it up.
+ */
+class FrameSinkPlayerThread extends Thread {
+  static final String THREAD_NAME = "Ffmpeg frame sink player thread";
+  private static final Logger logger = LogManager.getFormatterLogger(FrameSinkPlayerThread.class);
+  private static final double TO_NANOS = 1000000000.0;
+  private MediaPlayerData mediaPlayerData;
+  private FrameSink frameSink;
+  private ByteBuffer buffer;
+  private volatile boolean terminate = false;
+  private boolean isInit = false;
+
+  FrameSinkPlayerThread(MediaPlayerData mediaPlayerData, FrameSink frameSink) {
+    this.mediaPlayerData = mediaPlayerData;
+    this.frameSink = frameSink;
+    setName(THREAD_NAME);
+    setDaemon(false);
+  }
+
+  public void init(ColorSpace colorSpace, int imageType, int width, int height) {
+    int bytesPerPixel =
+        imageType == BufferedImage.TYPE_CUSTOM ? colorSpace.getNumComponents() : Integer.BYTES;
+    // Allocate the direct buffer in native order so that int pixels read as native ints
+    buffer =
+        ByteBuffer.allocateDirect(width * height * bytesPerPixel).order(ByteOrder.nativeOrder());
+    frameSink.init(width, height, imageType, colorSpace);
+    isInit = true;
+  }
+
+  public boolean isInit() {
+    return isInit;
+  }
+
+  /** Wakes up the thread to pull the next frame; called after player commands */
+  public void wakeUp() {
+    LockSupport.unpark(this);
+  }
+
+  public void run() {
+    while (!terminate) {
+      if (mediaPlayerData.updateImageData(buffer)) {
+        buffer.rewind();
+        frameSink.onFrame(buffer, mediaPlayerData.getImagePresentationTime());
+        buffer.rewind();
+      }
+      // Sleep until the next frame is due or park while there is nothing to pull
+      double waitTime = mediaPlayerData.getRemainingTimeToDisplay();
+      if (Double.isInfinite(waitTime)) {
+        LockSupport.park(this);
+      } else if (waitTime > 0) {
+        LockSupport.parkNanos(this, (long) (waitTime * TO_NANOS));
+      }
+    }
+  }
+
+  /** Stops pulling frames and disposes the sink once the last frame was handed over */
+  public void terminate() {
+    terminate = true;
+    LockSupport.unpark(this);
+    try {
+      join();
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while waiting for the frame sink player thread: " + e);
+      Thread.currentThread().interrupt();
+    }
+    frameSink.dispose();
+    isInit = false;
+  }
+}
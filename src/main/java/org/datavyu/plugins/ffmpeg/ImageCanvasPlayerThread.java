@@ -4,8 +4,14 @@ import org.datavyu.plugins.MediaPlayerData;
 
 import java.awt.*;
 import java.awt.color.ColorSpace;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Hashtable;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This Class is responsible of displaying an a buffered image into a canvas container, note that
@@ -17,26 +23,52 @@ import java.util.Hashtable;
  * Min Time: 50 ms Same Video with resizing (tried to resize the JFrame during the entire stream)
  * Display Avg Time: ~64 ms Display Max Time: 2 s (Noticed that the thread is not updating the image
  * while resizing) Display Min Time: 44 ms (displaying the frame is faster; small aea to draw)
+ *
+ * <p>The thread sleeps until the native side expects the next frame to be due and parks while the
+ * playback is paused. Player commands, repaints and resizes of the canvas wake it up.
+ *
+ * <p>When scaling natively, the frames are scaled down to the displayed size before they are
+ * transferred, which avoids converting, copying and rescaling full size frames for small canvases.
+ *
+ * <p>For the image types TYPE_INT_RGB and TYPE_INT_ARGB_PRE the frames are transferred as one int
+ * per pixel in native byte order and drawn from an image that Java2D blits without converting
+ * every pixel.
  */
 class ImageCanvasPlayerThread extends Thread {
+  static final String THREAD_NAME = "Ffmpeg image canvas player thread";
   private MediaPlayerData mediaPlayerData;
   private SampleModel sm;
   private ComponentColorModel cm;
   private Hashtable<String, String> properties = new Hashtable<>();
   private BufferedImage image;
+  private int imageType;
   private byte[] data;
+  private int[] intData;
+  private ByteBuffer buffer;
+  private IntBuffer intBuffer;
   private Canvas canvas;
   private BufferStrategy strategy;
   private static final int NUM_COLOR_CHANNELS = 3;
   private static final int NUM_BUFFERS = 3;
   private volatile boolean terminate = false;
+  private int srcWidth;
+  private int srcHeight;
   private int imgWidth;
   private int imgHeight;
-  private static final double REFRESH_PERIOD = 0.01; // >= 1/fps
-  private static final double TO_MILLIS = 1000.0;
+  private volatile boolean scaleNatively = false;
+  private static final double TO_NANOS = 1000000000.0;
+
+  /** Set when the thread is woken up to force a repaint of the current frame */
+  private volatile boolean repaint = false;
 
   private boolean isInit = false;
 
+  /** The canvas size of the last display update; a change in size requires a repaint. */
+  private int displayWidth, displayHeight;
+
+  /** The size the images are displayed at as last passed to the native player */
+  private int targetWidth, targetHeight;
+
   /**
    * x1 and y1 are respectively the x and y coordinates of the left, upper corner of the destination
    * rectangle.
@@ -51,7 +83,7 @@ class ImageCanvasPlayerThread extends Thread {
 
   ImageCanvasPlayerThread(MediaPlayerData mediaPlayerData) {
     this.mediaPlayerData = mediaPlayerData;
-    setName("Ffmpeg image canvas player thread");
+    setName(THREAD_NAME);
     setDaemon(false);
   }
 
@@ -81,6 +113,8 @@ class ImageCanvasPlayerThread extends Thread {
       } while (strategy.contentsLost());
       // Repeat the rendering if the target changed size
     } while (!size.equals(canvas.getSize()));
+    displayWidth = size.width;
+    displayHeight = size.height;
   }
 
   /**
@@ -88,7 +122,7 @@ class ImageCanvasPlayerThread extends Thread {
    * coordinates (upper left and lower right) of the target image to be rendered in the canvas.
    */
   private void scaleImage() {
-    double imgAspectRatio = (double) this.imgHeight / this.imgWidth;
+    double imgAspectRatio = (double) this.srcHeight / this.srcWidth;
 
     int canvasWidth = canvas.getWidth();
     int canvasHeight = canvas.getHeight();
@@ -111,25 +145,128 @@ class ImageCanvasPlayerThread extends Thread {
     y2 = canvasHeight + y1;
   }
 
-  public void init(ColorSpace colorSpace, int width, int height, Container container) {
+  /**
+   * Pulls the most recent frame into the direct buffer and from there into the image data.
+   *
+   * @return True if a new frame was pulled; otherwise false
+   */
+  private boolean updateImageData() {
+    if (!mediaPlayerData.updateImageData(buffer)) {
+      return false;
+    }
+    if (imageType != BufferedImage.TYPE_CUSTOM) {
+      intBuffer.rewind();
+      intBuffer.get(intData);
+    } else {
+      buffer.rewind();
+      buffer.get(data);
+      buffer.rewind();
+    }
+    return true;
+  }
+
+  /**
+   * Allocates the image data and the image for the given size. The image is backed by the data
+   * array that is updated for every frame, so this is only needed when the size changes.
+   */
+  private void allocateImage(int width, int height) {
     this.imgWidth = width;
     this.imgHeight = height;
+    if (imageType != BufferedImage.TYPE_CUSTOM) {
+      // Create the image with one int per pixel and write into its data array directly
+      image = new BufferedImage(this.imgWidth, this.imgHeight, imageType);
+      this.intData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      // Allocate the direct buffer in native order so that the ints match the native pixels
+      this.buffer =
+          ByteBuffer.allocateDirect(this.intData.length * Integer.BYTES)
+              .order(ByteOrder.nativeOrder());
+      this.intBuffer = this.buffer.asIntBuffer();
+      return;
+    }
     // Allocate byte buffer
     this.data = new byte[this.imgWidth * this.imgHeight * NUM_COLOR_CHANNELS];
-    // Update the Image buffer to Pull a frame from the queue and update
-    // the PTS from NaN to 0.0 sec
-    mediaPlayerData.updateImageData(data);
-    // Set defaults
-    cm = new ComponentColorModel(
-            colorSpace, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+    // Allocate the direct buffer that the native side converts frames into
+    this.buffer = ByteBuffer.allocateDirect(this.data.length);
     sm = cm.createCompatibleSampleModel(this.imgWidth, this.imgHeight);
-    // Initialize an empty image
     DataBufferByte dataBuffer = new DataBufferByte(this.data, this.imgWidth * this.imgHeight);
     WritableRaster raster = WritableRaster.createWritableRaster(sm, dataBuffer, new Point(0, 0));
     // Create the original image
     image = new BufferedImage(cm, raster, false, properties);
-    // Create the canvas and add it to the center of the Container
-    this.canvas = new Canvas();
+  }
+
+  /**
+   * Passes the displayed size to the native player, which adapts the decoding quality to it, and
+   * matches the image size to the displayed size when scaling natively, otherwise to the frame
+   * size. Frames are only scaled down natively; larger canvases are scaled up by Java2D.
+   *
+   * @return True if the image size changed; otherwise false
+   */
+  private boolean updateImageSize() {
+    scaleImage(); // calculate the coordinate of the target image
+    if (x2 - x1 != targetWidth || y2 - y1 != targetHeight) {
+      targetWidth = x2 - x1;
+      targetHeight = y2 - y1;
+      mediaPlayerData.setDisplaySize(Math.max(targetWidth, 0), Math.max(targetHeight, 0));
+    }
+    int width = srcWidth;
+    int height = srcHeight;
+    if (scaleNatively
+        && targetWidth > 0
+        && targetHeight > 0
+        && targetWidth < srcWidth
+        && targetHeight < srcHeight) {
+      width = targetWidth;
+      height = targetHeight;
+    }
+    if (width == imgWidth && height == imgHeight) {
+      return false;
+    }
+    allocateImage(width, height);
+    boolean scaled = width != srcWidth || height != srcHeight;
+    mediaPlayerData.setImageOutputSize(scaled ? width : 0, scaled ? height : 0);
+    return true;
+  }
+
+  /**
+   * Sets whether frames are scaled down natively to the displayed size or transferred at full size
+   * and scaled by Java2D.
+   *
+   * @param scaleNatively True to scale natively; otherwise false
+   */
+  void setScaleNatively(boolean scaleNatively) {
+    this.scaleNatively = scaleNatively;
+    wakeUp();
+  }
+
+  public void init(
+      ColorSpace colorSpace, int imageType, int width, int height, Container container) {
+    this.imageType = imageType;
+    this.srcWidth = width;
+    this.srcHeight = height;
+    // Set defaults
+    cm = new ComponentColorModel(
+            colorSpace, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+    // Initialize the image at the frame size
+    allocateImage(width, height);
+    // Update the Image buffer to Pull a frame from the queue and update
+    // the PTS from NaN to 0.0 sec
+    updateImageData();
+    // Create the canvas and add it to the center of the Container. System repaints are done by
+    // this thread, otherwise the frame is lost when the canvas is exposed while paused
+    this.canvas =
+        new Canvas() {
+          @Override
+          public void paint(Graphics g) {
+            wakeUp();
+          }
+        };
+    this.canvas.addComponentListener(
+        new ComponentAdapter() {
+          @Override
+          public void componentResized(ComponentEvent e) {
+            wakeUp();
+          }
+        });
     // Add a black background to the canvas
     this.canvas.setBackground(Color.BLACK);
     container.add(canvas, BorderLayout.CENTER);
@@ -148,34 +285,43 @@ class ImageCanvasPlayerThread extends Thread {
     return isInit;
   }
 
+  /**
+   * Wakes up the thread to pull the next frame and repaint; called when the player state, the
+   * position or the canvas changes.
+   */
+  public void wakeUp() {
+    repaint = true;
+    LockSupport.unpark(this);
+  }
+
   public void run() {
     while (!terminate) {
-      long start = System.currentTimeMillis();
-      // Get the next image data -- may return the same data if no newer data is available
-      mediaPlayerData.updateImageData(data);
-      // Create data buffer
-      DataBufferByte dataBuffer = new DataBufferByte(data, imgWidth * imgHeight);
-      // Create writable raster
-      WritableRaster raster = WritableRaster.createWritableRaster(sm, dataBuffer, new Point(0, 0));
-      // Create the original image
-      image = new BufferedImage(cm, raster, false, properties);
-      // Update the display
-      updateDisplay();
-      // Compute the wait time as update time - time taken
-      double waitTime = REFRESH_PERIOD - (System.currentTimeMillis() - start) / TO_MILLIS;
-      // If we need to wait
-      if (waitTime > 0) {
-        try {
-          Thread.sleep((long) (waitTime * TO_MILLIS));
-        } catch (InterruptedException ie) {
-          // do nothing
-        }
+      boolean forceRepaint = repaint;
+      repaint = false;
+      // Match the image to the canvas before pulling the frame, so that it has the new size
+      boolean resized = updateImageSize();
+      // Get the next image data -- only repaint for a new frame, a resized canvas or on request.
+      // The image is backed by the data array, so it already holds the new frame
+      if (updateImageData()
+          || resized
+          || forceRepaint
+          || displayWidth != canvas.getWidth()
+          || displayHeight != canvas.getHeight()) {
+        updateDisplay();
+      }
+      // Sleep until the next frame is due or park while there is nothing to display
+      double waitTime = mediaPlayerData.getRemainingTimeToDisplay();
+      if (Double.isInfinite(waitTime)) {
+        LockSupport.park(this);
+      } else if (waitTime > 0) {
+        LockSupport.parkNanos(this, (long) (waitTime * TO_NANOS));
       }
     }
   }
 
   public void terminate() {
     terminate = true;
+    LockSupport.unpark(this);
     isInit = false;
   }
 }
@@ -0,0 +1,130 @@
+package org.datavyu.plugins.ffmpeg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Configures the directory in which the players cache the key frame indices of local media files.
+ *
+ * <p>A cached index is keyed by the path, size, and modification time of the media file; it is
+ * rebuilt when the media file changes. The cache is disabled until a directory is set, e.g. {@link
+ * #USER_DIRECTORY}; configure it before initializing the players. The indices written last are
+ * kept within a byte budget, and the older ones are deleted as players are initialized.
+ */
+public final class KeyFrameIndexCache {
+
+  private static final Logger logger = LogManager.getFormatterLogger(KeyFrameIndexCache.class);
+
+  private static final String CACHE_FILE_SUFFIX = ".kfi";
+
+  /** A cache directory in the home directory of the user */
+  public static final File USER_DIRECTORY =
+      new File(
+          System.getProperty("user.home"),
+          ".datavyu" + File.separator + "keyframe-index-cache");
+
+  /** The default byte budget of the cached indices */
+  public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024; // 64 MB
+
+  private static volatile File directory = null;
+
+  private static volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+  private KeyFrameIndexCache() {}
+
+  /**
+   * Sets the cache directory
+   *
+   * @param directory The directory; null disables the cache
+   */
+  public static void setDirectory(File directory) {
+    KeyFrameIndexCache.directory = directory;
+  }
+
+  /**
+   * Gets the cache directory
+   *
+   * @return The directory; null if the cache is disabled, the default
+   */
+  public static File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Sets the byte budget of the cached indices
+   *
+   * @param maxBytes The number of bytes; 0 deletes the indices as players are initialized
+   */
+  public static void setMaxBytes(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("The key frame index cache size must not be negative");
+    }
+    KeyFrameIndexCache.maxBytes = maxBytes;
+  }
+
+  /**
+   * Gets the byte budget of the cached indices
+   *
+   * @return The number of bytes; defaults to {@link #DEFAULT_MAX_BYTES}
+   */
+  public static long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Deletes the cached key frame indices */
+  public static void clear() {
+    for (File file : listIndices(directory)) {
+      delete(file);
+    }
+  }
+
+  /**
+   * Gets the path of the cache directory for the native side, creates the directory, and deletes
+   * the oldest indices beyond the byte budget
+   *
+   * @return The path; null if the cache is disabled or the directory can't be created
+   */
+  static String getDirectoryPath() {
+    File cacheDirectory = directory;
+    if (cacheDirectory == null) {
+      return null;
+    }
+    if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+      logger.warn("Unable to create the key frame index cache %s", cacheDirectory);
+      return null;
+    }
+    evict(cacheDirectory);
+    return cacheDirectory.getAbsolutePath();
+  }
+
+  /** Deletes the indices, oldest first, until the rest fit into the byte budget */
+  private static void evict(File cacheDirectory) {
+    File[] files = listIndices(cacheDirectory);
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    long bytes = 0;
+    for (File file : files) {
+      bytes += file.length();
+      if (bytes > maxBytes) {
+        delete(file);
+      }
+    }
+  }
+
+  private static File[] listIndices(File cacheDirectory) {
+    File[] files =
+        cacheDirectory == null
+            ? null
+            : cacheDirectory.listFiles((dir, name) -> name.endsWith(CACHE_FILE_SUFFIX));
+    return files == null ? new File[0] : files;
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      logger.warn("Unable to delete the cached key frame index %s", file);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package org.datavyu.plugins.ffmpeg;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares a memory budget among the packet queues and frame caches of all ffmpeg players in the
+ * process.
+ *
+ * <p>Each player gets an even share of the budget. It reads ahead at most the bytes of its {@link
+ * QueueOptions} and at most its share; its frame cache holds at most its capacity and at most what
+ * the packet queues leave of the share. The shares shrink as more players open and grow again as
+ * players are disposed, so that a few players read far ahead and cache many frames while many
+ * players together stay within the budget.
+ */
+public final class MemoryBudget {
+
+  /** The smallest share of a player, which still reads ahead a few packets */
+  public static final long MIN_PACKET_BYTES = 1024 * 1024; // 1 MB
+
+  private static volatile long budget = 256 * 1024 * 1024; // 256 MB
+
+  private static final Set<FfmpegMediaPlayer> players = ConcurrentHashMap.newKeySet();
+
+  private MemoryBudget() {}
+
+  /**
+   * Sets the bytes of the packet queues and frame caches of all players together
+   *
+   * @param budget The number of bytes; at least {@link #MIN_PACKET_BYTES}
+   */
+  public static void setBudget(long budget) {
+    if (budget < MIN_PACKET_BYTES) {
+      throw new IllegalArgumentException(
+          "Memory budget must be at least " + MIN_PACKET_BYTES + ": " + budget);
+    }
+    MemoryBudget.budget = budget;
+    updatePlayers();
+  }
+
+  /**
+   * Gets the bytes of the packet queues and frame caches of all players together
+   *
+   * @return The number of bytes; defaults to 256 MB
+   */
+  public static long getBudget() {
+    return budget;
+  }
+
+  static void register(FfmpegMediaPlayer player) {
+    players.add(player);
+    updatePlayers();
+  }
+
+  static void unregister(FfmpegMediaPlayer player) {
+    if (players.remove(player)) {
+      updatePlayers();
+    }
+  }
+
+  /**
+   * Gets the bytes of the packet queues of a player
+   *
+   * @param queueOptions The options of the player
+   * @return The bytes of the options, or the share of the budget if smaller
+   */
+  static long getMaxPacketBytes(QueueOptions queueOptions) {
+    return Math.min(queueOptions.getMaxPacketBytes(), getShare());
+  }
+
+  /**
+   * Gets the bytes of the frame cache of a player
+   *
+   * @param queueOptions The options of the player
+   * @param frameCacheCapacity The frame cache capacity of the player
+   * @return The capacity, or what the packet queues leave of the share of the budget if smaller
+   */
+  static long getFrameCacheBytes(QueueOptions queueOptions, long frameCacheCapacity) {
+    long share = getShare();
+    return Math.min(frameCacheCapacity, share - Math.min(queueOptions.getMaxPacketBytes(), share));
+  }
+
+  private static long getShare() {
+    return Math.max(MIN_PACKET_BYTES, budget / Math.max(1, players.size()));
+  }
+
+  private static void updatePlayers() {
+    for (FfmpegMediaPlayer player : players) {
+      player.updateMemoryShare();
+    }
+  }
+}
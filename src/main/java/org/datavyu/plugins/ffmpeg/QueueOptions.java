@@ -0,0 +1,156 @@
+package org.datavyu.plugins.ffmpeg;
+
+/**
+ * Sizes of the queues of an ffmpeg player.
+ *
+ * <p>The options are passed to the native player when it is initialized. Larger queues read and
+ * decode further ahead, which smooths playback and seeks at the cost of memory; smaller queues fit
+ * more players into the memory of a laptop. The bytes of the packet queues are further limited by
+ * the share of the player in the {@link MemoryBudget}.
+ */
+public final class QueueOptions {
+
+  /** The smallest number of frames in a frame queue */
+  public static final int MIN_FRAME_QUEUE_SIZE = 2;
+
+  /** The default options */
+  public static final QueueOptions DEFAULT = new Builder().build();
+
+  private final long maxPacketBytes;
+
+  private final int imageFrameQueueSize;
+
+  private final int audioFrameQueueSize;
+
+  private final int minPackets;
+
+  private final double minPacketsDuration;
+
+  private QueueOptions(Builder builder) {
+    this.maxPacketBytes = builder.maxPacketBytes;
+    this.imageFrameQueueSize = builder.imageFrameQueueSize;
+    this.audioFrameQueueSize = builder.audioFrameQueueSize;
+    this.minPackets = builder.minPackets;
+    this.minPacketsDuration = builder.minPacketsDuration;
+  }
+
+  /**
+   * Gets the bytes of the audio and image packet queues together
+   *
+   * @return The number of bytes
+   */
+  public long getMaxPacketBytes() {
+    return maxPacketBytes;
+  }
+
+  public int getImageFrameQueueSize() {
+    return imageFrameQueueSize;
+  }
+
+  public int getAudioFrameQueueSize() {
+    return audioFrameQueueSize;
+  }
+
+  /**
+   * Gets the number of packets from which a packet queue has enough packets, if they last longer
+   * than {@link #getMinPacketsDuration()}
+   *
+   * @return The number of packets
+   */
+  public int getMinPackets() {
+    return minPackets;
+  }
+
+  /**
+   * Gets the duration from which a packet queue has enough packets, if there are more than {@link
+   * #getMinPackets()}
+   *
+   * @return The duration in seconds
+   */
+  public double getMinPacketsDuration() {
+    return minPacketsDuration;
+  }
+
+  @Override
+  public String toString() {
+    return "QueueOptions{maxPacketBytes="
+        + maxPacketBytes
+        + ", imageFrameQueueSize="
+        + imageFrameQueueSize
+        + ", audioFrameQueueSize="
+        + audioFrameQueueSize
+        + ", minPackets="
+        + minPackets
+        + ", minPacketsDuration="
+        + minPacketsDuration
+        + "}";
+  }
+
+  /** Builds queue options starting from the defaults */
+  public static final class Builder {
+
+    private long maxPacketBytes = 15 * 1024 * 1024; // 15 MB
+
+    private int imageFrameQueueSize = 3;
+
+    private int audioFrameQueueSize = 9;
+
+    private int minPackets = 25;
+
+    private double minPacketsDuration = 1.0; // 1 sec
+
+    public Builder setMaxPacketBytes(long maxPacketBytes) {
+      if (maxPacketBytes < 1) {
+        throw new IllegalArgumentException(
+            "Max packet bytes must be at least 1: " + maxPacketBytes);
+      }
+      this.maxPacketBytes = maxPacketBytes;
+      return this;
+    }
+
+    public Builder setImageFrameQueueSize(int imageFrameQueueSize) {
+      if (imageFrameQueueSize < MIN_FRAME_QUEUE_SIZE) {
+        throw new IllegalArgumentException(
+            "Image frame queue size must be at least "
+                + MIN_FRAME_QUEUE_SIZE
+                + ": "
+                + imageFrameQueueSize);
+      }
+      this.imageFrameQueueSize = imageFrameQueueSize;
+      return this;
+    }
+
+    public Builder setAudioFrameQueueSize(int audioFrameQueueSize) {
+      if (audioFrameQueueSize < MIN_FRAME_QUEUE_SIZE) {
+        throw new IllegalArgumentException(
+            "Audio frame queue size must be at least "
+                + MIN_FRAME_QUEUE_SIZE
+                + ": "
+                + audioFrameQueueSize);
+      }
+      this.audioFrameQueueSize = audioFrameQueueSize;
+      return this;
+    }
+
+    public Builder setMinPackets(int minPackets) {
+      if (minPackets < 0) {
+        throw new IllegalArgumentException("Min packets must not be negative: " + minPackets);
+      }
+      this.minPackets = minPackets;
+      return this;
+    }
+
+    public Builder setMinPacketsDuration(double minPacketsDuration) {
+      if (!(minPacketsDuration >= 0)) {
+        throw new IllegalArgumentException(
+            "Min packets duration must not be negative: " + minPacketsDuration);
+      }
+      this.minPacketsDuration = minPacketsDuration;
+      return this;
+    }
+
+    public QueueOptions build() {
+      return new QueueOptions(this);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DecoderSchedulerTest {
+
+  private int defaultThreadBudget;
+
+  @BeforeMethod
+  public void setUp() {
+    defaultThreadBudget = DecoderScheduler.getThreadBudget();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    DecoderScheduler.setThreadBudget(defaultThreadBudget);
+  }
+
+  @Test
+  public void testPriority() {
+    int foreground = DecoderScheduler.getPriority(DecoderScheduler.Priority.FOREGROUND, true);
+    int paused = DecoderScheduler.getPriority(DecoderScheduler.Priority.BACKGROUND, false);
+    int background = DecoderScheduler.getPriority(DecoderScheduler.Priority.BACKGROUND, true);
+
+    assertEquals(
+        DecoderScheduler.getPriority(DecoderScheduler.Priority.FOREGROUND, false), foreground);
+    assertTrue(foreground < paused);
+    assertTrue(paused < background);
+  }
+
+  @Test
+  public void testThreadCount() {
+    DecoderScheduler.setThreadBudget(4);
+    assertEquals(DecoderScheduler.getThreadCount(DecoderOptions.DEFAULT), 4);
+
+    // Set thread counts are kept within the budget
+    DecoderOptions decoderOptions = new DecoderOptions.Builder().setThreadCount(2).build();
+    assertEquals(DecoderScheduler.getThreadCount(decoderOptions), 2);
+    decoderOptions = new DecoderOptions.Builder().setThreadCount(8).build();
+    assertEquals(DecoderScheduler.getThreadCount(decoderOptions), 4);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidThreadBudget() {
+    DecoderScheduler.setThreadBudget(0);
+  }
+}
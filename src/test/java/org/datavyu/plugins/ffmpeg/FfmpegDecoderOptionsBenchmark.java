@@ -0,0 +1,98 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.datavyu.plugins.OffscreenFrameSink;
+import org.testng.annotations.Test;
+
+/**
+ * Measures the frames per second that the ffmpeg player decodes into a frame sink for decoder
+ * options, like the thread count.
+ *
+ * <p>The benchmark steps through the frames, each as soon as the previous one arrived, so that the
+ * count is not paced by the playback clock and neither caps at the frame rate nor skips frames.
+ */
+public class FfmpegDecoderOptionsBenchmark {
+  private static final Logger logger =
+      LogManager.getFormatterLogger(FfmpegDecoderOptionsBenchmark.class);
+
+  /** The number of frames to step through per decoder options */
+  private static final int NUM_FRAMES = 300;
+
+  private static final long STEP_TIMEOUT_IN_MILLIS = 5000; // 5 sec
+
+  /** The thread counts to measure; 0 for one thread per core */
+  private static final List<Integer> THREAD_COUNTS = Arrays.asList(1, 2, 4, 8, 0);
+
+  private static double measureFramesPerSecond(
+      MediaInformation mediaInformation, DecoderOptions decoderOptions)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    OffscreenFrameSink frameSink = new OffscreenFrameSink();
+    FfmpegJavaMediaPlayer mediaPlayer =
+        new FfmpegJavaMediaPlayer(mediaInformation.getLocalPath(), frameSink);
+    mediaPlayer.setDecoderOptions(decoderOptions);
+    MediaPlayerSync player = MediaPlayerSync.createMediaPlayerSync(mediaPlayer);
+
+    long startFrames = frameSink.getNumFrames();
+    long startTime = System.nanoTime();
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      mediaPlayer.stepForwardAsync().get(STEP_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    long numFrames = frameSink.getNumFrames() - startFrames;
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    player.disposeMediaPlayerSync();
+
+    return numFrames / seconds;
+  }
+
+  @Test
+  public void benchmarkThreadCount()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    MediaInformation mediaInformation = MediaPlayerTest.SHORT_MEDIA;
+    double playbackFramesPerSecond = mediaInformation.getFramesPerSecond();
+    for (DecoderOptions.ThreadType threadType :
+        Arrays.asList(DecoderOptions.ThreadType.FRAME, DecoderOptions.ThreadType.SLICE)) {
+      for (int threadCount : THREAD_COUNTS) {
+        DecoderOptions decoderOptions =
+            new DecoderOptions.Builder()
+                .setThreadCount(threadCount)
+                .setThreadType(threadType)
+                .build();
+        double framesPerSecond = measureFramesPerSecond(mediaInformation, decoderOptions);
+        logger.info(
+            "%s threads: %d - %.1f frames/sec, plays at %.1f",
+            threadType, threadCount, framesPerSecond, playbackFramesPerSecond);
+        assertTrue(framesPerSecond > 0);
+      }
+    }
+  }
+
+  @Test
+  public void benchmarkLowresAndSkipLoopFilter()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    MediaInformation mediaInformation = MediaPlayerTest.SHORT_MEDIA;
+    double playbackFramesPerSecond = mediaInformation.getFramesPerSecond();
+    // One thread shows the speed up of a single core
+    List<DecoderOptions> decoderOptionsList =
+        Arrays.asList(
+            new DecoderOptions.Builder().setThreadCount(1).build(),
+            new DecoderOptions.Builder().setThreadCount(1).setLowres(1).build(),
+            new DecoderOptions.Builder().setThreadCount(1).setSkipLoopFilter(true).build());
+    for (DecoderOptions decoderOptions : decoderOptionsList) {
+      double framesPerSecond = measureFramesPerSecond(mediaInformation, decoderOptions);
+      logger.info(
+          "%s - %.1f frames/sec, plays at %.1f",
+          decoderOptions,
+          framesPerSecond,
+          playbackFramesPerSecond);
+      assertTrue(framesPerSecond > 0);
+    }
+  }
+}
@@ -1,11 +1,22 @@
 package org.datavyu.plugins.ffmpeg;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
 import java.awt.Container;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import javax.swing.JDialog;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.datavyu.plugins.MediaException;
 import org.datavyu.plugins.MediaPlayer;
+import org.datavyu.plugins.OffscreenFrameSink;
+import org.testng.SkipException;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -13,9 +24,19 @@ import org.testng.annotations.Test;
 public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
   private static final Logger logger = LogManager.getFormatterLogger(FfmpegJavaMediaPlayerTest.class);
 
+  /** The playback time for measuring allocations of the render loop */
+  private static final long RENDER_PLAYBACK_TIME_IN_MILLIS = 5000; // 5 sec
+
+  /** The bytes that the render loop may allocate per displayed frame, e.g. for draw graphics */
+  private static final long MAX_ALLOCATED_BYTES_PER_FRAME = 4 * 1024; // 4 kB
+
+  /** The time for the player to adapt the decoding quality to a new output size */
+  private static final long QUALITY_TIMEOUT_IN_MILLIS = 5000; // 5 sec
+
   public static class FfmpegBuilder implements Builder {
     private MediaInformation mediaInformation;
     private Container container;
+    private int imageType = BufferedImage.TYPE_CUSTOM;
 
     FfmpegBuilder() {}
 
@@ -29,10 +50,20 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
       return this;
     }
 
+    FfmpegBuilder withImageType(int imageType) {
+      this.imageType = imageType;
+      return this;
+    }
+
     @Override
     public MediaPlayerSync build() {
       MediaPlayer mediaPlayer =
-          new FfmpegJavaMediaPlayer(mediaInformation.getLocalPath(), container);
+          new FfmpegJavaMediaPlayer(
+              mediaInformation.getLocalPath(),
+              container,
+              AudioPlayerThread.getMonoFormat(),
+              ColorSpace.getInstance(ColorSpace.CS_sRGB),
+              imageType);
       return MediaPlayerSync.createMediaPlayerSync(mediaPlayer);
     }
   }
@@ -44,6 +75,19 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
     };
   }
 
+  @DataProvider(name = "shortMediaIntRgb")
+  public Object[][] createPlayerWithShortMediaIntRgb() {
+    return new Object[][] {
+      {
+        new FfmpegBuilder()
+            .withMedia(SHORT_MEDIA)
+            .withContainer(new JDialog())
+            .withImageType(BufferedImage.TYPE_INT_RGB),
+        SHORT_MEDIA
+      }
+    };
+  }
+
   @DataProvider(name = "longMedia")
   public Object[][] createPlayerWithLongMedia() {
     return new Object[][] {
@@ -70,6 +114,12 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
     super.testPlayingState(builder, mediaInformation);
   }
 
+  @Test(dataProvider = "shortMediaIntRgb")
+  public void testPlayingStateIntRgb(Builder builder, MediaInformation mediaInformation) {
+    logger.debug("******** Test Playing State with TYPE_INT_RGB ********");
+    super.testPlayingState(builder, mediaInformation);
+  }
+
   @Test(dataProvider = "shortMedia")
   public void testStoppedState(Builder builder, MediaInformation mediaInformation) {
     logger.debug("******** Test Stopped State ********");
@@ -87,6 +137,32 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
     super.testMetadata(builder, mediaInformation);
   }
 
+  @Test(dataProvider = "shortMedia")
+  public void testStatus(Builder builder, MediaInformation mediaInformation) {
+    super.testStatus(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testTimeUpdates(Builder builder, MediaInformation mediaInformation) {
+    super.testTimeUpdates(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testSeekAsync(Builder builder, MediaInformation mediaInformation) throws Exception {
+    super.testSeekAsync(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testKeyFrameTimes(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    super.testKeyFrameTimes(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testScrubbing(Builder builder, MediaInformation mediaInformation) throws Exception {
+    super.testScrubbing(builder, mediaInformation);
+  }
+
   @Test(dataProvider = "wrongMedia", expectedExceptions = MediaException.class)
   public void testWrongFilename(Builder builder, MediaInformation mediaInformation) {
     super.testWrongFile(builder, mediaInformation);
@@ -122,6 +198,24 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
     super.testStepBackward(builder, mediaInformation);
   }
 
+  @Test(dataProvider = "shortMedia")
+  public void testStepBackwardWithFrameCache(
+      Builder builder, MediaInformation mediaInformation) throws Exception {
+    super.testStepBackwardWithFrameCache(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testStepBackwardAfterShuttle(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    super.testStepBackwardAfterShuttle(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testReversePlayback(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    super.testReversePlayback(builder, mediaInformation);
+  }
+
   @Test(dataProvider = "shortMedia")
   public void testStepBackwardAtStart(Builder builder, MediaInformation mediaInformation) {
     super.testStepBackwardAtStart(builder, mediaInformation);
@@ -131,4 +225,119 @@ public class FfmpegJavaMediaPlayerTest extends MediaPlayerTest {
   public void testRates(Builder builder, MediaInformation mediaInformation) {
     super.testRates(builder, mediaInformation);
   }
+
+  @Test(dataProvider = "shortMedia")
+  public void testRenderAllocations(Builder builder, MediaInformation mediaInformation)
+      throws InterruptedException {
+    // The allocations per thread are an extension of the HotSpot JVM
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+        || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+      throw new SkipException("The JVM does not measure the allocations of threads");
+    }
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) threadMXBean;
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    MediaPlayerSync player = builder.build();
+    Thread imageThread = findThread(ImageCanvasPlayerThread.THREAD_NAME);
+    assertNotNull(imageThread);
+
+    long allocatedBefore = threadBean.getThreadAllocatedBytes(imageThread.getId());
+    long collectionsBefore = getCollectionCount();
+
+    player.waitForPlaying();
+    Thread.sleep(RENDER_PLAYBACK_TIME_IN_MILLIS);
+    player.waitForPaused();
+
+    long allocated = threadBean.getThreadAllocatedBytes(imageThread.getId()) - allocatedBefore;
+    long collections = getCollectionCount() - collectionsBefore;
+    double numFrames =
+        RENDER_PLAYBACK_TIME_IN_MILLIS / 1000.0 * mediaInformation.getFramesPerSecond();
+    logger.info(
+        "Render loop allocated %d bytes (%.1f bytes/frame) with %d collections",
+        allocated, allocated / numFrames, collections);
+    assertTrue(allocated / numFrames < MAX_ALLOCATED_BYTES_PER_FRAME);
+
+    player.disposeMediaPlayerSync();
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testFrameSink(Builder builder, MediaInformation mediaInformation)
+      throws InterruptedException {
+    OffscreenFrameSink frameSink = new OffscreenFrameSink();
+    MediaPlayerSync player =
+        MediaPlayerSync.createMediaPlayerSync(
+            new FfmpegJavaMediaPlayer(mediaInformation.getLocalPath(), frameSink));
+    assertNotNull(findThread(FrameSinkPlayerThread.THREAD_NAME));
+
+    player.waitForPlaying();
+    Thread.sleep(RENDER_PLAYBACK_TIME_IN_MILLIS);
+    player.waitForPaused();
+
+    double numFrames =
+        RENDER_PLAYBACK_TIME_IN_MILLIS / 1000.0 * mediaInformation.getFramesPerSecond();
+    logger.info(
+        "Frame sink received %d of %.0f frames up to %.3f sec",
+        frameSink.getNumFrames(), numFrames, frameSink.getPresentationTime());
+    assertTrue(frameSink.getNumFrames() > 0);
+    assertTrue(frameSink.getPresentationTime() > 0);
+    assertEquals(frameSink.getImage().getWidth(), mediaInformation.getImageWidth());
+    assertEquals(frameSink.getImage().getHeight(), mediaInformation.getImageHeight());
+
+    player.disposeMediaPlayerSync();
+  }
+
+  private static int waitForQualityReduction(FfmpegJavaMediaPlayer mediaPlayer, int reduction)
+      throws InterruptedException {
+    long endTime = System.currentTimeMillis() + QUALITY_TIMEOUT_IN_MILLIS;
+    while (mediaPlayer.getImageQualityReduction() != reduction
+        && System.currentTimeMillis() < endTime) {
+      Thread.sleep(10);
+    }
+    return mediaPlayer.getImageQualityReduction();
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testAdaptiveQuality(Builder builder, MediaInformation mediaInformation)
+      throws InterruptedException {
+    FfmpegJavaMediaPlayer mediaPlayer =
+        new FfmpegJavaMediaPlayer(mediaInformation.getLocalPath(), new OffscreenFrameSink());
+    mediaPlayer.setDecoderOptions(new DecoderOptions.Builder().setAdaptiveQuality(true).build());
+    MediaPlayerSync player = MediaPlayerSync.createMediaPlayerSync(mediaPlayer);
+    int width = mediaInformation.getImageWidth();
+    int height = mediaInformation.getImageHeight();
+    assertEquals(mediaPlayer.getImageQualityReduction(), 0);
+
+    // A quarter of the size reduces the quality by two steps, while playing and while paused
+    player.waitForPlaying();
+    mediaPlayer.setDisplaySize(width / 4, height / 4);
+    assertEquals(waitForQualityReduction(mediaPlayer, 2), 2);
+    mediaPlayer.pause();
+    player.waitForPaused();
+    mediaPlayer.setDisplaySize(width / 2, height / 2);
+    assertEquals(waitForQualityReduction(mediaPlayer, 1), 1);
+
+    // The full size restores the full quality
+    mediaPlayer.setDisplaySize(0, 0);
+    assertEquals(waitForQualityReduction(mediaPlayer, 0), 0);
+
+    player.disposeMediaPlayerSync();
+  }
+
+  private static Thread findThread(String name) {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals(name)) {
+        return thread;
+      }
+    }
+    return null;
+  }
+
+  private static long getCollectionCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, bean.getCollectionCount());
+    }
+    return count;
+  }
 }
@@ -80,6 +80,37 @@ public class FfmpegSdlMediaPlayerTest extends MediaPlayerTest {
     super.testMetadata(builder, mediaInformation);
   }
 
+  @Test(dataProvider = "shortMedia")
+  public void testStatus(Builder builder, MediaInformation mediaInformation) {
+    logger.debug("******** Test Status ********");
+    super.testStatus(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testTimeUpdates(Builder builder, MediaInformation mediaInformation) {
+    logger.debug("******** Test Time Updates ********");
+    super.testTimeUpdates(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testSeekAsync(Builder builder, MediaInformation mediaInformation) throws Exception {
+    logger.debug("******** Test Seek Async ********");
+    super.testSeekAsync(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testKeyFrameTimes(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.debug("******** Test Key Frame Times ********");
+    super.testKeyFrameTimes(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testScrubbing(Builder builder, MediaInformation mediaInformation) throws Exception {
+    logger.debug("******** Test Scrubbing ********");
+    super.testScrubbing(builder, mediaInformation);
+  }
+
   @Test(dataProvider = "wrongMedia", expectedExceptions = MediaException.class)
   public void testWrongFilename(Builder builder, MediaInformation mediaInformation) {
     logger.debug("******** Test Wrong File Path ********");
@@ -122,6 +153,27 @@ public class FfmpegSdlMediaPlayerTest extends MediaPlayerTest {
     super.testStepBackward(builder, mediaInformation);
   }
 
+  @Test(dataProvider = "shortMedia")
+  public void testStepBackwardWithFrameCache(
+      Builder builder, MediaInformation mediaInformation) throws Exception {
+    logger.debug("******** Test Step Backward With Frame Cache ********");
+    super.testStepBackwardWithFrameCache(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testStepBackwardAfterShuttle(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.debug("******** Test Step Backward After Shuttle ********");
+    super.testStepBackwardAfterShuttle(builder, mediaInformation);
+  }
+
+  @Test(dataProvider = "shortMedia")
+  public void testReversePlayback(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.debug("******** Test Reverse Playback ********");
+    super.testReversePlayback(builder, mediaInformation);
+  }
+
   @Test(dataProvider = "shortMedia")
   public void testStepBackwardAtStart(Builder builder, MediaInformation mediaInformation) {
     logger.debug("******** Test Step Backward At Start ********");
@@ -0,0 +1,68 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.annotations.Test;
+
+/**
+ * Measures the time that Java2D takes to draw a frame per image type of the java player, i.e. the
+ * packed byte image of {@link BufferedImage#TYPE_CUSTOM} and {@link BufferedImage#TYPE_INT_RGB}.
+ */
+public class ImageTypeBlitBenchmark {
+  private static final Logger logger = LogManager.getFormatterLogger(ImageTypeBlitBenchmark.class);
+
+  /** The number of frames drawn per image type */
+  private static final int NUM_BLIT_FRAMES = 200;
+
+  /** The frame size */
+  private static final int BLIT_WIDTH = 1920, BLIT_HEIGHT = 1080;
+
+  private static double measureBlitTime(BufferedImage image, BufferedImage target) {
+    Graphics2D graphics = target.createGraphics();
+    // Warm up
+    for (int i = 0; i < NUM_BLIT_FRAMES / 10; i++) {
+      graphics.drawImage(image, 0, 0, null);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < NUM_BLIT_FRAMES; i++) {
+      graphics.drawImage(image, 0, 0, null);
+    }
+    long end = System.nanoTime();
+    graphics.dispose();
+    return (end - start) / 1e6 / NUM_BLIT_FRAMES;
+  }
+
+  @Test
+  public void benchmarkImageTypeBlitTime() {
+    // The packed byte image as created by the image canvas player thread
+    ComponentColorModel cm =
+        new ComponentColorModel(
+            ColorSpace.getInstance(ColorSpace.CS_sRGB),
+            false,
+            false,
+            Transparency.OPAQUE,
+            DataBuffer.TYPE_BYTE);
+    WritableRaster raster = cm.createCompatibleWritableRaster(BLIT_WIDTH, BLIT_HEIGHT);
+    BufferedImage byteImage = new BufferedImage(cm, raster, false, null);
+    BufferedImage intImage = new BufferedImage(BLIT_WIDTH, BLIT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    // A compatible target as used by the canvas buffer strategy on most pipelines
+    BufferedImage target = new BufferedImage(BLIT_WIDTH, BLIT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+    double byteTime = measureBlitTime(byteImage, target);
+    double intTime = measureBlitTime(intImage, target);
+    logger.info(
+        "Blit time per %dx%d frame: TYPE_CUSTOM %.2f ms, TYPE_INT_RGB %.2f ms",
+        BLIT_WIDTH, BLIT_HEIGHT, byteTime, intTime);
+    assertTrue(byteTime > 0);
+    assertTrue(intTime > 0);
+  }
+}
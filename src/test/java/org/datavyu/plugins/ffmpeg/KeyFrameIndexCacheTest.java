@@ -0,0 +1,91 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class KeyFrameIndexCacheTest {
+
+  private static final int INDEX_BYTES = 1024;
+
+  private File defaultDirectory;
+
+  private File tempDirectory;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    defaultDirectory = KeyFrameIndexCache.getDirectory();
+    tempDirectory = Files.createTempDirectory("keyframe-index-cache").toFile();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    KeyFrameIndexCache.setDirectory(defaultDirectory);
+    KeyFrameIndexCache.setMaxBytes(KeyFrameIndexCache.DEFAULT_MAX_BYTES);
+    File[] files = tempDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    tempDirectory.delete();
+  }
+
+  @Test
+  public void testCreatesDirectory() {
+    File directory = new File(tempDirectory, "cache");
+    KeyFrameIndexCache.setDirectory(directory);
+
+    assertEquals(KeyFrameIndexCache.getDirectoryPath(), directory.getAbsolutePath());
+    assertTrue(directory.isDirectory());
+    directory.delete();
+  }
+
+  @Test
+  public void testDisabled() {
+    assertNull(defaultDirectory);
+    KeyFrameIndexCache.setDirectory(null);
+
+    assertNull(KeyFrameIndexCache.getDirectoryPath());
+  }
+
+  @Test
+  public void testEvictsOldestIndices() throws IOException {
+    KeyFrameIndexCache.setDirectory(tempDirectory);
+    KeyFrameIndexCache.setMaxBytes(2 * INDEX_BYTES);
+    File[] indices = new File[3];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = new File(tempDirectory, i + ".kfi");
+      Files.write(indices[i].toPath(), new byte[INDEX_BYTES]);
+      assertTrue(indices[i].setLastModified(1000000L * (i + 1)));
+    }
+
+    KeyFrameIndexCache.getDirectoryPath();
+
+    assertFalse(indices[0].exists());
+    assertTrue(indices[1].exists());
+    assertTrue(indices[2].exists());
+  }
+
+  @Test
+  public void testClearDeletesOnlyIndices() throws IOException {
+    KeyFrameIndexCache.setDirectory(tempDirectory);
+    File index = new File(tempDirectory, "0123456789abcdef-0.kfi");
+    File other = new File(tempDirectory, "other.txt");
+    assertTrue(index.createNewFile());
+    assertTrue(other.createNewFile());
+
+    KeyFrameIndexCache.clear();
+
+    assertFalse(index.exists());
+    assertTrue(other.exists());
+  }
+}
@@ -1,6 +1,7 @@
 package org.datavyu.plugins.ffmpeg;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -11,10 +12,18 @@ import org.datavyu.plugins.MediaException;
 import org.datavyu.plugins.MediaPlayer;
 import org.datavyu.plugins.PlaybackRateController;
 import org.datavyu.plugins.PlayerStateEvent.PlayerState;
+import org.datavyu.plugins.PlayerStatus;
+import org.datavyu.plugins.PlayerTimeListener;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -46,6 +55,18 @@ public class MediaPlayerTest {
   /** Playback rates duration tolerance */
   private static final double RATES_TOLERANCE_IN_SECONDS = 1;
 
+  /** The stream time to play backward in the reverse playback test */
+  private static final double REVERSE_PLAYBACK_IN_SECONDS = 0.5;
+
+  /** Reverse playback duration tolerance */
+  private static final double REVERSE_PLAYBACK_TOLERANCE_IN_SECONDS = 0.2;
+
+  /** The time to wait for an asynchronous command to complete */
+  private static final long ASYNC_TIMEOUT_IN_MILLIS = 5000; // 5 sec
+
+  /** The byte budget of the frame cache in tests that step through cached frames */
+  private static final long FRAME_CACHE_CAPACITY = 128 * 1024 * 1024; // 128 MB
+
   interface Builder {
     MediaPlayerSync build();
   }
@@ -81,6 +102,22 @@ public class MediaPlayerTest {
               25)
           .get(); // fail hard if the link is malformed
 
+  /** Holds the key frame indices of the media while the tests run */
+  private File keyFrameIndexDirectory;
+
+  @BeforeClass
+  public void setUpKeyFrameIndexCache() throws IOException {
+    keyFrameIndexDirectory = Files.createTempDirectory("keyframe-index-cache").toFile();
+    KeyFrameIndexCache.setDirectory(keyFrameIndexDirectory);
+  }
+
+  @AfterClass
+  public void tearDownKeyFrameIndexCache() {
+    KeyFrameIndexCache.clear();
+    KeyFrameIndexCache.setDirectory(null);
+    keyFrameIndexDirectory.delete();
+  }
+
   static final MediaInformation WRONG_MEDIA =
       new MediaInformation(new File("wrongFileName").toURI(), 0.0, 0.0, 0, 0, 0.0);
 
@@ -251,6 +288,57 @@ public class MediaPlayerTest {
     player.disposeMediaPlayerSync();
   }
 
+  protected void testStatus(Builder builder, MediaInformation mediaInformation) {
+    logger.info("Status Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    PlayerStatus status = mediaPlayer.getStatus();
+    assertEquals(status.getState(), mediaPlayer.getState());
+    assertEquals(status.getPresentationTime(), mediaPlayer.getPresentationTime(), 0.01);
+    assertEquals(status.getRate(), mediaPlayer.getRate());
+    assertEquals(status.getDuration(), mediaInformation.getDuration(), 0.01);
+    assertEquals(status.getDuration(), mediaPlayer.getDuration(), 0.01);
+    assertEquals(status.getImageWidth(), mediaInformation.getImageWidth());
+    assertEquals(status.getImageHeight(), mediaInformation.getImageHeight());
+    assertEquals(status.getFps(), mediaInformation.getFramesPerSecond(), 0.01);
+
+    player.disposeMediaPlayerSync();
+  }
+
+  protected void testTimeUpdates(Builder builder, MediaInformation mediaInformation) {
+    logger.info("Time updates Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    List<Double> times = new CopyOnWriteArrayList<>();
+    // A slow listener, which gets the updates coalesced; keep a reference since the player does not
+    PlayerTimeListener listener =
+        (source, time) -> {
+          times.add(time);
+          sleep(50);
+        };
+    mediaPlayer.addMediaPlayerTimeListener(listener);
+    mediaPlayer.play();
+    player.waitForPlaying();
+    sleep(1000);
+    mediaPlayer.pause();
+    player.waitForPaused();
+    sleep(200);
+
+    logger.info("Received %d time updates", times.size());
+    assertTrue(times.size() > 0);
+    // Updates for every frame would exceed what the slow listener handles in the play time
+    assertTrue(times.size() <= 1200 / 50 + 1);
+    for (int i = 1; i < times.size(); i++) {
+      assertTrue(times.get(i) >= times.get(i - 1));
+    }
+    assertEquals(
+        times.get(times.size() - 1), mediaPlayer.getPresentationTime(), SEEK_TOLERANCE_IN_SECONDS);
+
+    mediaPlayer.removeMediaPlayerTimeListener(listener);
+    player.disposeMediaPlayerSync();
+  }
+
   protected void testWrongFile(Builder builder, MediaInformation mediaInformation)
       throws MediaException {
     logger.info("Wrong file Test");
@@ -284,6 +372,97 @@ public class MediaPlayerTest {
     player.disposeMediaPlayerSync();
   }
 
+  protected void testSeekAsync(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.info("Seek async Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    double startTime = mediaInformation.getStartTime();
+    double duration = mediaInformation.getDuration();
+    for (double expectedTime : createSeekTimes(startTime, duration)) {
+      // No sleeping; the future completes once the frame at the seek time is displayed
+      double actualTime =
+          mediaPlayer.seekAsync(expectedTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+      logger.debug("Seek to " + expectedTime + " s - Actual Time " + actualTime + " s");
+      assertEquals(actualTime, expectedTime, SEEK_TOLERANCE_IN_SECONDS);
+      assertEquals(mediaPlayer.getPresentationTime(), actualTime, SEEK_TOLERANCE_IN_SECONDS);
+    }
+
+    double seekTime = duration / 2;
+    double beforeStep =
+        mediaPlayer.seekAsync(seekTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    double afterStep =
+        mediaPlayer.stepForwardAsync().get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(
+        afterStep - beforeStep,
+        1.0 / mediaInformation.getFramesPerSecond(),
+        SEEK_TOLERANCE_IN_SECONDS);
+
+    player.disposeMediaPlayerSync();
+  }
+
+  protected void testKeyFrameTimes(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.info("Key frame times Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    // The index is built in the background
+    double[] times = mediaPlayer.getKeyFrameTimes();
+    long waitUntil = System.currentTimeMillis() + ASYNC_TIMEOUT_IN_MILLIS;
+    while (times.length == 0 && System.currentTimeMillis() < waitUntil) {
+      sleep(50);
+      times = mediaPlayer.getKeyFrameTimes();
+    }
+
+    logger.info("Indexed %d key frames", times.length);
+    assertTrue(times.length > 0);
+    for (int i = 1; i < times.length; i++) {
+      assertTrue(times[i] > times[i - 1]);
+    }
+    assertTrue(times[0] >= mediaInformation.getStartTime() - SEEK_TOLERANCE_IN_SECONDS);
+    assertTrue(times[times.length - 1] <= mediaInformation.getDuration());
+
+    // Seeks to key frames need no decoding beyond the key frame
+    double keyFrameTime = times[times.length / 2];
+    double actualTime =
+        mediaPlayer.seekAsync(keyFrameTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(actualTime, keyFrameTime, SEEK_TOLERANCE_IN_SECONDS);
+
+    player.disposeMediaPlayerSync();
+  }
+
+  protected void testScrubbing(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.info("Scrubbing Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    mediaPlayer.setScrubbing(true);
+    assertTrue(mediaPlayer.isScrubbing());
+
+    // Drag over the first half, faster than the seeks land
+    double duration = mediaInformation.getDuration();
+    int numSeeks = 100;
+    for (int i = 1; i <= numSeeks; i++) {
+      mediaPlayer.seek(i * duration / (2 * numSeeks));
+      sleep(2);
+    }
+    // The last seek wins, even when it is issued while earlier seeks are in progress
+    double expectedTime = duration / 4;
+    double actualTime =
+        mediaPlayer.seekAsync(expectedTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    sleep(100);
+    logger.debug("Scrub to " + expectedTime + " s - Actual Time " + actualTime + " s");
+    // The frame of the last seek is displayed, not one of an earlier seek that landed later
+    assertEquals(actualTime, expectedTime, SEEK_TOLERANCE_IN_SECONDS);
+    assertEquals(mediaPlayer.getPresentationTime(), expectedTime, SEEK_TOLERANCE_IN_SECONDS);
+
+    mediaPlayer.setScrubbing(false);
+    player.disposeMediaPlayerSync();
+  }
+
   protected void testSeekAtStart(Builder builder, MediaInformation mediaInformation) {
     logger.info("Seek at start Test");
     MediaPlayerSync player = builder.build();
@@ -383,6 +562,112 @@ public class MediaPlayerTest {
     player.disposeMediaPlayerSync();
   }
 
+  protected void testStepBackwardWithFrameCache(
+      Builder builder, MediaInformation mediaInformation) throws Exception {
+    logger.info("Step backward with frame cache Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    mediaPlayer.setFrameCacheCapacity(FRAME_CACHE_CAPACITY);
+    double seekTime = (mediaInformation.getDuration() - mediaInformation.getStartTime()) / 2.0;
+
+    // Steps backward served from the cache land on the frames that decoding lands on
+    double[] cachedTimes = stepBackward(mediaPlayer, seekTime);
+    mediaPlayer.setFrameCacheCapacity(0);
+    assertEquals(mediaPlayer.getFrameCacheCapacity(), 0);
+    double[] decodedTimes = stepBackward(mediaPlayer, seekTime);
+    for (int i = 0; i < NUMBER_OF_STEPS; i++) {
+      logger.debug("Step " + i + " - Cached: " + cachedTimes[i] + " - Decoded: " + decodedTimes[i]);
+      assertEquals(cachedTimes[i], decodedTimes[i], 0.001);
+    }
+
+    player.disposeMediaPlayerSync();
+  }
+
+  protected void testStepBackwardAfterShuttle(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.info("Step backward after shuttle Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    mediaPlayer.setFrameCacheCapacity(FRAME_CACHE_CAPACITY);
+    double[] keyFrameTimes = mediaPlayer.getKeyFrameTimes();
+    long waitUntil = System.currentTimeMillis() + ASYNC_TIMEOUT_IN_MILLIS;
+    while (keyFrameTimes.length < 3 && System.currentTimeMillis() < waitUntil) {
+      sleep(50);
+      keyFrameTimes = mediaPlayer.getKeyFrameTimes();
+    }
+    assertTrue(keyFrameTimes.length >= 3);
+    // Between two key frames that the shuttle decodes without the frames in between
+    double seekTime = (keyFrameTimes[1] + keyFrameTimes[2]) / 2.0;
+
+    // Shuttle over the group of pictures with key frames only
+    mediaPlayer.seekAsync(keyFrameTimes[0]).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    mediaPlayer.setRate(16F);
+    mediaPlayer.play();
+    sleep(1000);
+    mediaPlayer.setRate(1F);
+    mediaPlayer.pause();
+    player.waitForPaused();
+
+    // Steps backward inside the group land on the frames that decoding lands on
+    double[] cachedTimes = stepBackward(mediaPlayer, seekTime);
+    mediaPlayer.setFrameCacheCapacity(0);
+    double[] decodedTimes = stepBackward(mediaPlayer, seekTime);
+    for (int i = 0; i < NUMBER_OF_STEPS; i++) {
+      logger.debug("Step " + i + " - Cached: " + cachedTimes[i] + " - Decoded: " + decodedTimes[i]);
+      assertEquals(cachedTimes[i], decodedTimes[i], 0.001);
+    }
+
+    player.disposeMediaPlayerSync();
+  }
+
+  private static double[] stepBackward(MediaPlayer mediaPlayer, double seekTime)
+      throws Exception {
+    double[] times = new double[NUMBER_OF_STEPS];
+    mediaPlayer.seekAsync(seekTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < NUMBER_OF_STEPS; i++) {
+      times[i] =
+          mediaPlayer.stepBackwardAsync().get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return times;
+  }
+
+  protected void testReversePlayback(Builder builder, MediaInformation mediaInformation)
+      throws Exception {
+    logger.info("Reverse playback Test");
+    MediaPlayerSync player = builder.build();
+    MediaPlayer mediaPlayer = player.getMediaPlayer();
+    player.waitForPaused();
+    double seekTime =
+        mediaInformation.getStartTime()
+            + 0.75 * (mediaInformation.getDuration() - mediaInformation.getStartTime());
+    double startTime =
+        mediaPlayer.seekAsync(seekTime).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+
+    // Negative rates are played natively instead of by seeking
+    mediaPlayer.setRateAsync(-1F).get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    assertFalse(mediaPlayer.isSeekPlaybackEnabled());
+    long playStart = System.nanoTime();
+    mediaPlayer.playAsync().get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    long waitUntil = System.currentTimeMillis() + ASYNC_TIMEOUT_IN_MILLIS;
+    while (startTime - mediaPlayer.getPresentationTime() < REVERSE_PLAYBACK_IN_SECONDS
+        && System.currentTimeMillis() < waitUntil) {
+      sleep(10);
+    }
+    mediaPlayer.pauseAsync().get(ASYNC_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    double playedTime = (System.nanoTime() - playStart) / 1e9;
+    double stopTime = mediaPlayer.getPresentationTime();
+    logger.debug("Start: " + startTime + " - Stop: " + stopTime + " - Played: " + playedTime);
+
+    // The stream went back as much as the clock went forward
+    assertTrue(stopTime < startTime);
+    assertEquals(startTime - stopTime, playedTime, REVERSE_PLAYBACK_TOLERANCE_IN_SECONDS);
+    assertEquals(mediaPlayer.getRate(), -1F);
+
+    player.disposeMediaPlayerSync();
+  }
+
   protected void testStepBackwardAtStart(Builder builder, MediaInformation mediaInformation) {
     logger.info("Step backward at start Test");
     MediaPlayerSync player = builder.build();
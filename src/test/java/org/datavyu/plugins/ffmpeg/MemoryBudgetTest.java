@@ -0,0 +1,62 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MemoryBudgetTest {
+
+  private static final long MB = 1024 * 1024;
+
+  private long defaultBudget;
+
+  @BeforeMethod
+  public void setUp() {
+    defaultBudget = MemoryBudget.getBudget();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    MemoryBudget.setBudget(defaultBudget);
+  }
+
+  @Test
+  public void testMaxPacketBytes() {
+    MemoryBudget.setBudget(256 * MB);
+    assertEquals(
+        MemoryBudget.getMaxPacketBytes(QueueOptions.DEFAULT),
+        QueueOptions.DEFAULT.getMaxPacketBytes());
+
+    // The budget limits the bytes of the options
+    MemoryBudget.setBudget(4 * MB);
+    assertEquals(MemoryBudget.getMaxPacketBytes(QueueOptions.DEFAULT), 4 * MB);
+
+    QueueOptions queueOptions = new QueueOptions.Builder().setMaxPacketBytes(2 * MB).build();
+    assertEquals(MemoryBudget.getMaxPacketBytes(queueOptions), 2 * MB);
+  }
+
+  @Test
+  public void testFrameCacheBytes() {
+    QueueOptions queueOptions = new QueueOptions.Builder().setMaxPacketBytes(16 * MB).build();
+    MemoryBudget.setBudget(256 * MB);
+    assertEquals(MemoryBudget.getFrameCacheBytes(queueOptions, 128 * MB), 128 * MB);
+
+    // The frame cache gets what the packet queues leave of the budget
+    MemoryBudget.setBudget(64 * MB);
+    assertEquals(MemoryBudget.getFrameCacheBytes(queueOptions, 128 * MB), 48 * MB);
+    MemoryBudget.setBudget(8 * MB);
+    assertEquals(MemoryBudget.getFrameCacheBytes(queueOptions, 128 * MB), 0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    MemoryBudget.setBudget(MemoryBudget.MIN_PACKET_BYTES - 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidFrameQueueSize() {
+    new QueueOptions.Builder().setImageFrameQueueSize(QueueOptions.MIN_FRAME_QUEUE_SIZE - 1);
+  }
+}
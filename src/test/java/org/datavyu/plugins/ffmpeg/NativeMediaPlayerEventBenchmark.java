@@ -0,0 +1,127 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.datavyu.plugins.NativeMediaPlayer;
+import org.datavyu.plugins.PlayerTimeListener;
+import org.datavyu.plugins.ffmpeg.NativeMediaPlayerStressTest.StubMediaPlayer;
+import org.testng.annotations.Test;
+
+/**
+ * Measures the throughput and latency of the event dispatch of a native media player, like the
+ * native layer drives it when jogging through a video.
+ */
+public class NativeMediaPlayerEventBenchmark {
+  private static final Logger logger =
+      LogManager.getFormatterLogger(NativeMediaPlayerEventBenchmark.class);
+
+  /** The number of state events sent by each sender for the throughput */
+  private static final int NUM_STATE_EVENTS = 200000;
+
+  /** The number of threads that send events, like the display and the control threads do */
+  private static final int NUM_SENDERS = 4;
+
+  /** The number of round trips for the latency */
+  private static final int NUM_ROUND_TRIPS = 20000;
+
+  /** The number of round trips that warm up the dispatch before measuring */
+  private static final int NUM_WARM_UP_ROUND_TRIPS = 2000;
+
+  /** The longest time to wait for a round trip */
+  private static final long ROUND_TRIP_TIMEOUT_IN_MILLIS = 1000;
+
+  @Test
+  public void benchmarkStateEventThroughput() throws InterruptedException {
+    StubMediaPlayer player = new StubMediaPlayer();
+    RecordingStateListener listener = new RecordingStateListener(false);
+    player.addMediaPlayerStateListener(listener);
+    player.init();
+
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] senders = new Thread[NUM_SENDERS];
+    for (int i = 0; i < NUM_SENDERS; i++) {
+      senders[i] =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (int j = 0; j < NUM_STATE_EVENTS; j++) {
+                  player.sendState(
+                      j % 2 == 0
+                          ? NativeMediaPlayer.eventPlayerPlaying
+                          : NativeMediaPlayer.eventPlayerPaused,
+                      0);
+                }
+              });
+      senders[i].start();
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    for (Thread sender : senders) {
+      sender.join();
+    }
+    // Wait until the dispatch caught up, i.e. the count is stable
+    int numEvents;
+    do {
+      numEvents = listener.getNumEvents();
+      Thread.sleep(50);
+    } while (numEvents != listener.getNumEvents());
+    double seconds = (System.nanoTime() - startTime - TimeUnit.MILLISECONDS.toNanos(50)) / 1e9;
+    player.dispose();
+
+    int numSent = NUM_SENDERS * NUM_STATE_EVENTS;
+    logger.info(
+        "Sent %d state events in %.3f sec (%.0f events/sec), dispatched %d callbacks",
+        numSent, seconds, numSent / seconds, numEvents);
+    assertTrue(numEvents > 0);
+  }
+
+  @Test
+  public void benchmarkTimeEventLatency() throws InterruptedException {
+    StubMediaPlayer player = new StubMediaPlayer();
+    AtomicLong expectedTime = new AtomicLong(-1);
+    AtomicReference<CountDownLatch> received = new AtomicReference<>();
+    // Sends the round trip as time, which the listener acknowledges
+    PlayerTimeListener listener =
+        (source, time) -> {
+          if ((long) time == expectedTime.get()) {
+            received.get().countDown();
+          }
+        };
+    player.addMediaPlayerTimeListener(listener);
+    player.init();
+
+    long[] latencies = new long[NUM_ROUND_TRIPS];
+    for (int i = -NUM_WARM_UP_ROUND_TRIPS; i < NUM_ROUND_TRIPS; i++) {
+      long roundTrip = i + NUM_WARM_UP_ROUND_TRIPS;
+      received.set(new CountDownLatch(1));
+      expectedTime.set(roundTrip);
+      long sent = System.nanoTime();
+      player.sendTime(roundTrip);
+      assertTrue(
+          received.get().await(ROUND_TRIP_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS),
+          "Lost round trip " + roundTrip);
+      if (i >= 0) {
+        latencies[i] = System.nanoTime() - sent;
+      }
+    }
+    player.dispose();
+
+    Arrays.sort(latencies);
+    logger.info(
+        "Time event latency: median %.1f us, 99th percentile %.1f us, max %.1f us",
+        latencies[NUM_ROUND_TRIPS / 2] / 1e3,
+        latencies[NUM_ROUND_TRIPS * 99 / 100] / 1e3,
+        latencies[NUM_ROUND_TRIPS - 1] / 1e3);
+  }
+}
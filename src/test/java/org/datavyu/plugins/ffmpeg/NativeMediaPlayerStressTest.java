@@ -0,0 +1,617 @@
+package org.datavyu.plugins.ffmpeg;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.datavyu.plugins.MediaError;
+import org.datavyu.plugins.MediaException;
+import org.datavyu.plugins.NativeMediaPlayer;
+import org.datavyu.plugins.PlayerEventDispatcher;
+import org.datavyu.plugins.PlayerStateEvent;
+import org.datavyu.plugins.PlayerStateListener;
+import org.datavyu.plugins.PlayerStatus;
+import org.datavyu.plugins.PlayerTimeListener;
+import org.testng.annotations.Test;
+
+/**
+ * Hammers the getters of a native media player while other threads seek, play and finally dispose
+ * it; the getters must never return placeholder values while the player is not being disposed.
+ */
+public class NativeMediaPlayerStressTest {
+  private static final Logger logger =
+      LogManager.getFormatterLogger(NativeMediaPlayerStressTest.class);
+
+  /** The number of threads that call getters */
+  private static final int NUM_READERS = 8;
+
+  /** The number of threads that call commands */
+  private static final int NUM_WRITERS = 4;
+
+  /** The time to run readers and writers before disposing the player */
+  private static final long STRESS_TIME_IN_MILLIS = 2000; // 2 sec
+
+  private static final double TIME = 1.5;
+  private static final float RATE = 2F;
+  private static final double FPS = 30;
+  private static final double DURATION = 10;
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+
+  /** A player without native layer whose commands take some time, like seeks do natively */
+  static class StubMediaPlayer extends NativeMediaPlayer {
+    private final AtomicInteger numCallsAfterDispose = new AtomicInteger();
+    private final AtomicInteger numRunningCommands = new AtomicInteger();
+    private final AtomicInteger maxRunningCommands = new AtomicInteger();
+    private volatile boolean isPlayerDisposed = false;
+
+    StubMediaPlayer() {
+      super(new File("stub.mp4").toURI());
+    }
+
+    private <T> T get(T value) {
+      if (isPlayerDisposed) {
+        numCallsAfterDispose.incrementAndGet();
+      }
+      return value;
+    }
+
+    private void command() {
+      maxRunningCommands.accumulateAndGet(numRunningCommands.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        numRunningCommands.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void init() {
+      initNative();
+    }
+
+    void sendTime(double time) {
+      sendPlayerTimeEvent(time);
+    }
+
+    void sendState(int eventId, double time) {
+      sendPlayerStateEvent(eventId, time);
+    }
+
+    void sendError(int errorCode) {
+      sendPlayerMediaErrorEvent(errorCode);
+    }
+
+    @Override
+    protected long playerGetAudioSyncDelay() throws MediaException {
+      return get(0L);
+    }
+
+    @Override
+    protected void playerSetAudioSyncDelay(long delay) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerPlay() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerStop() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerStepForward() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerStepBackward() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerPause() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerFinish() throws MediaException {
+      command();
+    }
+
+    @Override
+    protected float playerGetRate() throws MediaException {
+      return get(RATE);
+    }
+
+    @Override
+    protected void playerSetRate(float rate) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected double playerGetPresentationTime() throws MediaException {
+      return get(TIME);
+    }
+
+    @Override
+    protected double playerGetFps() throws MediaException {
+      return get(FPS);
+    }
+
+    @Override
+    protected int playerGetImageHeight() throws MediaException {
+      return get(HEIGHT);
+    }
+
+    @Override
+    protected int playerGetImageWidth() throws MediaException {
+      return get(WIDTH);
+    }
+
+    @Override
+    protected boolean playerGetMute() throws MediaException {
+      return get(false);
+    }
+
+    @Override
+    protected void playerSetMute(boolean state) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected float playerGetVolume() throws MediaException {
+      return get(1F);
+    }
+
+    @Override
+    protected void playerSetVolume(float volume) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected float playerGetBalance() throws MediaException {
+      return get(0F);
+    }
+
+    @Override
+    protected void playerSetBalance(float balance) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected double playerGetDuration() throws MediaException {
+      return get(DURATION);
+    }
+
+    @Override
+    protected double playerGetStartTime() throws MediaException {
+      return get(0.0);
+    }
+
+    @Override
+    protected void playerSetStartTime(double startTime) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected boolean playerIsSeekPlaybackEnabled() throws MediaException {
+      return get(false);
+    }
+
+    @Override
+    protected void playerSeek(double streamTime) throws MediaException {
+      command();
+    }
+
+    @Override
+    protected void playerDispose() {
+      // Give in-flight calls the chance to overlap with the disposal
+      command();
+      isPlayerDisposed = true;
+    }
+
+    @Override
+    protected boolean playerRateIsSupported(float rate) throws MediaException {
+      return get(true);
+    }
+
+    @Override
+    protected void HandleSdlKeyEvents(FfmpegSdlMediaPlayer.SdlPlayerKeyEvent evt) {}
+  }
+
+  @Test
+  public void testGettersDuringCommandsAndDispose() throws InterruptedException {
+    StubMediaPlayer player = new StubMediaPlayer();
+    ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    AtomicInteger numReads = new AtomicInteger();
+    // Set before disposing; a placeholder value read while this is unset is a failure
+    final boolean[] disposing = {false};
+    Object disposingLock = new Object();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < NUM_READERS; i++) {
+      threads.add(
+          new Thread(
+              () -> {
+                while (true) {
+                  double time = player.getPresentationTime();
+                  float rate = player.getRate();
+                  double fps = player.getFps();
+                  double duration = player.getDuration();
+                  int width = player.getImageWidth();
+                  PlayerStatus status = player.getStatus();
+                  boolean isDisposing;
+                  synchronized (disposingLock) {
+                    isDisposing = disposing[0];
+                  }
+                  if (isDisposing) {
+                    return;
+                  }
+                  numReads.incrementAndGet();
+                  if (time != TIME
+                      || rate != RATE
+                      || fps != FPS
+                      || duration != DURATION
+                      || width != WIDTH
+                      || player.getState() == null
+                      || status == null
+                      || status.getPresentationTime() != TIME
+                      || status.getImageHeight() != HEIGHT) {
+                    failures.add(
+                        String.format(
+                            "time=%f, rate=%f, fps=%f, duration=%f, width=%d, status=%s",
+                            time, rate, fps, duration, width, status));
+                  }
+                }
+              }));
+    }
+    for (int i = 0; i < NUM_WRITERS; i++) {
+      final int writer = i;
+      threads.add(
+          new Thread(
+              () -> {
+                while (true) {
+                  synchronized (disposingLock) {
+                    if (disposing[0]) {
+                      return;
+                    }
+                  }
+                  switch (writer % 4) {
+                    case 0:
+                      player.seek(TIME);
+                      break;
+                    case 1:
+                      player.play();
+                      break;
+                    case 2:
+                      player.pause();
+                      break;
+                    default:
+                      player.stepForward();
+                      break;
+                  }
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    Thread.sleep(STRESS_TIME_IN_MILLIS);
+
+    synchronized (disposingLock) {
+      disposing[0] = true;
+    }
+    player.dispose();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    logger.info("Read %d times, %d placeholder values", numReads.get(), failures.size());
+    assertTrue(numReads.get() > 0);
+    assertTrue(failures.isEmpty(), "Read placeholder values: " + failures.peek());
+    // Getters after the disposal are answered without calling the player
+    assertEquals(player.numCallsAfterDispose.get(), 0);
+    assertEquals(player.getPresentationTime(), -1.0);
+  }
+
+  @Test
+  public void testSeekAndSetRateDoNotOverlap() throws Exception {
+    StubMediaPlayer player = new StubMediaPlayer();
+    player.init();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < NUM_WRITERS; i++) {
+      final int writer = i;
+      threads.add(
+          new Thread(
+              () -> {
+                long stopAt = System.currentTimeMillis() + STRESS_TIME_IN_MILLIS / 4;
+                while (System.currentTimeMillis() < stopAt) {
+                  if (writer % 2 == 0) {
+                    player.seek(TIME);
+                    player.seekAsync(TIME);
+                  } else {
+                    player.setRate(RATE);
+                    player.setRateAsync(-RATE);
+                  }
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    player.dispose();
+
+    // The commands ran one at a time
+    assertEquals(player.maxRunningCommands.get(), 1);
+  }
+
+  @Test
+  public void testDisposeWhileEventQueueIsFull() throws InterruptedException {
+    // Sends more events than the queue holds while seeking, i.e. under the dispose lock
+    StubMediaPlayer player =
+        new StubMediaPlayer() {
+          @Override
+          protected void playerSeek(double streamTime) {
+            for (int i = 0; i < 1000; i++) {
+              sendState(
+                  i % 2 == 0
+                      ? NativeMediaPlayer.eventPlayerStalled
+                      : NativeMediaPlayer.eventPlayerPlaying,
+                  TIME);
+            }
+          }
+        };
+    CountDownLatch isListening = new CountDownLatch(1);
+    CountDownLatch isDisposing = new CountDownLatch(1);
+    // Gets a property once the disposal waits, like the players do when they start playing
+    PlayerStateListener listener =
+        new RecordingStateListener() {
+          @Override
+          public void onPlaying(PlayerStateEvent evt) {
+            isListening.countDown();
+            try {
+              isDisposing.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            player.getRate();
+          }
+        };
+    player.addMediaPlayerStateListener(listener);
+    player.init();
+    player.sendState(NativeMediaPlayer.eventPlayerPlaying, TIME);
+    assertTrue(isListening.await(1, TimeUnit.SECONDS));
+
+    Thread seeker = new Thread(() -> player.seek(TIME));
+    seeker.start();
+    Thread.sleep(100);
+    Thread disposer = new Thread(player::dispose);
+    disposer.start();
+    Thread.sleep(100);
+    isDisposing.countDown();
+
+    disposer.join(STRESS_TIME_IN_MILLIS * 5);
+    seeker.join(STRESS_TIME_IN_MILLIS * 5);
+    assertFalse(disposer.isAlive(), "The disposal deadlocked");
+    assertFalse(seeker.isAlive(), "The seek deadlocked");
+  }
+
+  @Test
+  public void testSeekCompletesAfterEventQueueWasFull() throws Exception {
+    // Sends more events than the queue holds before the frame event of the seek
+    StubMediaPlayer player =
+        new StubMediaPlayer() {
+          private volatile int frameRequestId;
+
+          @Override
+          protected boolean playerRequestFrameEvent(int requestId, boolean isSeek) {
+            frameRequestId = requestId;
+            return true;
+          }
+
+          @Override
+          protected void playerSeek(double streamTime) {
+            for (int i = 0; i < 1000; i++) {
+              sendState(
+                  i % 2 == 0
+                      ? NativeMediaPlayer.eventPlayerStalled
+                      : NativeMediaPlayer.eventPlayerPlaying,
+                  TIME);
+            }
+            sendPlayerFrameEvent(frameRequestId, streamTime);
+          }
+        };
+    CountDownLatch isListening = new CountDownLatch(1);
+    CountDownLatch isSeeking = new CountDownLatch(1);
+    // Holds up the dispatch until the seek filled the queue
+    RecordingStateListener listener =
+        new RecordingStateListener() {
+          @Override
+          public void onReady(PlayerStateEvent evt) {
+            isListening.countDown();
+            try {
+              isSeeking.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    player.addMediaPlayerStateListener(listener);
+    player.init();
+    player.sendState(NativeMediaPlayer.eventPlayerReady, TIME);
+    assertTrue(isListening.await(1, TimeUnit.SECONDS));
+
+    CompletableFuture<Double> future = player.seekAsync(TIME);
+    isSeeking.countDown();
+    assertEquals((double) future.get(STRESS_TIME_IN_MILLIS, TimeUnit.MILLISECONDS), TIME);
+    // Every state arrived, so the player ends in the last state sent
+    assertEquals(player.getState(), PlayerStateEvent.PlayerState.PLAYING);
+    player.dispose();
+  }
+
+  @Test
+  public void testTimeEventsCoalesce() throws InterruptedException {
+    StubMediaPlayer player = new StubMediaPlayer();
+    List<Double> times = new CopyOnWriteArrayList<>();
+    PlayerTimeListener listener =
+        (source, time) -> {
+          times.add(time);
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    player.addMediaPlayerTimeListener(listener);
+    player.init();
+
+    // Send times much faster than the listener handles them
+    int numTimes = 100000;
+    for (int i = 1; i <= numTimes; i++) {
+      player.sendTime(i);
+    }
+    Thread.sleep(100);
+    player.dispose();
+
+    logger.info("Sent %d times, received %d", numTimes, times.size());
+    assertTrue(times.size() < numTimes / 100);
+    for (int i = 1; i < times.size(); i++) {
+      assertTrue(times.get(i) > times.get(i - 1));
+    }
+    // The slow listener still receives the latest time
+    assertEquals((double) times.get(times.size() - 1), (double) numTimes);
+  }
+
+  @Test
+  public void testAsyncCommandsComplete() throws Exception {
+    StubMediaPlayer player = new StubMediaPlayer();
+    player.init();
+
+    // The stub sends no frame events, thus the futures complete with the time after the command
+    assertEquals((double) player.seekAsync(TIME).get(1, TimeUnit.SECONDS), TIME);
+    assertEquals((double) player.stepForwardAsync().get(1, TimeUnit.SECONDS), TIME);
+
+    // State commands complete with the state event
+    CompletableFuture<PlayerStateEvent.PlayerState> paused = player.pauseAsync();
+    assertFalse(paused.isDone());
+    player.sendState(NativeMediaPlayer.eventPlayerPaused, TIME);
+    assertEquals(paused.get(1, TimeUnit.SECONDS), PlayerStateEvent.PlayerState.PAUSED);
+
+    // Pending commands fail on dispose
+    CompletableFuture<PlayerStateEvent.PlayerState> playing = player.playAsync();
+    player.dispose();
+    assertTrue(playing.isCompletedExceptionally());
+    assertTrue(player.seekAsync(TIME).isCompletedExceptionally());
+  }
+
+  /** A player whose native layer displays no frame after the commands, like at the end */
+  private static class EndOfMediaPlayer extends StubMediaPlayer {
+    @Override
+    protected boolean playerRequestFrameEvent(int requestId, boolean isSeek) {
+      return true;
+    }
+  }
+
+  @Test
+  public void testStepPastLastFrameCompletes() throws Exception {
+    StubMediaPlayer player = new EndOfMediaPlayer();
+    player.init();
+
+    // Without a frame the step completes with the frame displayed after the timeout
+    CompletableFuture<Double> step = player.stepForwardAsync();
+    assertFalse(step.isDone());
+    assertEquals((double) step.get(STRESS_TIME_IN_MILLIS * 5, TimeUnit.MILLISECONDS), TIME);
+
+    // The end of the media completes the step right away
+    step = player.stepForwardAsync();
+    player.sendState(NativeMediaPlayer.eventPlayerFinished, DURATION);
+    assertEquals((double) step.get(1, TimeUnit.SECONDS), DURATION);
+
+    // An error fails the step
+    step = player.stepForwardAsync();
+    player.sendError(MediaError.ERROR_MEDIA_INVALID.code());
+    try {
+      step.get(1, TimeUnit.SECONDS);
+      fail("The step completed despite the error");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof MediaException);
+    }
+    player.dispose();
+  }
+
+  @Test
+  public void testSharedEventDispatcherKeepsOrder() throws InterruptedException {
+    int numPlayers = 12;
+    int numEvents = 10000;
+    PlayerEventDispatcher dispatcher = new PlayerEventDispatcher(2);
+    List<StubMediaPlayer> players = new ArrayList<>();
+    List<RecordingStateListener> listeners = new ArrayList<>();
+    for (int i = 0; i < numPlayers; i++) {
+      StubMediaPlayer player = new StubMediaPlayer();
+      RecordingStateListener listener = new RecordingStateListener();
+      player.addMediaPlayerStateListener(listener);
+      player.setEventDispatcher(dispatcher);
+      player.init();
+      players.add(player);
+      listeners.add(listener);
+    }
+
+    // Every player gets alternating states from a sender of its own
+    List<Thread> senders = new ArrayList<>();
+    for (StubMediaPlayer player : players) {
+      senders.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < numEvents; i++) {
+                  player.sendState(
+                      i % 2 == 0
+                          ? NativeMediaPlayer.eventPlayerPlaying
+                          : NativeMediaPlayer.eventPlayerPaused,
+                      0);
+                }
+              }));
+    }
+    senders.forEach(Thread::start);
+    for (Thread sender : senders) {
+      sender.join();
+    }
+    long waitUntil = System.currentTimeMillis() + STRESS_TIME_IN_MILLIS;
+    while (listeners.stream().anyMatch(l -> l.getStates().size() < numEvents)
+        && System.currentTimeMillis() < waitUntil) {
+      Thread.sleep(10);
+    }
+    players.forEach(NativeMediaPlayer::dispose);
+    dispatcher.shutdown();
+
+    for (RecordingStateListener listener : listeners) {
+      // All events arrive in order; none repeats a state, thus none is coalesced
+      assertEquals(listener.getStates().size(), numEvents);
+      for (int i = 0; i < numEvents; i++) {
+        PlayerStateEvent.PlayerState expected =
+            i % 2 == 0 ? PlayerStateEvent.PlayerState.PLAYING : PlayerStateEvent.PlayerState.PAUSED;
+        assertEquals(listener.getStates().get(i), expected);
+      }
+      assertTrue(
+          listener.getThreadNames().stream().allMatch(name -> name.startsWith("Media Player Event")));
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.datavyu.plugins.ffmpeg;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datavyu.plugins.PlayerStateEvent;
+import org.datavyu.plugins.PlayerStateListener;
+
+/** Counts the callbacks of any state and records the states and the dispatching threads */
+class RecordingStateListener implements PlayerStateListener {
+  private final boolean isRecording;
+  private final AtomicInteger numEvents = new AtomicInteger();
+  private final List<PlayerStateEvent.PlayerState> states = new CopyOnWriteArrayList<>();
+  private final ConcurrentLinkedQueue<String> threadNames = new ConcurrentLinkedQueue<>();
+
+  RecordingStateListener() {
+    this(true);
+  }
+
+  /**
+   * Creates a listener
+   *
+   * @param isRecording False to only count the callbacks, which keeps them cheap for benchmarks
+   */
+  RecordingStateListener(boolean isRecording) {
+    this.isRecording = isRecording;
+  }
+
+  int getNumEvents() {
+    return numEvents.get();
+  }
+
+  List<PlayerStateEvent.PlayerState> getStates() {
+    return states;
+  }
+
+  Collection<String> getThreadNames() {
+    return threadNames;
+  }
+
+  private void record(PlayerStateEvent evt) {
+    numEvents.incrementAndGet();
+    if (isRecording) {
+      states.add(evt.getState());
+      threadNames.add(Thread.currentThread().getName());
+    }
+  }
+
+  @Override
+  public void onReady(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onPlaying(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onPause(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onStop(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onStall(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onFinish(PlayerStateEvent evt) {
+    record(evt);
+  }
+
+  @Override
+  public void onHalt(PlayerStateEvent evt) {
+    record(evt);
+  }
+}